@@ -0,0 +1,636 @@
+package net.schwarzbaer.java.tools.livestreamlistconverter;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Vector;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
+
+import net.schwarzbaer.java.tools.livestreamlistconverter.OutputFormat.FormatEnum;
+
+/**
+ * Offline micro benchmarks on synthetic data.
+ * Every benchmark runs with several input sizes, so the scaling can be read from the "ns/unit" column:
+ * It stays constant, if the measured code is linear in the input size.
+ * <p>
+ * Usage: {@code Benchmarks [reportFile] [nameFilter]}<br>
+ * All results are written as JSON to {@code reportFile} (default: {@value #DEFAULT_REPORT_FILE}),
+ * one result per line, so the reports of two releases can be compared with a simple diff.
+ * Only benchmarks, whose name contains {@code nameFilter}, are run.
+ */
+class Benchmarks
+{
+	private static final String DEFAULT_REPORT_FILE = "Benchmarks.report.json";
+	private static final long WARMUP_TIME_NS  = 1_000_000_000L;
+	private static final int  MEASUREMENTS    = 10;
+	private static final long MEASUREMENT_TIME_NS = 200_000_000L;
+
+	/** the measured code writes log messages to System.out, so results go directly to the console */
+	private static final PrintStream console = System.out;
+	private static final List<Result> results = new Vector<>();
+	private static String nameFilter = null;
+	private static long blackhole = 0;
+
+	record Result(String name, String unit, int size, double ns_per_op) {}
+
+	public static void main(String[] args) throws IOException
+	{
+		File reportFile = new File(args.length>0 ? args[0] : DEFAULT_REPORT_FILE);
+		nameFilter = args.length>1 ? args[1] : null;
+		File tempFolder = Files.createTempDirectory("LiveStreamListConverter.Benchmarks").toFile();
+
+		System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+		try
+		{
+			benchmark_parseLine();
+			benchmark_parsers();
+			benchmark_parseStationList();
+			benchmark_knownStations(tempFolder);
+			benchmark_stationImporter(tempFolder);
+			benchmark_stationStore();
+			benchmark_deduplication();
+			benchmark_responseStore();
+			benchmark_textViewer();
+			benchmark_ignoreRules();
+			benchmark_baseConfig(tempFolder);
+			benchmark_outputFormats();
+			benchmark_outputPipeline(tempFolder);
+		}
+		finally
+		{
+			System.setOut(console);
+			for (File file : tempFolder.listFiles())
+				file.delete();
+			tempFolder.delete();
+		}
+
+		writeReport(reportFile);
+		console.printf("(blackhole: %d)%n", blackhole);
+		console.printf("Report written to \"%s\"%n", reportFile.getAbsolutePath());
+	}
+
+	private static void benchmark_parseLine()
+	{
+		int[] sizes = { 1_000, 10_000, 100_000 };
+		run("SourceType.plain.parseLine", "lines", sizes, lineCount -> {
+			String[] lines = createPlainStationResponse(lineCount).split("\r\n");
+			return () -> parseLines(SourceType.plain, lines);
+		});
+		run("SourceType.pls.parseLine", "lines", sizes, lineCount -> {
+			String[] lines = createPlsStationResponse(lineCount).split("\r\n");
+			return () -> parseLines(SourceType.pls, lines);
+		});
+	}
+
+	private static void benchmark_parsers()
+	{
+		int[] sizes = { 1_000, 10_000, 100_000 };
+		run("SourceType.json.parser", "entries", sizes, entryCount -> {
+			String response = createJsonStationResponse(entryCount);
+			return () -> parse(SourceType.json, response);
+		});
+		run("SourceType.xspf.parser", "entries", sizes, entryCount -> {
+			String response = createXspfStationResponse(entryCount);
+			return () -> parse(SourceType.xspf, response);
+		});
+	}
+
+	private static Object parse(SourceType type, String response)
+	{
+		int[] count = { 0 };
+		try { type.parser.parse(new StringReader(response), null, url -> count[0]++); }
+		catch (IOException ex) { throw new IllegalStateException(ex); }
+		return count[0];
+	}
+
+	private static Object parseLines(SourceType type, String[] lines)
+	{
+		int count = 0;
+		for (String line : lines)
+			if (type.lineParser.parseLine(line)!=null)
+				count++;
+		return count;
+	}
+
+	/**
+	 * The path of {@link Station#readStreamAdressesFromWeb}, after the response was received: decoding, parsing and recording of the response.
+	 */
+	private static void benchmark_parseStationList()
+	{
+		int[] sizes = { 1_000, 10_000, 100_000 };
+		run("Station.parseStationList (plain, response kept)", "lines", sizes, lineCount -> {
+			byte[] bytes = createPlainStationResponse(lineCount).getBytes(StandardCharsets.UTF_8);
+			return () -> parseStationList(SourceType.plain, bytes, true);
+		});
+		run("Station.parseStationList (pls, response not kept)", "lines", sizes, lineCount -> {
+			byte[] bytes = createPlsStationResponse(lineCount).getBytes(StandardCharsets.UTF_8);
+			return () -> parseStationList(SourceType.pls, bytes, false);
+		});
+	}
+
+	private static Object parseStationList(SourceType type, byte[] bytes, boolean keepResponse)
+	{
+		int[] count = { 0 };
+		StringBuilder content = keepResponse ? new StringBuilder() : null;
+		FetchStats stats = new FetchStats();
+		try { Station.parseStationList(new ByteArrayInputStream(bytes), StandardCharsets.UTF_8, type, null, content, stats, url -> count[0]++); }
+		catch (IOException ex) { throw new IllegalStateException(ex); }
+		return count[0] + stats.linesParsed + (content==null ? 0 : content.length());
+	}
+
+	private static void benchmark_knownStations(File tempFolder)
+	{
+		int[] sizes = { 1_000, 10_000, 100_000 };
+		run("KnownStations.readFromFile", "stations", sizes, stationCount -> {
+			File file = new File(tempFolder, "read.%d.KnownStations.cfg".formatted(stationCount));
+			createKnownStations(stationCount).writeToFile(file);
+			KnownStations knownStations = new KnownStations();
+			return () -> {
+				knownStations.readFromFile(file);
+				return knownStations.getStationCount();
+			};
+		});
+		run("KnownStations.writeToFile", "stations", sizes, stationCount -> {
+			File file = new File(tempFolder, "write.%d.KnownStations.cfg".formatted(stationCount));
+			KnownStations knownStations = createKnownStations(stationCount);
+			return () -> {
+				knownStations.writeToFile(file);
+				return file.length();
+			};
+		});
+	}
+
+	private static void benchmark_stationImporter(File tempFolder)
+	{
+		int[] sizes = { 10_000, 100_000 };
+		for (StationImporter.Format format : StationImporter.Format.values())
+			run("StationImporter.importFile (%s, 1000 known stations)".formatted(format), "records", sizes, recordCount -> {
+				File file = new File(tempFolder, "%d.StationDirectory.%s".formatted(recordCount, format));
+				try { createStationDirectory(file, format, recordCount); }
+				catch (IOException ex) { throw new IllegalStateException(ex); }
+				return () -> {
+					KnownStations knownStations = createKnownStations(1000);
+					StationImporter importer = new StationImporter(
+							url -> !knownStations.stationStore.getByURL(url).isEmpty(),
+							knownStations.stationStore::addAll
+					);
+					try { return importer.importFile(file, format, null); }
+					catch (IOException ex) { throw new IllegalStateException(ex); }
+				};
+			});
+	}
+
+	private static void benchmark_stationStore()
+	{
+		int[] sizes = { 1_000, 10_000, 100_000 };
+		run("StationStore.removeAll (every 2nd, incl. addAll)", "stations", sizes, stationCount -> {
+			List<Station> stations = createKnownStations(stationCount).getStations();
+			int[] indexes = new int[stationCount/2];
+			for (int i=0; i<indexes.length; i++) indexes[i] = i*2;
+			return () -> {
+				StationStore stationStore = new StationStore();
+				stationStore.addAll(stations);
+				stationStore.removeAll(indexes);
+				return stationStore.size();
+			};
+		});
+		run("StationStore.move (every 2nd)", "stations", sizes, stationCount -> {
+			StationStore stationStore = createKnownStations(stationCount).stationStore;
+			int[][] indexes = { new int[stationCount/2] };
+			for (int i=0; i<indexes[0].length; i++) indexes[0][i] = i*2+1;
+			int[] inc = { -1 };
+			return () -> {
+				// moves the stations up and back down alternately
+				indexes[0] = stationStore.move(indexes[0], inc[0]);
+				inc[0] = -inc[0];
+				return indexes[0].length;
+			};
+		});
+		run("StationStore.getByURL", "lookups", sizes, stationCount -> {
+			KnownStations knownStations = createKnownStations(stationCount);
+			String[] urls = knownStations.getStations().stream().map(station -> station.url).toArray(String[]::new);
+			return () -> {
+				int count = 0;
+				for (String url : urls)
+					count += knownStations.stationStore.getByURL(url).size();
+				return count;
+			};
+		});
+	}
+
+	private static void benchmark_responseStore()
+	{
+		// 10 kB per response, 1 MB budget: most responses are spilled to disk and read again
+		String response = createPlainStationResponse(200);
+		run("ResponseStore.put+get (1 MB budget)", "responses", new int[] { 100, 1_000 }, responseCount -> () -> {
+			ResponseStore store = new ResponseStore(1024*1024);
+			for (int i=0; i<responseCount; i++)
+				store.put(i, response);
+			long length = 0;
+			for (int i=0; i<responseCount; i++)
+				length += store.get(i).length();
+			store.clear();
+			return length;
+		});
+	}
+
+	private static void benchmark_textViewer()
+	{
+		int[] sizes = { 10_000, 100_000, 1_000_000 };
+		run("TextViewer.LineIndex (index all lines)", "lines", sizes, lineCount -> {
+			String text = createPlainStationResponse(lineCount);
+			return () -> {
+				TextViewer.LineIndex lineIndex = new TextViewer.LineIndex(text, 8);
+				lineIndex.ensureIndexed(Integer.MAX_VALUE-1);
+				return lineIndex.getIndexedLineCount() + lineIndex.getMaxColumns();
+			};
+		});
+		run("TextViewer.find (ignore case, not found)", "lines", sizes, lineCount -> {
+			String text = createPlainStationResponse(lineCount);
+			return () -> TextViewer.find(text, "http://missing", 0, true, true);
+		});
+	}
+
+	private static void benchmark_deduplication()
+	{
+		run("AdressDeduplicator.add (50% duplicates)", "adresses", new int[] { 1_000, 10_000, 100_000, 1_000_000 }, adressCount -> {
+			StreamAdress[] adresses = new StreamAdress[adressCount];
+			for (int i=0; i<adressCount; i++)
+				// every URL is found twice, in different spellings
+				adresses[i] = new StreamAdress("Station %d".formatted(i), (i%2==0 ? "http://stream%d.example.com/live/%d/" : "HTTP://Stream%d.Example.com:80/live/%d").formatted(i/2%100, i/2));
+			return () -> {
+				AdressDeduplicator deduplicator = new AdressDeduplicator(false, AdressDeduplicator.NameMergePolicy.first);
+				int count = 0;
+				for (StreamAdress adress : adresses)
+					if (deduplicator.add(adress))
+						count++;
+				return count;
+			};
+		});
+	}
+
+	private static void benchmark_ignoreRules()
+	{
+		String[] urls = new String[10_000];
+		for (int i=0; i<urls.length; i++)
+			urls[i] = "http://stream%d.cdn%d.example.com:8000/live/station%d.mp3?sid=%d".formatted(i%7, i%1000, i, i);
+		run("IgnoreRules.matches (url/host/prefix/glob rules)", "rules", new int[] { 100, 1_000, 10_000, 100_000 }, ruleCount -> {
+			IgnoreRules ignoreRules = new IgnoreRules();
+			IgnoreRules.Type[] types = { IgnoreRules.Type.url, IgnoreRules.Type.host, IgnoreRules.Type.prefix, IgnoreRules.Type.glob };
+			for (int i=0; i<ruleCount; i++)
+			{
+				IgnoreRules.Type type = types[i%types.length];
+				String pattern = switch (type)
+						{
+						case url    -> "http://ads%d.example.net/live/%d.mp3".formatted(i, i);
+						case host   -> "ads%d.example.org".formatted(i);
+						case prefix -> "http://mirror%d.example.org/".formatted(i);
+						case glob   -> "http://inject%d.example.org/*/ad?.mp3".formatted(i);
+						case regex  -> null;
+						};
+				ignoreRules.add(new IgnoreRules.Rule(type, pattern));
+			}
+			ignoreRules.getMatcher();
+			// measured per URL, so a constant "ns/op" shows, that the time is independent of the rule count
+			return () -> {
+				int count = 0;
+				for (String url : urls)
+					if (ignoreRules.matches(url))
+						count++;
+				return count;
+			};
+		});
+
+		// all globs share the prefix "http://*", so an index of literal prefixes can't tell them apart
+		String[] mirrorURLs = new String[10_000];
+		for (int i=0; i<mirrorURLs.length; i++)
+			mirrorURLs[i] = "http://stream%d.mirror%d.cdn.example/live/station%d.mp3".formatted(i%7, i%20_000, i);
+		run("IgnoreRules.matches (glob rules with shared prefix)", "rules", new int[] { 100, 1_000, 10_000 }, ruleCount -> {
+			IgnoreRules ignoreRules = new IgnoreRules();
+			for (int i=0; i<ruleCount; i++)
+				ignoreRules.add(new IgnoreRules.Rule(IgnoreRules.Type.glob, "http://*.mirror%d.cdn.example/*".formatted(i*2)));
+			ignoreRules.getMatcher();
+			return () -> {
+				int count = 0;
+				for (String url : mirrorURLs)
+					if (ignoreRules.matches(url))
+						count++;
+				return count;
+			};
+		});
+	}
+
+	private static void benchmark_baseConfig(File tempFolder)
+	{
+		run("BaseConfig.readFromFile", "entries", new int[] { 100, 10_000, 100_000 }, entryCount -> {
+			File file = new File(tempFolder, "%d.FileLocations.cfg".formatted(entryCount));
+			try { createBaseConfigFile(file, entryCount); }
+			catch (IOException ex) { throw new IllegalStateException(ex); }
+			return () -> {
+				// new Outputters for each run, because BaseConfig adds the found output files to them
+				Map<FormatEnum, Outputter> outputters = new EnumMap<>(FormatEnum.class);
+				BaseConfig baseConfig = new BaseConfig(action -> outputters.forEach(action));
+				Outputter.ExternalIF outputterIF = new Outputter.ExternalIF() {
+					@Override public Vector<StreamAdress> getAdressList() { return new Vector<>(); }
+					@Override public void enableGUI(boolean enable) {}
+				};
+				for (FormatEnum fe : FormatEnum.values())
+					outputters.put(fe, new Outputter(baseConfig, fe.create.get(), outputterIF));
+				baseConfig.readFromFile(file);
+				return outputters;
+			};
+		});
+	}
+
+	/**
+	 * Compares the precompiled templates of the {@link OutputFormat}s with the {@link String#format} calls per entry of former versions.
+	 */
+	private static void benchmark_outputFormats()
+	{
+		int[] sizes = { 1_000, 10_000, 100_000 };
+		for (OutputFormat.FormatEnum fe : OutputFormat.FormatEnum.values())
+		{
+			OutputFormat format = fe.create.get();
+			run("OutputFormat."+fe, "entries", sizes, entryCount -> {
+				List<StreamAdress> adressList = createAdressList(entryCount);
+				return () -> format.createOutputFileContent(adressList, progress->{});
+			});
+		}
+
+		run("String.format (former PLSPlayList)", "entries", sizes, entryCount -> {
+			List<StreamAdress> adressList = createAdressList(entryCount);
+			return () -> {
+				StringBuilder sb = new StringBuilder();
+				for (int i=0; i<adressList.size(); i++) {
+					StreamAdress adress = adressList.get(i);
+					sb.append(String.format("File%d=%s\r\n", i+1,adress.url));
+					sb.append(String.format("Title%d=%s\r\n", i+1,adress.name));
+					sb.append(String.format("Length%d=-1\r\n", i+1));
+				}
+				return sb;
+			};
+		});
+
+		run("String.format (former ETS2RadioList)", "entries", sizes, entryCount -> {
+			List<StreamAdress> adressList = createAdressList(entryCount);
+			return () -> {
+				StringBuilder sb = new StringBuilder();
+				for (StreamAdress adress : adressList)
+					sb.append(String.format("stream_data[]: \"%s|%s|%s|%s|%d|%d\"\r\n", adress.url,adress.name,adress.genre,adress.country,adress.bitRate,adress.isFavorite));
+				return sb;
+			};
+		});
+	}
+
+	/**
+	 * Compares the render stage of the pipelined automatic run with the rendering after the determination.
+	 * Both write the files of all formats; the files are unchanged after the first run, so only the hash comparison hits the disk.
+	 */
+	private static void benchmark_outputPipeline(File tempFolder)
+	{
+		int[] sizes = { 1_000, 10_000, 100_000 };
+		ProgressReporter pr = new ProgressReporter.ConsoleReporter();
+		run("Outputter.generateAndWriteAllFiles", "entries", sizes, entryCount -> {
+			List<StreamAdress> adressList = createAdressList(entryCount);
+			List<Outputter> outputters = createOutputters(tempFolder, "allFiles.%d".formatted(entryCount));
+			return () -> Outputter.generateAndWriteAllFiles(outputters, adressList, pr);
+		});
+		run("OutputPipeline (queue capacity %d)".formatted(OutputPipeline.DEFAULT_QUEUE_CAPACITY), "entries", sizes, entryCount -> {
+			List<StreamAdress> adressList = createAdressList(entryCount);
+			List<Outputter> outputters = createOutputters(tempFolder, "pipeline.%d".formatted(entryCount));
+			return () -> {
+				OutputPipeline pipeline = new OutputPipeline(outputters, OutputPipeline.DEFAULT_QUEUE_CAPACITY);
+				for (StreamAdress adress : adressList)
+					pipeline.add(adress);
+				return pipeline.finish();
+			};
+		});
+	}
+
+	private static List<Outputter> createOutputters(File tempFolder, String filePrefix)
+	{
+		BaseConfig baseConfig = new BaseConfig(action -> {});
+		Outputter.ExternalIF outputterIF = new Outputter.ExternalIF() {
+			@Override public Vector<StreamAdress> getAdressList() { return new Vector<>(); }
+			@Override public void enableGUI(boolean enable) {}
+		};
+		List<Outputter> outputters = new ArrayList<>();
+		for (FormatEnum fe : FormatEnum.values())
+		{
+			Outputter outputter = new Outputter(baseConfig, fe.create.get(), outputterIF);
+			outputter.addOutputFile(new File(tempFolder, "%s.%s".formatted(filePrefix, fe)));
+			outputters.add(outputter);
+		}
+		return outputters;
+	}
+
+	static List<StreamAdress> createAdressList(int entryCount)
+	{
+		List<StreamAdress> adressList = new ArrayList<>(entryCount);
+		for (int i=0; i<entryCount; i++)
+		{
+			StreamAdress adress = new StreamAdress("Station %d (%d)".formatted(i/4, i%4), "http://stream%d.example.com:8000/live/channel%d.mp3".formatted(i%100, i));
+			adress.genre = "Rock";
+			adress.bitRate = 128;
+			adressList.add(adress);
+		}
+		return adressList;
+	}
+
+	static String createPlainStationResponse(int lineCount)
+	{
+		StringBuilder sb = new StringBuilder();
+		for (int i=0; i<lineCount; i++)
+			sb.append("http://stream%d.example.com:8000/live/channel%d.mp3\r\n".formatted(i%100, i));
+		return sb.toString();
+	}
+
+	static String createPlsStationResponse(int lineCount)
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append("[playlist]\r\n");
+		for (int i=1; i<lineCount; i++)
+			switch (i%3)
+			{
+			case 1: sb.append("File%d=http://stream%d.example.com:8000/live/channel%d.mp3\r\n".formatted(i/3+1, i%100, i)); break;
+			case 2: sb.append("Title%d=Channel %d\r\n".formatted(i/3+1, i)); break;
+			case 0: sb.append("Length%d=-1\r\n".formatted(i/3)); break;
+			}
+		return sb.toString();
+	}
+
+	static String createJsonStationResponse(int entryCount)
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append("[\n");
+		for (int i=0; i<entryCount; i++)
+			sb.append("{\"name\":\"Channel %d\",\"url\":\"http://stream%d.example.com:8000/live/channel%d.m3u\",\"url_resolved\":\"http://stream%d.example.com:8000/live/channel%d.mp3\",\"tags\":[\"pop\",\"rock\"],\"bitrate\":128}%s\n".formatted(i, i%100, i, i%100, i, i+1<entryCount ? "," : ""));
+		sb.append("]\n");
+		return sb.toString();
+	}
+
+	static String createXspfStationResponse(int entryCount)
+	{
+		StringBuilder sb = new StringBuilder();
+		sb.append("<?xml version=\"1.0\" encoding=\"UTF-8\"?>\n<playlist version=\"1\" xmlns=\"http://xspf.org/ns/0/\">\n<trackList>\n");
+		for (int i=0; i<entryCount; i++)
+			sb.append("<track><title>Channel %d</title><location>http://stream%d.example.com:8000/live/channel%d.mp3</location></track>\n".formatted(i, i%100, i));
+		sb.append("</trackList>\n</playlist>\n");
+		return sb.toString();
+	}
+
+	static KnownStations createKnownStations(int stationCount)
+	{
+		KnownStations knownStations = new KnownStations();
+		List<Station> stations = new ArrayList<>();
+		for (int i=0; i<stationCount; i++)
+		{
+			Station station = new Station();
+			stations.add(station);
+			station.url  = "http://www.example%d.com/listen/station%d.%s".formatted(i%100, i, i%2==0 ? "m3u" : "pls");
+			station.name = "Station %d".formatted(i);
+			station.type = i%2==0 ? SourceType.plain : SourceType.pls;
+			if (i%10==0)
+				knownStations.addIgnoreRule(new IgnoreRules.Rule(IgnoreRules.Type.url, "http://stream%d.example.com:8000/live/ignored%d.mp3".formatted(i%100, i)));
+		}
+		knownStations.stationStore.addAll(stations);
+		return knownStations;
+	}
+
+	/**
+	 * Writes a dump of an external station directory. The URLs of the first 1000 records are the same as in {@link #createKnownStations(int)}.
+	 */
+	static void createStationDirectory(File file, StationImporter.Format format, int recordCount) throws IOException
+	{
+		try (PrintWriter output = new PrintWriter(file, StandardCharsets.UTF_8))
+		{
+			if (format==StationImporter.Format.csv)
+				output.println("stationuuid,name,url,codec,tags");
+			else
+				output.println("[");
+			for (int i=0; i<recordCount; i++)
+			{
+				String url = "http://www.example%d.com/listen/station%d.%s".formatted(i%100, i, i%2==0 ? "m3u" : "pls");
+				if (format==StationImporter.Format.csv)
+					output.printf("%08x-uuid,\"Station %d, Genre %d\",%s,MP3,\"pop,rock\"%n", i, i, i%20, url);
+				else
+					output.printf("  {\"stationuuid\":\"%08x-uuid\",\"name\":\"Station %d, Genre %d\",\"url\":\"%s\",\"bitrate\":128,\"tags\":[\"pop\",\"rock\"]}%s%n", i, i, i%20, url, i+1<recordCount ? "," : "");
+			}
+			if (format==StationImporter.Format.json)
+				output.println("]");
+		}
+	}
+
+	/**
+	 * @param entryCount  number of output files and host settings (half of each)
+	 */
+	static void createBaseConfigFile(File file, int entryCount) throws IOException
+	{
+		FormatEnum[] formats = FormatEnum.values();
+		try (PrintWriter output = new PrintWriter(file, StandardCharsets.UTF_8))
+		{
+			for (int i=0; i<entryCount; i++)
+			{
+				FormatEnum fe = formats[i/2%formats.length];
+				if (i%2==0) output.printf("outputFile.%s=/home/user/radio/output%d.%s%n", fe, i, fe.create.get().fileTypeExt);
+				else        output.printf("host.stream%d.example.com.%s=%d%n", i/2, i%4==1 ? "retries" : "readTimeout", i%4==1 ? 3 : 20000);
+			}
+			output.println("texteditor=/usr/bin/editor");
+			output.println("filemanager=/usr/bin/filemanager");
+			output.println("fetch.parallelism=8");
+			output.println("fetch.maxPerHost=2");
+			output.println("http.connectTimeout=10000");
+			output.println("http.readTimeout=30000");
+		}
+	}
+
+	private static void run(String name, String unit, int[] sizes, IntFunction<Supplier<Object>> createOperation)
+	{
+		if (nameFilter!=null && !name.contains(nameFilter))
+			return;
+
+		console.printf("%s%n", name);
+		console.printf("    %10s %15s %12s%n", unit, "ns/op", "ns/unit");
+		for (int size : sizes)
+		{
+			double ns_per_op = measure(createOperation.apply(size));
+			console.printf("    %10d %15.0f %12.2f%n", size, ns_per_op, ns_per_op/size);
+			results.add(new Result(name, unit, size, ns_per_op));
+		}
+	}
+
+	/**
+	 * @return median of the measured times per operation in ns
+	 */
+	private static double measure(Supplier<Object> operation)
+	{
+		long start = System.nanoTime();
+		while (System.nanoTime()-start < WARMUP_TIME_NS)
+			consume(operation.get());
+
+		double[] results = new double[MEASUREMENTS];
+		for (int i=0; i<MEASUREMENTS; i++)
+		{
+			int ops = 0;
+			start = System.nanoTime();
+			long elapsed;
+			do
+			{
+				consume(operation.get());
+				ops++;
+				elapsed = System.nanoTime()-start;
+			}
+			while (elapsed < MEASUREMENT_TIME_NS);
+			results[i] = elapsed / (double) ops;
+		}
+
+		Arrays.sort(results);
+		return results[MEASUREMENTS/2];
+	}
+
+	private static void consume(Object obj)
+	{
+		if (obj instanceof CharSequence str) blackhole += str.length();
+		else if (obj!=null) blackhole += System.identityHashCode(obj);
+	}
+
+	private static void writeReport(File file) throws IOException
+	{
+		try (PrintWriter output = new PrintWriter(file, StandardCharsets.UTF_8))
+		{
+			output.println("{");
+			output.printf("  \"java.version\": \"%s\",%n", toJsonString(System.getProperty("java.version")));
+			output.printf("  \"os.name\": \"%s\",%n"     , toJsonString(System.getProperty("os.name")));
+			output.printf("  \"os.arch\": \"%s\",%n"     , toJsonString(System.getProperty("os.arch")));
+			output.printf("  \"processors\": %d,%n"      , Runtime.getRuntime().availableProcessors());
+			output.println("  \"results\": [");
+			for (int i=0; i<results.size(); i++)
+			{
+				Result result = results.get(i);
+				output.printf(Locale.ROOT, "    { \"name\": \"%s\", \"unit\": \"%s\", \"size\": %d, \"ns_per_op\": %.0f, \"ns_per_unit\": %.2f }%s%n",
+						toJsonString(result.name), toJsonString(result.unit), result.size, result.ns_per_op, result.ns_per_op/result.size,
+						i+1<results.size() ? "," : "");
+			}
+			output.println("  ]");
+			output.println("}");
+		}
+	}
+
+	private static String toJsonString(String str)
+	{
+		return str.replace("\\", "\\\\").replace("\"", "\\\"");
+	}
+}
@@ -0,0 +1,170 @@
+package net.schwarzbaer.java.tools.livestreamlistconverter;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * A local stand-in for stream servers, listening on the loopback interface, to check the {@link StreamProber}.
+ * <p>
+ * The answer depends on the path of the request:
+ * <ul>
+ * <li>{@code /icy}: "ICY 200 OK" with {@code icy-name}, {@code icy-genre} and {@code icy-br} (SHOUTcast), followed by stream data</li>
+ * <li>{@code /http}: "HTTP/1.1 200 OK" with a repeated {@code icy-br} (Icecast)</li>
+ * <li>{@code /redirect}: "302 Found" to {@code /icy}</li>
+ * <li>{@code /notfound}: "404 Not Found"</li>
+ * <li>{@code /trickle}: an endless header, one byte per {@link #TRICKLE_INTERVAL_MS}</li>
+ * <li>{@code /silent}: no answer, the connection is kept open</li>
+ * </ul>
+ * A TLS connection (see {@link #getHttpsURL(String)}) gets the beginning of a handshake record, one byte per {@link #TRICKLE_INTERVAL_MS},
+ * like a TLS peer, that never finishes the handshake.
+ */
+class StandInStreamServer implements AutoCloseable
+{
+	static final long TRICKLE_INTERVAL_MS = 50;
+	static final String ICY_NAME  = "Stand-In Radio";
+	static final String ICY_GENRE = "Jazz";
+	static final int    ICY_BITRATE = 128;
+
+	private static final int TLS_HANDSHAKE_RECORD = 0x16;
+
+	private final ServerSocket serverSocket;
+	private final ExecutorService executor;
+
+	StandInStreamServer() throws IOException
+	{
+		serverSocket = new ServerSocket();
+		serverSocket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+		executor = Executors.newCachedThreadPool(new DaemonThreadFactory("StandInStreamServer"));
+		executor.execute(this::acceptConnections);
+	}
+
+	String getURL(String path)
+	{
+		return "http://127.0.0.1:%d%s".formatted(serverSocket.getLocalPort(), path);
+	}
+
+	String getHttpsURL(String path)
+	{
+		return "https://127.0.0.1:%d%s".formatted(serverSocket.getLocalPort(), path);
+	}
+
+	/**
+	 * @return an URL of a local port, that was free a moment ago, so a connect is refused
+	 */
+	static String getDeadPortURL() throws IOException
+	{
+		int port;
+		try (ServerSocket socket = new ServerSocket())
+		{
+			socket.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+			port = socket.getLocalPort();
+		}
+		return "http://127.0.0.1:%d/icy".formatted(port);
+	}
+
+	@Override
+	public void close() throws IOException
+	{
+		serverSocket.close();
+		executor.shutdownNow();
+	}
+
+	private void acceptConnections()
+	{
+		while (!serverSocket.isClosed())
+			try
+			{
+				Socket socket = serverSocket.accept();
+				executor.execute(() -> serve(socket));
+			}
+			catch (IOException ex) {} // closed
+	}
+
+	private void serve(Socket socket)
+	{
+		try (socket)
+		{
+			InputStream in = new BufferedInputStream(socket.getInputStream());
+			OutputStream out = socket.getOutputStream();
+			in.mark(1);
+			if (in.read()==TLS_HANDSHAKE_RECORD)
+			{
+				// a handshake record of 16 KB, that never arrives completely
+				trickle(out, new byte[] { TLS_HANDSHAKE_RECORD, 0x03, 0x03, 0x40, 0x00 }, (byte) 0);
+				return;
+			}
+			in.reset();
+
+			String path = readRequestPath(in);
+			switch (path)
+			{
+			case "/icy":
+				write(out, "ICY 200 OK\r\nicy-name: %s\r\nicy-genre: %s\r\nicy-br: %d\r\nicy-pub: 1\r\n\r\n".formatted(ICY_NAME, ICY_GENRE, ICY_BITRATE));
+				byte[] data = new byte[4096];
+				Arrays.fill(data, (byte) 0x55);
+				out.write(data);
+				break;
+			case "/http":
+				write(out, "HTTP/1.1 200 OK\r\nContent-Type: audio/mpeg\r\nicy-br: %d,%d\r\nicy-genre: %s\r\n\r\n".formatted(ICY_BITRATE, ICY_BITRATE, ICY_GENRE));
+				break;
+			case "/redirect":
+				write(out, "HTTP/1.1 302 Found\r\nLocation: /icy\r\n\r\n");
+				break;
+			case "/trickle":
+				trickle(out, "HTTP/1.1 200 OK\r\nX-Padding: ".getBytes(StandardCharsets.ISO_8859_1), (byte) 'x');
+				break;
+			case "/silent":
+				while (in.read()>=0) {}
+				break;
+			default:
+				write(out, "HTTP/1.1 404 Not Found\r\n\r\n");
+				break;
+			}
+			out.flush();
+		}
+		catch (IOException ex) {} // the prober has closed the connection
+	}
+
+	private static String readRequestPath(InputStream in) throws IOException
+	{
+		StringBuilder head = new StringBuilder();
+		int ch;
+		while ( (ch = in.read())>=0 )
+		{
+			head.append((char) ch);
+			if (head.length()>=4 && head.substring(head.length()-4).equals("\r\n\r\n")) break;
+		}
+		// "GET /path HTTP/1.0"
+		String[] requestLine = head.toString().split("\\s+", 3);
+		return requestLine.length<2 ? "" : requestLine[1];
+	}
+
+	private static void write(OutputStream out, String str) throws IOException
+	{
+		out.write(str.getBytes(StandardCharsets.ISO_8859_1));
+	}
+
+	/**
+	 * Sends {@code start} and then {@code filler} endlessly, one byte at a time, until the connection is closed.
+	 */
+	private static void trickle(OutputStream out, byte[] start, byte filler) throws IOException
+	{
+		for (int i=0; ; i++)
+		{
+			out.write(i<start.length ? start[i] : filler);
+			out.flush();
+			try { Thread.sleep(TRICKLE_INTERVAL_MS); }
+			catch (InterruptedException ex) { return; } // server closed
+		}
+	}
+}
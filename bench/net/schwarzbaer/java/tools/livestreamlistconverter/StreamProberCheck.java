@@ -0,0 +1,98 @@
+package net.schwarzbaer.java.tools.livestreamlistconverter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Runs the {@link StreamProber} in all {@link StreamProber.Mode modes} against a {@link StandInStreamServer}
+ * and checks the results and the time budget of each probe.
+ * <p>
+ * Usage: {@code StreamProberCheck}<br>
+ * Exits with status 1, if a check fails.
+ */
+class StreamProberCheck
+{
+	private static final int PROBE_TIMEOUT_MS = 1000;
+	/** tolerance for the scheduling of the watchdog and the threads */
+	private static final int BUDGET_SLACK_MS = 250;
+
+	private record Case(String label, String url, boolean alive, int bitRate) {}
+
+	private static int failures = 0;
+
+	public static void main(String[] args) throws IOException
+	{
+		try (StandInStreamServer server = new StandInStreamServer())
+		{
+			List<Case> cases = List.of(
+					new Case("ICY server"         , server.getURL("/icy"      ), true , StandInStreamServer.ICY_BITRATE),
+					new Case("HTTP server"        , server.getURL("/http"     ), true , StandInStreamServer.ICY_BITRATE),
+					new Case("redirect"           , server.getURL("/redirect" ), true , StandInStreamServer.ICY_BITRATE),
+					new Case("not found"          , server.getURL("/notfound" ), false, 0),
+					new Case("trickling header"   , server.getURL("/trickle"  ), false, 0),
+					new Case("silent server"      , server.getURL("/silent"   ), false, 0),
+					new Case("trickling handshake", server.getHttpsURL("/icy" ), false, 0),
+					new Case("dead port"          , StandInStreamServer.getDeadPortURL(), false, 0)
+			);
+
+			for (StreamProber.Mode mode : StreamProber.Mode.values())
+				check(mode, cases);
+		}
+
+		System.out.printf("%n%s%n", failures==0 ? "All checks passed." : "%d checks failed.".formatted(failures));
+		if (failures>0) System.exit(1);
+	}
+
+	private static void check(StreamProber.Mode mode, List<Case> cases)
+	{
+		System.out.printf("%nMode \"%s\":%n", mode);
+		BaseConfig baseConfig = new BaseConfig(action -> {});
+		baseConfig.probeMode = mode;
+		baseConfig.probeTimeout_ms = PROBE_TIMEOUT_MS;
+
+		List<StreamAdress> adressList = new ArrayList<>();
+		for (Case c : cases)
+			adressList.add(new StreamAdress(c.label, c.url));
+		List<StreamAdress> adresses = List.copyOf(adressList);
+
+		StreamProber prober = baseConfig.createStreamProber();
+		if (mode==StreamProber.Mode.off)
+		{
+			expect(prober==null, "no prober is created");
+			return;
+		}
+
+		List<StreamProber.Result> results = new ArrayList<>();
+		long start_ns = System.nanoTime();
+		boolean finished = prober.probeAll(adressList, new ProgressReporter.ConsoleReporter(), (adress, result) -> results.add(result));
+		long duration_ms = (System.nanoTime()-start_ns) / 1_000_000L;
+
+		expect(finished, "probing is finished");
+		expect(results.size()==cases.size(), "every adress gets a result");
+		// the probes run concurrently, so all of them together take about one budget
+		expect(duration_ms <= PROBE_TIMEOUT_MS+BUDGET_SLACK_MS, "all probes take %d ms".formatted(duration_ms));
+
+		for (int i=0; i<cases.size() && i<results.size(); i++)
+		{
+			Case c = cases.get(i);
+			StreamAdress adress = adresses.get(i);
+			StreamProber.Result result = results.get(i);
+			String prefix = "%-19s:".formatted(c.label);
+			expect(result.alive()==c.alive, "%s alive=%s".formatted(prefix, result.alive()));
+			expect(result.duration_ms() <= PROBE_TIMEOUT_MS+BUDGET_SLACK_MS, "%s finished in %d ms".formatted(prefix, result.duration_ms()));
+			expect(adress.bitRate==c.bitRate, "%s bit rate %d".formatted(prefix, adress.bitRate));
+			if (c.alive)
+				expect(adress.genre.equals(StandInStreamServer.ICY_GENRE), "%s genre \"%s\"".formatted(prefix, adress.genre));
+			else if (mode==StreamProber.Mode.flag)
+				expect(adress.name.startsWith(StreamProber.OFFLINE_MARK), "%s flagged as \"%s\"".formatted(prefix, adress.name));
+			expect(adressList.contains(adress)==(c.alive || mode!=StreamProber.Mode.drop), "%s %s".formatted(prefix, adressList.contains(adress) ? "kept" : "dropped"));
+		}
+	}
+
+	private static void expect(boolean condition, String description)
+	{
+		System.out.printf("    [%s] %s%n", condition ? " ok " : "FAIL", description);
+		if (!condition) failures++;
+	}
+}
@@ -0,0 +1,142 @@
+package net.schwarzbaer.java.tools.livestreamlistconverter;
+
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Filters stream adresses, whose URL was already found (at the same or at another station).
+ * <p>
+ * URLs are compared in a canonical form: scheme and host in lower case, without default port,
+ * trailing slashes and fragment, and optionally without query.
+ * The first found adress is kept with its original URL, its name is merged with the names of the duplicates according to a {@link NameMergePolicy}.
+ * Each adress needs one lookup in a hash map, so the time is linear in the number of adresses.
+ */
+class AdressDeduplicator
+{
+	enum NameMergePolicy
+	{
+		/** keep the name of the first adress */
+		first,
+		/** use the name of the last found duplicate */
+		last,
+		/** join all different names with " / " */
+		join,
+		;
+		static NameMergePolicy parse(String str)
+		{
+			try { return valueOf(str.trim().toLowerCase()); }
+			catch (IllegalArgumentException ex) { return null; }
+		}
+	}
+
+	private static final String NAME_SEPARATOR = " / ";
+
+	private final boolean stripQuery;
+	private final NameMergePolicy nameMergePolicy;
+	private final Map<String, StreamAdress> adresses;
+
+	AdressDeduplicator(boolean stripQuery, NameMergePolicy nameMergePolicy)
+	{
+		this.stripQuery = stripQuery;
+		this.nameMergePolicy = nameMergePolicy==null ? NameMergePolicy.first : nameMergePolicy;
+		adresses = new HashMap<>();
+	}
+
+	/**
+	 * @return {@code true}, if the names of duplicates change the name of the first adress
+	 */
+	boolean mergesNames()
+	{
+		return nameMergePolicy!=NameMergePolicy.first;
+	}
+
+	/**
+	 * @return {@code true}, if {@code adress} is new and has to be added to the adress list,
+	 *         {@code false}, if it's a duplicate. Its name is merged into the first adress then.
+	 */
+	boolean add(StreamAdress adress)
+	{
+		if (adress.url==null) return true;
+		StreamAdress firstAdress = adresses.putIfAbsent(canonicalize(adress.url, stripQuery), adress);
+		if (firstAdress==null) return true;
+
+		switch (nameMergePolicy)
+		{
+		case first: break;
+		case last : firstAdress.name = adress.name; break;
+		case join :
+			if (adress.name!=null && !containsName(firstAdress.name, adress.name))
+				firstAdress.name = firstAdress.name==null ? adress.name : firstAdress.name + NAME_SEPARATOR + adress.name;
+			break;
+		}
+		return false;
+	}
+
+	private static boolean containsName(String joinedNames, String name)
+	{
+		if (joinedNames==null) return false;
+		for (String str : joinedNames.split(NAME_SEPARATOR, -1))
+			if (str.equals(name))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Doesn't validate the URL. Strings without "://" are only trimmed.
+	 */
+	static String canonicalize(String url, boolean stripQuery)
+	{
+		url = url.trim();
+		int schemeEnd = url.indexOf("://");
+		if (schemeEnd<=0) return url;
+
+		String scheme = url.substring(0, schemeEnd).toLowerCase(Locale.ROOT);
+		int authorityStart = schemeEnd+3;
+		int authorityEnd = indexOfAny(url, "/?#", authorityStart);
+		String authority = url.substring(authorityStart, authorityEnd);
+
+		int fragmentPos = url.indexOf('#', authorityEnd);
+		String rest = fragmentPos<0 ? url.substring(authorityEnd) : url.substring(authorityEnd, fragmentPos);
+		int queryPos = rest.indexOf('?');
+		String path  = queryPos<0 ? rest : rest.substring(0, queryPos);
+		String query = queryPos<0 || stripQuery ? "" : rest.substring(queryPos);
+
+		int userInfoEnd = authority.lastIndexOf('@');
+		String userInfo = userInfoEnd<0 ? "" : authority.substring(0, userInfoEnd+1);
+		String hostPort = authority.substring(userInfoEnd+1);
+		int portPos = hostPort.lastIndexOf(':');
+		if (portPos>=0 && hostPort.indexOf(']', portPos)>=0) portPos = -1; // colon of an IPv6 adress
+		String host = portPos<0 ? hostPort : hostPort.substring(0, portPos);
+		String port = portPos<0 ? "" : hostPort.substring(portPos+1);
+		if (port.equals(getDefaultPort(scheme))) port = "";
+
+		int pathEnd = path.length();
+		while (pathEnd>0 && path.charAt(pathEnd-1)=='/') pathEnd--;
+
+		StringBuilder sb = new StringBuilder(url.length());
+		sb.append(scheme).append("://").append(userInfo).append(host.toLowerCase(Locale.ROOT));
+		if (!port.isEmpty()) sb.append(':').append(port);
+		sb.append(path, 0, pathEnd);
+		sb.append(query);
+		return sb.toString();
+	}
+
+	private static String getDefaultPort(String scheme)
+	{
+		return switch (scheme)
+				{
+				case "http"  -> "80";
+				case "https" -> "443";
+				default -> null;
+				};
+	}
+
+	private static int indexOfAny(String str, String chars, int fromIndex)
+	{
+		for (int i=fromIndex; i<str.length(); i++)
+			if (chars.indexOf(str.charAt(i))>=0)
+				return i;
+		return str.length();
+	}
+}
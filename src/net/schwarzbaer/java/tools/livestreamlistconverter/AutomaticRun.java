@@ -0,0 +1,75 @@
+package net.schwarzbaer.java.tools.livestreamlistconverter;
+
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+import java.util.function.BiConsumer;
+
+import net.schwarzbaer.java.tools.livestreamlistconverter.OutputFormat.FormatEnum;
+
+/**
+ * Headless version of the "-automatic" mode:
+ * Reads the config files, determines all stream URLs and writes all output files without building any GUI.
+ * Progress is written to the console.
+ * <p>
+ * The output files are written by {@link StreamURLDeterminer#determineAndWrite}.
+ */
+class AutomaticRun implements BaseConfig.ExternalIF, Outputter.ExternalIF
+{
+	private final Vector<StreamAdress> adressList;
+	private final Map<FormatEnum, Outputter> outputerMap;
+	private final BaseConfig baseConfig;
+	private final KnownStations knownStations;
+
+	AutomaticRun(boolean offline)
+	{
+		adressList = new Vector<>();
+		knownStations = new KnownStations();
+
+		outputerMap = new EnumMap<>(FormatEnum.class);
+		baseConfig = new BaseConfig(this);
+		baseConfig.forceOffline = offline;
+		for (FormatEnum fe : FormatEnum.values())
+			outputerMap.put(fe, new Outputter(baseConfig, fe.create.get(), this));
+	}
+
+	void run()
+	{
+		System.setProperty("java.awt.headless", "true");
+
+		baseConfig.readFromFile();
+		knownStations.readFromFile();
+
+		ProgressReporter pr = new ProgressReporter.ConsoleReporter();
+		HttpFetcher httpFetcher = new HttpFetcher();
+		httpFetcher.setResponseCache(baseConfig.createResponseCache());
+		StreamURLDeterminer determiner = new StreamURLDeterminer(knownStations, baseConfig, httpFetcher, false);
+		RunReport runReport = new RunReport();
+		Map<Outputter, Outputter.WriteReport> outputs = determiner.determineAndWrite(adressList, List.copyOf(outputerMap.values()), pr, null, runReport);
+		if (outputs!=null)
+			runReport.addOutputs(outputs);
+
+		runReport.writeToFiles(baseConfig.getRunReportJsonFile(), baseConfig.getRunReportPrometheusFile());
+	}
+
+	@Override
+	public Vector<StreamAdress> getAdressList()
+	{
+		return adressList;
+	}
+
+	@Override
+	public void enableGUI(boolean enable) {}
+
+	@Override
+	public void forEachFormat(BiConsumer<FormatEnum, Outputter> action)
+	{
+		for (FormatEnum fe : FormatEnum.values())
+		{
+			Outputter outputter = outputerMap.get(fe);
+			if (outputter!=null)
+				action.accept(fe, outputter);
+		}
+	}
+}
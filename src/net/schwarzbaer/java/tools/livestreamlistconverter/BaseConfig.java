@@ -8,6 +8,9 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
 import java.util.function.BiConsumer;
 
 import net.schwarzbaer.java.tools.livestreamlistconverter.OutputFormat.FormatEnum;
@@ -21,6 +24,31 @@ class BaseConfig
 	
 	String texteditorPath = null;
 	String filemanagerPath = null;
+	Integer fetchParallelism = null;
+	Integer fetchMaxPerHost = null;
+	String runReportJsonPath = null;
+	String runReportPrometheusPath = null;
+	Integer fetchRetryBackoff_ms = null;
+	Integer fetchBreakerThreshold = null;
+	Boolean dedupEnabled = null;
+	Boolean dedupStripQuery = null;
+	AdressDeduplicator.NameMergePolicy dedupNameMergePolicy = null;
+	StreamProber.Mode probeMode = null;
+	Integer probeTimeout_ms = null;
+	Integer probeMaxHeaderBytes = null;
+	Integer probeParallelism = null;
+	Boolean probeUseIcyName = null;
+	Boolean cacheEnabled = null;
+	String cachePath = null;
+	Integer cacheMaxAge_s = null;
+	Boolean cacheOffline = null;
+	Integer responsesMemoryBudget_MB = null;
+	/** offline mode given as command line argument, isn't stored */
+	boolean forceOffline = false;
+	/** general fetch policy, stored as "http.&lt;key&gt;=" */
+	final FetchPolicy fetchPolicy = new FetchPolicy();
+	/** fetch policies of single hosts, stored as "host.&lt;hostname&gt;.&lt;key&gt;=" */
+	final Map<String, FetchPolicy> hostFetchPolicies = new TreeMap<>();
 	private final ExternalIF externalIF;
 	
 	BaseConfig(ExternalIF externalIF)
@@ -29,25 +57,20 @@ class BaseConfig
 	}
 
 	void readFromFile() {
-		try (BufferedReader input = new BufferedReader( new InputStreamReader(new FileInputStream(LiveStreamListConverter.FILENAME_BASECONFIG), StandardCharsets.UTF_8)))
+		readFromFile(new File(LiveStreamListConverter.FILENAME_BASECONFIG));
+	}
+
+	void readFromFile(File file) {
+		// keys of the output files are built once, not for each line
+		Map<String, Outputter> outputFileKeys = new HashMap<>();
+		externalIF.forEachFormat((fe, outputter) -> outputFileKeys.put("outputFile.%s".formatted(fe), outputter));
+		ConfigReader reader = new ConfigReader("BaseConfig");
+		try (BufferedReader input = new BufferedReader( new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)))
 		{
-			String line, valueStr;
-			while( (line=input.readLine())!=null ) {
-				String line_ = line;
-				externalIF.forEachFormat((fe, outputter) -> {
-					String pathStr, prefix = "outputFile.%s=".formatted(fe);
-					if ( (pathStr = LiveStreamListConverter.parseValue( line_, prefix ))!=null )
-					{
-						File outputFile = new File(pathStr);
-						System.out.printf("Found path to %s file in config: \"%s\"%n", outputter.outputFormat.fileLabel, outputFile.getAbsolutePath());
-						outputter.addOutputFile( outputFile );
-					}
-				});
-				//if ( (valueStr = LiveStreamListConverter.parseValue(line,"ets2listFile="))!=null ) { ets2listFile    = new File(valueStr); System.out.println("Found predefined ets2list file in config: \""+ets2listFile.getPath()+"\""); ets2listFileNameTextField.setText(ets2listFile.getPath()); ets2listFileChooser.setSelectedFile(ets2listFile); }
-				//if ( (valueStr = LiveStreamListConverter.parseValue(line,"playlistFile="))!=null ) { playlistFile    = new File(valueStr); System.out.println("Found predefined playlist file in config: \""+playlistFile.getPath()+"\""); playlistFileNameTextField.setText(playlistFile.getPath()); playlistFileChooser.setSelectedFile(playlistFile); }
-				if ( (valueStr = LiveStreamListConverter.parseValue(line,"texteditor="  ))!=null ) { texteditorPath  = valueStr; System.out.println("Found path to text editor in config: \""+texteditorPath +"\""); }
-				if ( (valueStr = LiveStreamListConverter.parseValue(line,"filemanager=" ))!=null ) { filemanagerPath = valueStr; System.out.println("Found path to filemanager in config: \""+filemanagerPath+"\""); }
-			}
+			reader.read(input, new ConfigReader.Handler() {
+				@Override public boolean section(String name) { return false; }
+				@Override public boolean value(String key, String value) { return parseValue(reader, outputFileKeys, key, value); }
+			});
 		}
 		catch (FileNotFoundException ex) {}
 		catch (IOException ex) {
@@ -56,6 +79,128 @@ class BaseConfig
 		}
 	}
 
+	private boolean parseValue(ConfigReader reader, Map<String, Outputter> outputFileKeys, String key, String value)
+	{
+		switch (key)
+		{
+		case "texteditor" : texteditorPath  = value; System.out.println("Found path to text editor in config: \""+texteditorPath +"\""); return true;
+		case "filemanager": filemanagerPath = value; System.out.println("Found path to filemanager in config: \""+filemanagerPath+"\""); return true;
+		case "fetch.parallelism"     : fetchParallelism      = reader.parseInt(key, value); return true;
+		case "fetch.maxPerHost"      : fetchMaxPerHost       = reader.parseInt(key, value); return true;
+		case "fetch.retryBackoff"    : fetchRetryBackoff_ms  = reader.parseInt(key, value); return true;
+		case "fetch.breakerThreshold": fetchBreakerThreshold = reader.parseInt(key, value); return true;
+		case "report.json"      : runReportJsonPath       = value; return true;
+		case "report.prometheus": runReportPrometheusPath = value; return true;
+		case "dedup"           : dedupEnabled    = reader.parseBoolean(key, value); return true;
+		case "dedup.stripQuery": dedupStripQuery = reader.parseBoolean(key, value); return true;
+		case "dedup.names":
+			dedupNameMergePolicy = AdressDeduplicator.NameMergePolicy.parse(value);
+			if (dedupNameMergePolicy==null) reader.reportInvalidValue(key, value);
+			return true;
+		case "probe":
+			probeMode = StreamProber.Mode.parse(value);
+			if (probeMode==null) reader.reportInvalidValue(key, value);
+			return true;
+		case "probe.timeout"       : probeTimeout_ms     = reader.parseInt    (key, value); return true;
+		case "probe.maxHeaderBytes": probeMaxHeaderBytes = reader.parseInt    (key, value); return true;
+		case "probe.parallelism"   : probeParallelism    = reader.parseInt    (key, value); return true;
+		case "probe.icyName"       : probeUseIcyName     = reader.parseBoolean(key, value); return true;
+		case "cache"        : cacheEnabled  = reader.parseBoolean(key, value); return true;
+		case "cache.dir"    : cachePath     = value; return true;
+		case "cache.maxAge" : cacheMaxAge_s = reader.parseInt    (key, value); return true;
+		case "cache.offline": cacheOffline  = reader.parseBoolean(key, value); return true;
+		case "responses.memoryBudget": responsesMemoryBudget_MB = reader.parseInt(key, value); return true;
+		}
+
+		Outputter outputter = outputFileKeys.get(key);
+		if (outputter!=null)
+		{
+			File outputFile = new File(value);
+			System.out.printf("Found path to %s file in config: \"%s\"%n", outputter.outputFormat.fileLabel, outputFile.getAbsolutePath());
+			outputter.addOutputFile( outputFile );
+			return true;
+		}
+		if (key.startsWith("http.")) return fetchPolicy.parseValue(key, key.substring("http.".length()), value, reader);
+		if (key.startsWith("host.")) return parseHostFetchPolicy(reader, key, value);
+		return false;
+	}
+
+	int getFetchParallelism() { return fetchParallelism==null ? StationFetcher.DEFAULT_PARALLELISM  : fetchParallelism; }
+	int getFetchMaxPerHost () { return fetchMaxPerHost ==null ? StationFetcher.DEFAULT_MAX_PER_HOST : fetchMaxPerHost ; }
+	int getFetchRetryBackoff_ms () { return fetchRetryBackoff_ms ==null ? StationFetcher.DEFAULT_RETRY_BACKOFF_MS   : fetchRetryBackoff_ms ; }
+	int getFetchBreakerThreshold() { return fetchBreakerThreshold==null ? StationFetcher.DEFAULT_BREAKER_THRESHOLD : fetchBreakerThreshold; }
+
+	/**
+	 * @return a new deduplicator for one run or {@code null}, if deduplication is switched off
+	 */
+	AdressDeduplicator createAdressDeduplicator()
+	{
+		if (dedupEnabled!=null && !dedupEnabled) return null;
+		return new AdressDeduplicator(dedupStripQuery!=null && dedupStripQuery, dedupNameMergePolicy);
+	}
+
+	/**
+	 * @return a new prober for one run or {@code null}, if probing is switched off (default)
+	 */
+	StreamProber createStreamProber()
+	{
+		if (probeMode==null || probeMode==StreamProber.Mode.off) return null;
+		return new StreamProber(probeMode,
+				probeTimeout_ms    ==null ? StreamProber.DEFAULT_TIMEOUT_MS       : probeTimeout_ms,
+				probeMaxHeaderBytes==null ? StreamProber.DEFAULT_MAX_HEADER_BYTES : probeMaxHeaderBytes,
+				probeParallelism   ==null ? StreamProber.DEFAULT_PARALLELISM      : probeParallelism,
+				probeUseIcyName==null || probeUseIcyName);
+	}
+
+	boolean isOffline()
+	{
+		return forceOffline || (cacheOffline!=null && cacheOffline);
+	}
+
+	/**
+	 * @return the response cache for one run or {@code null}, if caching is switched off and the offline mode isn't active
+	 */
+	ResponseCache createResponseCache()
+	{
+		boolean offline = isOffline();
+		if (!offline && cacheEnabled!=null && !cacheEnabled) return null;
+		File folder = new File(cachePath==null ? ResponseCache.DEFAULT_FOLDER : cachePath);
+		long maxAge_ms = cacheMaxAge_s==null ? 0 : cacheMaxAge_s*1000L;
+		return new ResponseCache(folder, maxAge_ms, offline);
+	}
+
+	/**
+	 * @return bytes, that the kept station responses may use in memory
+	 */
+	long getResponsesMemoryBudget()
+	{
+		return responsesMemoryBudget_MB==null ? ResponseStore.DEFAULT_MEMORY_BUDGET : responsesMemoryBudget_MB*1024L*1024L;
+	}
+
+	File getRunReportJsonFile      () { return new File(runReportJsonPath      ==null ? LiveStreamListConverter.FILENAME_RUNREPORT_JSON       : runReportJsonPath      ); }
+	File getRunReportPrometheusFile() { return new File(runReportPrometheusPath==null ? LiveStreamListConverter.FILENAME_RUNREPORT_PROMETHEUS : runReportPrometheusPath); }
+
+	/**
+	 * @return the fetch policy of {@code station}, completed by the policy of its host, the general policy and the defaults
+	 */
+	FetchPolicy.Resolved getFetchPolicy(Station station)
+	{
+		FetchPolicy hostPolicy = hostFetchPolicies.get(StationFetcher.getHost(station.url));
+		return FetchPolicy.resolve(station.fetchPolicy, hostPolicy, fetchPolicy);
+	}
+
+	/**
+	 * @param key  "host.&lt;hostname&gt;.&lt;name&gt;"
+	 */
+	private boolean parseHostFetchPolicy(ConfigReader reader, String key, String value)
+	{
+		int dotPos = key.lastIndexOf('.');
+		if (dotPos <= "host.".length()) return false;
+		String host = key.substring("host.".length(), dotPos);
+		FetchPolicy policy = hostFetchPolicies.computeIfAbsent(host.toLowerCase(), h -> new FetchPolicy());
+		return policy.parseValue(key, key.substring(dotPos+1), value, reader);
+	}
+
 	void writeToFile()
 	{
 		try (PrintWriter output = new PrintWriter(LiveStreamListConverter.FILENAME_BASECONFIG, StandardCharsets.UTF_8))
@@ -69,6 +214,27 @@ class BaseConfig
 			//if (playlistFile   !=null) output.println("playlistFile="+playlistFile.getPath());
 			if (texteditorPath !=null) output.println("texteditor="  +texteditorPath );
 			if (filemanagerPath!=null) output.println("filemanager=" +filemanagerPath);
+			if (fetchParallelism!=null) output.println("fetch.parallelism="+fetchParallelism);
+			if (fetchMaxPerHost !=null) output.println("fetch.maxPerHost=" +fetchMaxPerHost );
+			if (runReportJsonPath      !=null) output.println("report.json="      +runReportJsonPath      );
+			if (runReportPrometheusPath!=null) output.println("report.prometheus="+runReportPrometheusPath);
+			if (fetchRetryBackoff_ms !=null) output.println("fetch.retryBackoff="    +fetchRetryBackoff_ms );
+			if (fetchBreakerThreshold!=null) output.println("fetch.breakerThreshold="+fetchBreakerThreshold);
+			if (dedupEnabled        !=null) output.println("dedup="           +dedupEnabled        );
+			if (dedupStripQuery     !=null) output.println("dedup.stripQuery="+dedupStripQuery     );
+			if (dedupNameMergePolicy!=null) output.println("dedup.names="     +dedupNameMergePolicy);
+			if (probeMode          !=null) output.println("probe="               +probeMode          );
+			if (probeTimeout_ms    !=null) output.println("probe.timeout="       +probeTimeout_ms    );
+			if (probeMaxHeaderBytes!=null) output.println("probe.maxHeaderBytes="+probeMaxHeaderBytes);
+			if (probeParallelism   !=null) output.println("probe.parallelism="   +probeParallelism   );
+			if (probeUseIcyName    !=null) output.println("probe.icyName="       +probeUseIcyName    );
+			if (cacheEnabled !=null) output.println("cache="        +cacheEnabled );
+			if (cachePath    !=null) output.println("cache.dir="    +cachePath    );
+			if (cacheMaxAge_s!=null) output.println("cache.maxAge=" +cacheMaxAge_s);
+			if (cacheOffline !=null) output.println("cache.offline="+cacheOffline );
+			if (responsesMemoryBudget_MB!=null) output.println("responses.memoryBudget="+responsesMemoryBudget_MB);
+			fetchPolicy.writeToFile(output, "http.");
+			hostFetchPolicies.forEach((host, policy) -> policy.writeToFile(output, "host.%s.".formatted(host)));
 		}
 		catch (FileNotFoundException ex) {
 			System.err.printf("FileNotFoundException while writing BaseConfig: %s%n", ex.getMessage());
@@ -0,0 +1,164 @@
+package net.schwarzbaer.java.tools.livestreamlistconverter;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+import net.schwarzbaer.java.lib.gui.ProgressDialog;
+
+/**
+ * Collects log entries and progress values from any thread and hands them over to the GUI at most every {@value #FLUSH_INTERVAL_MS} ms.
+ * <p>
+ * There is never more than one pending update in the event queue, regardless of how many entries or progress values are published.
+ * Entries are appended to the log view in one piece, only the last progress value is shown.
+ * Pending entries are limited to the capacity of the log view, older ones would be discarded by the view anyway.
+ */
+class BatchingPublisher implements ProgressReporter
+{
+	static final int FLUSH_INTERVAL_MS = 50;
+
+	private final ProgressDialog pd;
+	private final LogView logView;
+
+	private final ArrayDeque<LogView.Entry> pendingLog;
+	private boolean clearLog;
+	private boolean scrollLogToEnd;
+	private String taskTitle;
+	private Integer value;
+	private Integer maximum;
+	private boolean flushScheduled;
+	private long lastFlush_ns;
+
+	/**
+	 * @param pd             target of the progress values (can be {@code null})
+	 * @param logView  target of the log entries (can be {@code null})
+	 */
+	BatchingPublisher(ProgressDialog pd, LogView logView)
+	{
+		this.pd = pd;
+		this.logView = logView;
+
+		pendingLog = new ArrayDeque<>();
+		clearLog = false;
+		scrollLogToEnd = false;
+		taskTitle = null;
+		value = null;
+		maximum = null;
+		flushScheduled = false;
+		lastFlush_ns = System.nanoTime() - FLUSH_INTERVAL_MS*1_000_000L;
+	}
+
+	synchronized void appendLog(LogView.Entry entry)
+	{
+		if (logView==null) return;
+		pendingLog.addLast(entry);
+		if (pendingLog.size()>logView.capacity) pendingLog.removeFirst();
+		scheduleFlush();
+	}
+
+	/**
+	 * Removes all log entries, including the not yet flushed parts.
+	 */
+	synchronized void clearLog()
+	{
+		if (logView==null) return;
+		pendingLog.clear();
+		clearLog = true;
+		scheduleFlush();
+	}
+
+	synchronized void scrollLogToEnd()
+	{
+		if (logView==null) return;
+		scrollLogToEnd = true;
+		scheduleFlush();
+	}
+
+	@Override
+	public synchronized void setTaskTitle(String taskTitle)
+	{
+		if (pd==null) return;
+		this.taskTitle = taskTitle;
+		// values of the former task are obsolete
+		value = null;
+		maximum = null;
+		scheduleFlush();
+	}
+
+	@Override
+	public synchronized void setValue(int value, int maximum)
+	{
+		if (pd==null) return;
+		this.value = value;
+		this.maximum = maximum;
+		scheduleFlush();
+	}
+
+	@Override
+	public synchronized void setValue(int value)
+	{
+		if (pd==null) return;
+		this.value = value;
+		scheduleFlush();
+	}
+
+	@Override
+	public boolean wasCanceled()
+	{
+		return pd!=null && pd.wasCanceled();
+	}
+
+	private void scheduleFlush()
+	{
+		if (flushScheduled) return;
+		flushScheduled = true;
+
+		long delay_ms = FLUSH_INTERVAL_MS - (System.nanoTime()-lastFlush_ns)/1_000_000L;
+		if (delay_ms<=0)
+			SwingUtilities.invokeLater(this::flush);
+		else
+		{
+			Timer timer = new Timer((int) delay_ms, e -> flush());
+			timer.setRepeats(false);
+			timer.start();
+		}
+	}
+
+	private void flush()
+	{
+		LogView.Entry[] log;
+		boolean clearLog, scrollLogToEnd;
+		String taskTitle;
+		Integer value, maximum;
+		synchronized (this)
+		{
+			log = pendingLog.isEmpty() ? null : pendingLog.toArray(LogView.Entry[]::new);
+			clearLog       = this.clearLog;
+			scrollLogToEnd = this.scrollLogToEnd;
+			taskTitle      = this.taskTitle;
+			value          = this.value;
+			maximum        = this.maximum;
+
+			pendingLog.clear();
+			this.clearLog       = false;
+			this.scrollLogToEnd = false;
+			this.taskTitle      = null;
+			this.value          = null;
+			this.maximum        = null;
+
+			flushScheduled = false;
+			lastFlush_ns = System.nanoTime();
+		}
+
+		if (clearLog ) logView.clear();
+		if (log!=null) logView.append(Arrays.asList(log));
+		// after the layout of the appended entries
+		if (scrollLogToEnd) SwingUtilities.invokeLater(logView::scrollToEnd);
+
+		if (taskTitle!=null) pd.setTaskTitle(taskTitle);
+		if (maximum!=null) pd.setValue(value==null ? 0 : value, maximum);
+		else if (value!=null) pd.setValue(value);
+	}
+}
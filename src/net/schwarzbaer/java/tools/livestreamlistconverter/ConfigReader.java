@@ -0,0 +1,95 @@
+package net.schwarzbaer.java.tools.livestreamlistconverter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+
+/**
+ * Single-pass tokenizer of the config files.
+ * <p>
+ * Each line is split once into a section header {@code [name]} (name is case insensitive) or a pair {@code key=value}
+ * (split at the first "=") and passed to a {@link Handler}, that dispatches on the key.
+ * Empty lines are skipped. Malformed lines, unknown sections and unknown keys are reported with their line number.
+ */
+class ConfigReader
+{
+	interface Handler
+	{
+		/**
+		 * @param name  name between the brackets in lower case
+		 * @return {@code false}, if the section is unknown
+		 */
+		boolean section(String name);
+		/**
+		 * @return {@code false}, if the key is unknown in the current section
+		 */
+		boolean value(String key, String value);
+	}
+
+	private final String source;
+	private int lineNumber;
+
+	/**
+	 * @param source  description of the config for error messages
+	 */
+	ConfigReader(String source)
+	{
+		this.source = source;
+		lineNumber = 0;
+	}
+
+	void read(BufferedReader input, Handler handler) throws IOException
+	{
+		lineNumber = 0;
+		String line;
+		while ( (line=input.readLine())!=null )
+		{
+			lineNumber++;
+			int length = line.length();
+			if (length==0) continue;
+
+			if (line.charAt(0)=='[' && line.charAt(length-1)==']')
+			{
+				String name = line.substring(1, length-1).toLowerCase();
+				if (!handler.section(name))
+					System.err.printf("Found unknown section in %s, line %d: \"%s\"%n", source, lineNumber, line);
+				continue;
+			}
+
+			int equalPos = line.indexOf('=');
+			if (equalPos<=0)
+			{
+				if (!line.isBlank())
+					System.err.printf("Found malformed line in %s, line %d: \"%s\"%n", source, lineNumber, line);
+				continue;
+			}
+			if (!handler.value(line.substring(0, equalPos), line.substring(equalPos+1)))
+				System.err.printf("Found unknown key in %s, line %d: \"%s\"%n", source, lineNumber, line);
+		}
+	}
+
+	void reportInvalidValue(String key, String value)
+	{
+		System.err.printf("Found invalid value for \"%s\" in %s, line %d: \"%s\"%n", key, source, lineNumber, value);
+	}
+
+	Integer parseInt(String key, String value)
+	{
+		try { return Integer.parseInt(value.trim()); }
+		catch (NumberFormatException ex)
+		{
+			reportInvalidValue(key, value);
+			return null;
+		}
+	}
+
+	Boolean parseBoolean(String key, String value)
+	{
+		switch (value.trim().toLowerCase())
+		{
+		case "true" : return true;
+		case "false": return false;
+		}
+		reportInvalidValue(key, value);
+		return null;
+	}
+}
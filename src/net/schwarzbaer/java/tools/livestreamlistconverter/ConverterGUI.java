@@ -0,0 +1,393 @@
+package net.schwarzbaer.java.tools.livestreamlistconverter;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
+import java.io.IOException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
+
+import javax.swing.AbstractListModel;
+import javax.swing.BorderFactory;
+import javax.swing.JButton;
+import javax.swing.JList;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JSplitPane;
+import javax.swing.JTabbedPane;
+import javax.swing.JToolBar;
+import javax.swing.ListSelectionModel;
+import javax.swing.SwingUtilities;
+import javax.swing.UIManager;
+import javax.swing.UnsupportedLookAndFeelException;
+
+import net.schwarzbaer.java.lib.gui.Disabler;
+import net.schwarzbaer.java.lib.gui.GeneralIcons.GrayCommandIcons;
+import net.schwarzbaer.java.lib.gui.ProgressDialog;
+import net.schwarzbaer.java.lib.gui.StandardMainWindow;
+import net.schwarzbaer.java.lib.gui.Tables;
+import net.schwarzbaer.java.lib.system.Settings.DefaultAppSettings.SplitPaneDividersDefinition;
+import net.schwarzbaer.java.tools.livestreamlistconverter.LiveStreamListConverter.AppSettings;
+import net.schwarzbaer.java.tools.livestreamlistconverter.LiveStreamListConverter.AppSettings.ValueKey;
+import net.schwarzbaer.java.tools.livestreamlistconverter.OutputFormat.FormatEnum;
+
+final class ConverterGUI implements ActionListener, BaseConfig.ExternalIF, Outputter.ExternalIF {
+	
+	static void start(boolean flag_automatic, boolean flag_offline)
+	{
+		try { UIManager.setLookAndFeel(UIManager.getSystemLookAndFeelClassName()); }
+		catch (ClassNotFoundException | InstantiationException | IllegalAccessException | UnsupportedLookAndFeelException e) {}
+		
+		final ConverterGUI converter = new ConverterGUI();
+		converter.baseConfig.readFromFile();
+		converter.baseConfig.forceOffline = flag_offline;
+		converter.readKnownStationsFromFile();
+		converter.updateGUIAccess();
+		
+		if (flag_automatic) {
+			ProgressDialog.runWithProgressDialog(converter.mainWindow, "Progress", 200, pd -> {
+				BatchingPublisher publisher = converter.createPublisher(pd);
+				converter.enableGUI(false);
+				// the output files are written, while the stream URLs are still determined
+				if (!publisher.wasCanceled()) converter.determineStreamURLsTask(publisher, true);
+				converter.enableGUI(true);
+			});
+		}
+	}
+	
+	enum ActionCommands
+	{
+		DetermineStreamURLs, EditConfigFiles, GenerateAllFiles, Config,
+	}
+
+	private final StandardMainWindow mainWindow;
+	private final JTabbedPane tabbedPane;
+	private final LogView determineStreamURLsLog;
+	private final StationResponsesListModel stationResponsesStationListModel;
+	private final JList<Station> stationResponsesStationList;
+	private final TextViewer stationResponsesOutput;
+	private final Vector<StreamAdress> adressList;
+	private final Disabler<ActionCommands> disabler;
+	private final Map<FormatEnum, Outputter> outputerMap;
+	private final BaseConfig baseConfig;
+	private final KnownStations knownStations;
+	private final int tabIndexDetermineStreamURLs;
+	private final KnownStationsPanel knownStationsPanel;
+	private HttpFetcher httpFetcher;
+	private RunReport runReport;
+	
+	private ConverterGUI()
+	{
+		adressList = new Vector<>();
+		httpFetcher = null;
+		runReport = null;
+		knownStations = new KnownStations();
+		
+		outputerMap = new EnumMap<>(FormatEnum.class);
+		baseConfig = new BaseConfig(this);
+		for (FormatEnum fe : FormatEnum.values())
+			outputerMap.put(fe, new Outputter(baseConfig, fe.create.get(), this));
+		
+		mainWindow = new StandardMainWindow("Livestream List Converter");
+		
+		disabler = new Disabler<>();
+		disabler.setCareFor(ActionCommands.values());
+		
+		JToolBar toolBar = new JToolBar();
+		toolBar.setFloatable(false);
+		
+		toolBar.add(createButton("Determine Stream URLs", ActionCommands.DetermineStreamURLs));
+		toolBar.add(createButton("Generate All Files", GrayCommandIcons.IconGroup.Save , ActionCommands.GenerateAllFiles));
+		toolBar.addSeparator();
+		toolBar.add(createButton("Edit Config Files", baseConfig.texteditorPath!=null, ActionCommands.EditConfigFiles));
+		toolBar.add(createButton("Config", ActionCommands.Config));
+		
+		determineStreamURLsLog = new LogView(LogView.DEFAULT_CAPACITY);
+		determineStreamURLsLog.setBorder(BorderFactory.createEmptyBorder(2,2,2,2));
+		
+		stationResponsesOutput = new TextViewer();
+		
+		Color stationWithNoResponse = new Color(0xf0f0f0);
+		Function<Object, String> strConverter = obj -> {
+			if (!(obj instanceof Station station)) return obj.toString();
+			if (station.stationResponseSource==null) return station.name;
+			return "%s  [%s]".formatted(station.name, station.stationResponseSource.label);
+		};
+		Function<Object, Color> colorizer = obj -> obj instanceof Station station && !station.hasStationResponse() ? stationWithNoResponse : null;
+		Tables.NonStringRenderer<Station> renderer = new Tables.NonStringRenderer<>(strConverter);
+		renderer.setBackgroundColorizer(colorizer);
+		
+		stationResponsesStationListModel = new StationResponsesListModel(knownStations.stationStore);
+		stationResponsesStationList = new JList<>(stationResponsesStationListModel);
+		stationResponsesStationList.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+		stationResponsesStationList.setCellRenderer(renderer);
+		stationResponsesStationList.addListSelectionListener(ev -> showSelectedStationResponse());
+		
+		JSplitPane stationResponsesPanel = new JSplitPane(JSplitPane.HORIZONTAL_SPLIT, true);
+		stationResponsesPanel.setLeftComponent(new JScrollPane(stationResponsesStationList));
+		stationResponsesPanel.setRightComponent(stationResponsesOutput);
+		
+		tabbedPane = new JTabbedPane();
+		tabbedPane.addTab("In: Known Stations", knownStationsPanel = new KnownStationsPanel(mainWindow, knownStations, this::readKnownStationsFromFile));
+		tabIndexDetermineStreamURLs = tabbedPane.getTabCount();
+		tabbedPane.addTab("In: Determine Stream URLs", determineStreamURLsLog);
+		tabbedPane.addTab("In: Station Responses", stationResponsesPanel);
+		
+		forEachFormat((fe, outputter) -> {
+			String tabTitle = "Out: %s".formatted(outputter.outputFormat.fileLabel);
+			int tabCount = tabbedPane.getTabCount();
+			tabbedPane.addTab( tabTitle, outputter.createPanel(mainWindow, ()->tabbedPane.getModel().setSelectedIndex(tabCount)) );
+		});
+		
+		JPanel contentPane = new JPanel(new BorderLayout(3,3));
+		contentPane.setBorder(BorderFactory.createEmptyBorder(3,3,3,3));
+		contentPane.add(toolBar,BorderLayout.PAGE_START);
+		contentPane.add(tabbedPane,BorderLayout.CENTER);
+		
+		mainWindow.startGUI(contentPane);
+		AppSettings.getInstance().registerAppWindow(mainWindow, 1000,800);
+		
+		SplitPaneDividersDefinition<ValueKey> splitPaneDividersDefinition = new SplitPaneDividersDefinition<>(mainWindow, AppSettings.ValueKey.class);
+		knownStationsPanel.registerAt(splitPaneDividersDefinition);
+		splitPaneDividersDefinition.add(stationResponsesPanel, AppSettings.ValueKey.SplitPaneDivider_StationResponsesPanel);
+		AppSettings.getInstance().registerSplitPaneDividers( splitPaneDividersDefinition );
+	}
+
+	private JButton createButton(String title, GrayCommandIcons.IconGroup iconGroup, ActionCommands ac)
+	{
+		JButton comp = createButton(title, true, ac);
+		if (iconGroup!=null)
+		{
+			comp.setIcon        (iconGroup.getEnabledIcon ());
+			comp.setDisabledIcon(iconGroup.getDisabledIcon());
+		}
+		return comp;
+	}
+	private JButton createButton(String title, ActionCommands ac)
+	{
+		return createButton( title, true, ac );
+	}
+	private JButton createButton(String title, boolean enabled, ActionCommands ac)
+	{
+		JButton comp = new JButton(title);
+		comp.setEnabled(enabled);
+		comp.addActionListener(this);
+		comp.setActionCommand( ac.name() );
+		disabler.add(ac, comp);
+		return comp;
+	}
+	
+	@Override
+	public void actionPerformed(ActionEvent e) {
+		ActionCommands actionCommand;
+		try { actionCommand = ActionCommands.valueOf(e.getActionCommand()); }
+		catch (Exception e1) { return; }
+		
+		switch (actionCommand)
+		{
+		case DetermineStreamURLs:
+			ProgressDialog.runWithProgressDialog(mainWindow, "Progress", 200, pd -> {
+				enableGUI(false);
+				determineStreamURLsTask(createPublisher(pd), false);
+				enableGUI(true);
+			} );
+			break;
+			
+		case EditConfigFiles:
+			if (baseConfig.texteditorPath!=null)
+				try {
+					LiveStreamListConverter.execute( baseConfig.texteditorPath, LiveStreamListConverter.FILENAME_BASECONFIG, LiveStreamListConverter.FILENAME_STATIONS_LIST );
+				} catch (IOException e1) {
+					e1.printStackTrace();
+				}
+			break;
+			
+		case GenerateAllFiles:
+			ProgressDialog.runWithProgressDialog(mainWindow, "Progress", 200, pd -> {
+				ProgressReporter pr = ProgressReporter.of(pd);
+				enableGUI(false);
+				generateAllFilesTask(pr);
+				enableGUI(true);
+			} );
+			break;
+			
+		case Config:
+			BaseConfigDialog.showDialog(mainWindow, baseConfig);
+			updateGUIAccess();
+			break;
+		}
+	}
+
+	@Override
+	public void enableGUI(boolean enable)
+	{
+		knownStationsPanel.setEnabled(enable);
+		forEachFormat((fe, outputter) -> {
+			outputter.setPanelEnabled(enable);
+		});
+		disabler.setEnable(ac ->  switch (ac) {
+			case DetermineStreamURLs, GenerateAllFiles
+				-> enable && knownStations.hasStations();
+			
+			case Config
+				-> enable;
+				
+			case EditConfigFiles
+				-> enable && baseConfig.texteditorPath!=null;
+		});
+	}
+
+	private void updateGUIAccess() {
+		enableGUI(true);
+	}
+
+	@Override
+	public Vector<StreamAdress> getAdressList()
+	{
+		return adressList;
+	}
+
+	@Override
+	public void forEachFormat(BiConsumer<FormatEnum, Outputter> action)
+	{
+		for (FormatEnum fe : FormatEnum.values())
+		{
+			Outputter outputter = outputerMap.get(fe);
+			if (outputter!=null)
+				action.accept(fe, outputter);
+		}
+	}
+
+	private HttpFetcher getHttpFetcher()
+	{
+		if (httpFetcher==null)
+			httpFetcher = new HttpFetcher();
+		return httpFetcher;
+	}
+
+	private void readKnownStationsFromFile()
+	{
+		knownStations.readFromFile();
+		knownStationsPanel.updateTable();
+		knownStationsPanel.resetChangesFlag();
+	}
+
+	private BatchingPublisher createPublisher(ProgressDialog pd)
+	{
+		return new BatchingPublisher(pd, determineStreamURLsLog);
+	}
+
+	/**
+	 * @param writeOutputFiles  the output files of all formats are written too (see {@link StreamURLDeterminer#determineAndWrite})
+	 */
+	private void determineStreamURLsTask(BatchingPublisher publisher, boolean writeOutputFiles) {
+		tabbedPane.getModel().setSelectedIndex(tabIndexDetermineStreamURLs);
+		
+		publisher.clearLog();
+		runReport = new RunReport();
+		// responses of deleted stations are dropped too
+		Station.responseStore.clear();
+		Station.responseStore.setMemoryBudget(baseConfig.getResponsesMemoryBudget());
+		HttpFetcher httpFetcher = getHttpFetcher();
+		// cache settings could be changed since the last run
+		httpFetcher.setResponseCache(baseConfig.createResponseCache());
+		StreamURLDeterminer determiner = new StreamURLDeterminer(knownStations, baseConfig, httpFetcher, true);
+		// probe results are reported without station
+		Map<StreamAdress, Station> stationOfAdress = new ConcurrentHashMap<>();
+		StreamURLDeterminer.LogOutput logOutput = new StreamURLDeterminer.LogOutput() {
+			@Override public void stationResponded(Station station) {
+				publisher.appendLog(LogView.Entry.station(station));
+				publisher.appendLog(LogView.Entry.list(station));
+			}
+			@Override public void adressFound(Station station, StreamAdress addr, boolean ignored, boolean duplicate) {
+				LogView.Mark mark = ignored ? LogView.Mark.ignored : duplicate ? LogView.Mark.duplicate : LogView.Mark.none;
+				if (mark==LogView.Mark.none) stationOfAdress.put(addr, station);
+				publisher.appendLog(LogView.Entry.adress(station, addr.url, mark));
+			}
+			@Override public void stationFinished(Station station, boolean responded) {
+				if (responded)
+					publisher.scrollLogToEnd();
+			}
+			@Override public void adressProbed(StreamAdress addr, StreamProber.Result result) {
+				LogView.Mark mark = result.alive() ? LogView.Mark.alive : LogView.Mark.offline;
+				publisher.appendLog(LogView.Entry.adress(stationOfAdress.get(addr), StreamProber.describe(addr, result), mark));
+			}
+		};
+		boolean finished;
+		if (writeOutputFiles)
+		{
+			Map<Outputter, Outputter.WriteReport> reports = determiner.determineAndWrite(adressList, List.copyOf(outputerMap.values()), publisher, logOutput, runReport);
+			finished = reports!=null;
+			if (finished) runReport.addOutputs(reports);
+		}
+		else
+			finished = determiner.determine(adressList, publisher, logOutput, runReport);
+		if (!finished) {
+			publisher.clearLog();
+		}
+		writeRunReport();
+		SwingUtilities.invokeLater(() -> {
+			stationResponsesStationListModel.stationsChanged(0, stationResponsesStationListModel.getSize()-1);
+			showSelectedStationResponse();
+		});
+	}
+
+	private void showSelectedStationResponse()
+	{
+		// selected station is taken by value, because the list can be reordered
+		Station station = stationResponsesStationList.getSelectedValue();
+		if (station==null)
+		{
+			stationResponsesOutput.setText("<no station selected>");
+			return;
+		}
+		String stationResponse = station.getStationResponse();
+		if (stationResponse==null)
+			stationResponsesOutput.setText("<received no response from station>");
+		else
+			stationResponsesOutput.setText(stationResponse);
+	}
+
+	private static class StationResponsesListModel extends AbstractListModel<Station> implements StationStore.Listener
+	{
+		private static final long serialVersionUID = 2645911650716380826L;
+		
+		private final StationStore stationStore;
+
+		StationResponsesListModel(StationStore stationStore)
+		{
+			this.stationStore = stationStore;
+			stationStore.addListener(this);
+		}
+
+		@Override public int getSize() { return stationStore.size(); }
+		@Override public Station getElementAt(int index) { return stationStore.get(index); }
+
+		@Override public void stationsAdded  (int firstIndex, int lastIndex) { fireIntervalAdded   (this, firstIndex, lastIndex); }
+		@Override public void stationsRemoved(int firstIndex, int lastIndex) { fireIntervalRemoved (this, firstIndex, lastIndex); }
+		@Override public void stationsChanged(int firstIndex, int lastIndex) { if (firstIndex<=lastIndex) fireContentsChanged(this, firstIndex, lastIndex); }
+		@Override public void stationsReplaced() { fireContentsChanged(this, 0, Integer.MAX_VALUE); }
+	}
+
+	private void generateAllFilesTask(ProgressReporter pr)
+	{
+		Map<Outputter, Outputter.WriteReport> reports = Outputter.generateAndWriteAllFiles(List.copyOf(outputerMap.values()), adressList, pr);
+		if (reports.isEmpty()) return;
+		// outputs belong to the report of the last determination of the stream URLs
+		if (runReport==null) runReport = new RunReport();
+		runReport.addOutputs(reports);
+		writeRunReport();
+	}
+
+	private void writeRunReport()
+	{
+		if (runReport!=null)
+			runReport.writeToFiles(baseConfig.getRunReportJsonFile(), baseConfig.getRunReportPrometheusFile());
+	}
+}
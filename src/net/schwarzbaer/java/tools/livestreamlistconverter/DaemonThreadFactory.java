@@ -0,0 +1,24 @@
+package net.schwarzbaer.java.tools.livestreamlistconverter;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+class DaemonThreadFactory implements ThreadFactory
+{
+	private final String namePrefix;
+	private final AtomicInteger threadCounter;
+
+	DaemonThreadFactory(String namePrefix)
+	{
+		this.namePrefix = namePrefix;
+		threadCounter = new AtomicInteger(0);
+	}
+
+	@Override
+	public Thread newThread(Runnable r)
+	{
+		Thread thread = new Thread(r, "%s-%d".formatted(namePrefix, threadCounter.incrementAndGet()));
+		thread.setDaemon(true);
+		return thread;
+	}
+}
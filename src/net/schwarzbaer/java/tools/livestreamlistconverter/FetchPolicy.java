@@ -0,0 +1,85 @@
+package net.schwarzbaer.java.tools.livestreamlistconverter;
+
+import java.io.PrintWriter;
+
+/**
+ * Deadlines and retries for fetching the station list of a station.
+ * <p>
+ * All values are optional ({@code null} means "not set").
+ * The policy of a station overrides the policy of its host, that overrides the general policy, that overrides the defaults.
+ * In config files the values are stored as {@code <prefix>connectTimeout=}, {@code <prefix>readTimeout=},
+ * {@code <prefix>totalTimeout=} (all in ms) and {@code <prefix>retries=}.
+ */
+class FetchPolicy
+{
+	static final int DEFAULT_CONNECT_TIMEOUT_MS = 10000;
+	static final int DEFAULT_READ_TIMEOUT_MS    = 30000;
+	static final int DEFAULT_TOTAL_TIMEOUT_MS   = 120000;
+	static final int DEFAULT_RETRIES            = 2;
+
+	/** max time to establish a connection */
+	Integer connectTimeout_ms = null;
+	/** max time to wait for the response headers and max time without any received data, while the body is read */
+	Integer readTimeout_ms = null;
+	/** max time to read the whole body */
+	Integer totalTimeout_ms = null;
+	/** number of retries after a failed attempt */
+	Integer retries = null;
+
+	record Resolved(int connectTimeout_ms, int readTimeout_ms, int totalTimeout_ms, int retries) {}
+
+	boolean isEmpty()
+	{
+		return connectTimeout_ms==null && readTimeout_ms==null && totalTimeout_ms==null && retries==null;
+	}
+
+	/**
+	 * @param policies  policies in order of priority (highest first), can contain {@code null}
+	 */
+	static Resolved resolve(FetchPolicy... policies)
+	{
+		Integer connectTimeout_ms = null;
+		Integer readTimeout_ms    = null;
+		Integer totalTimeout_ms   = null;
+		Integer retries           = null;
+		for (FetchPolicy policy : policies)
+			if (policy!=null)
+			{
+				if (connectTimeout_ms==null) connectTimeout_ms = policy.connectTimeout_ms;
+				if (readTimeout_ms   ==null) readTimeout_ms    = policy.readTimeout_ms;
+				if (totalTimeout_ms  ==null) totalTimeout_ms   = policy.totalTimeout_ms;
+				if (retries          ==null) retries           = policy.retries;
+			}
+		return new Resolved(
+				Math.max(1, connectTimeout_ms==null ? DEFAULT_CONNECT_TIMEOUT_MS : connectTimeout_ms),
+				Math.max(1, readTimeout_ms   ==null ? DEFAULT_READ_TIMEOUT_MS    : readTimeout_ms   ),
+				Math.max(1, totalTimeout_ms  ==null ? DEFAULT_TOTAL_TIMEOUT_MS   : totalTimeout_ms  ),
+				Math.max(0, retries          ==null ? DEFAULT_RETRIES            : retries          )
+		);
+	}
+
+	/**
+	 * @param key  whole key with prefix, for error messages
+	 * @param name  key without prefix
+	 * @return {@code true}, if {@code name} is a value of this policy
+	 */
+	boolean parseValue(String key, String name, String value, ConfigReader reader)
+	{
+		switch (name)
+		{
+		case "connectTimeout": connectTimeout_ms = reader.parseInt(key, value); return true;
+		case "readTimeout"   : readTimeout_ms    = reader.parseInt(key, value); return true;
+		case "totalTimeout"  : totalTimeout_ms   = reader.parseInt(key, value); return true;
+		case "retries"       : retries           = reader.parseInt(key, value); return true;
+		}
+		return false;
+	}
+
+	void writeToFile(PrintWriter output, String prefix)
+	{
+		if (connectTimeout_ms!=null) output.printf("%sconnectTimeout=%d%n", prefix, connectTimeout_ms);
+		if (readTimeout_ms   !=null) output.printf("%sreadTimeout=%d%n"   , prefix, readTimeout_ms   );
+		if (totalTimeout_ms  !=null) output.printf("%stotalTimeout=%d%n"  , prefix, totalTimeout_ms  );
+		if (retries          !=null) output.printf("%sretries=%d%n"       , prefix, retries          );
+	}
+}
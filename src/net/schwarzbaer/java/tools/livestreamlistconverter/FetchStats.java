@@ -0,0 +1,63 @@
+package net.schwarzbaer.java.tools.livestreamlistconverter;
+
+/**
+ * Measured values of fetching and parsing the station list of one station.
+ * <p>
+ * The values are written by the fetching thread and describe the last attempt, except {@link #attempts} and {@link #adressesFound}.
+ * Timings are in ms since the start of the attempt, {@code -1} means "not reached".
+ * {@link java.net.http.HttpClient} doesn't expose the connect time, so it's included in {@link #headers_ms}.
+ */
+class FetchStats
+{
+	int attempts = 0;
+	long dns_ms = -1;
+	long headers_ms = -1;
+	long firstByte_ms = -1;
+	long total_ms = -1;
+	int statusCode = -1;
+	long bytesReceived = 0;
+	int linesParsed = 0;
+	/** type of the station list, given or detected in the last attempt */
+	String sourceType = null;
+	/** name of the {@link ResponseCache.Source} of the last attempt */
+	String responseSource = null;
+	int adressesFound = 0;
+	/** cause of the failure of the last attempt or {@code null}, if it was successful */
+	String error = null;
+	/** station was skipped, because its host failed too often */
+	boolean skipped = false;
+
+	private long attemptStart_ns = System.nanoTime();
+
+	void startAttempt()
+	{
+		attempts++;
+		dns_ms = -1;
+		headers_ms = -1;
+		firstByte_ms = -1;
+		total_ms = -1;
+		statusCode = -1;
+		bytesReceived = 0;
+		linesParsed = 0;
+		sourceType = null;
+		responseSource = null;
+		error = null;
+		attemptStart_ns = System.nanoTime();
+	}
+
+	long getElapsed_ms()
+	{
+		return (System.nanoTime()-attemptStart_ns) / 1_000_000L;
+	}
+
+	void finishAttempt(Throwable error)
+	{
+		total_ms = getElapsed_ms();
+		this.error = error==null ? null : error.toString();
+	}
+
+	boolean isSuccessful()
+	{
+		return attempts>0 && error==null && !skipped;
+	}
+}
@@ -0,0 +1,393 @@
+package net.schwarzbaer.java.tools.livestreamlistconverter;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.net.InetAddress;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.UnknownHostException;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.UnsupportedCharsetException;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Shared fetch layer for all HTTP requests of the application.
+ * One instance keeps one {@link HttpClient} per connect timeout, so connections to the same host are kept alive and reused.
+ * <p>
+ * A watchdog supervises the reading of all open response bodies.
+ * If no data arrives within the read timeout or the body isn't read completely within the total timeout,
+ * the body is closed and the reading thread gets a {@link FetchTimeoutException}.
+ * If the task is canceled, the body is closed too and the reading thread gets an {@link InterruptedIOException}.
+ * (Closing is used instead of interrupting, because a blocked read of a response body ignores interrupts in older JREs.)
+ * <p>
+ * If a {@link ResponseCache} is set, requests are sent as conditional requests and complete bodies are stored in the cache.
+ */
+class HttpFetcher
+{
+	private static final String USER_AGENT = "LiveStreamListConverter";
+	private static final long WATCHDOG_INTERVAL_MS = 100;
+
+	private final Map<Integer, HttpClient> clients;
+	private final Set<Response> openResponses;
+	private volatile ResponseCache cache;
+
+	HttpFetcher()
+	{
+		clients = new ConcurrentHashMap<>();
+		openResponses = ConcurrentHashMap.newKeySet();
+		cache = null;
+		ScheduledExecutorService watchdog = Executors.newSingleThreadScheduledExecutor(new DaemonThreadFactory("HttpFetcher.Watchdog"));
+		watchdog.scheduleWithFixedDelay(this::checkOpenResponses, WATCHDOG_INTERVAL_MS, WATCHDOG_INTERVAL_MS, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * @param cache  cache for the following requests or {@code null}
+	 */
+	void setResponseCache(ResponseCache cache)
+	{
+		this.cache = cache;
+	}
+
+	private HttpClient getClient(int connectTimeout_ms)
+	{
+		return clients.computeIfAbsent(connectTimeout_ms, timeout -> HttpClient.newBuilder()
+				.version(HttpClient.Version.HTTP_2)
+				.followRedirects(HttpClient.Redirect.NORMAL)
+				.connectTimeout(Duration.ofMillis(timeout))
+				.build());
+	}
+
+	private void checkOpenResponses()
+	{
+		long now = System.nanoTime();
+		for (Response response : openResponses)
+			response.checkDeadlines(now);
+	}
+
+	/**
+	 * Sends a GET request to {@code url} and returns the response, as soon as the response headers are received.
+	 * The body is decompressed according to the "Content-Encoding" header.
+	 * If a cached body is used, {@link Response#source} tells how it was validated.
+	 * @param wasCanceled  is checked by the watchdog, while the body is read. The request itself is canceled by interrupting the calling thread.
+	 * @param stats  gets the timings and the received bytes (can be {@code null})
+	 * @throws HttpStatusException if the server answers with a status code other than 2xx (or 304 for a cached body)
+	 * @throws ResponseCache.NotCachedException if the cache is in offline mode and has no entry for {@code url}
+	 * @throws FetchTimeoutException if a deadline of {@code policy} is exceeded while the body is read
+	 * @throws InterruptedIOException if the task was canceled while the body is read
+	 */
+	Response open(String url, FetchPolicy.Resolved policy, BooleanSupplier wasCanceled, FetchStats stats) throws URISyntaxException, IOException, InterruptedException
+	{
+		URI uri = new URI(url);
+		ResponseCache cache = this.cache;
+		ResponseCache.Entry cached = cache==null ? null : cache.get(url);
+		if (cache!=null && cache.isUsableWithoutRequest(cached))
+		{
+			if (cached==null)
+				throw new ResponseCache.NotCachedException(url);
+			return openCached(uri, 200, cached, ResponseCache.Source.hit, policy, wasCanceled, stats);
+		}
+
+		if (stats!=null)
+			stats.dns_ms = measureDnsLookup(uri, stats);
+
+		HttpClient client = getClient(policy.connectTimeout_ms());
+		HttpRequest.Builder requestBuilder = HttpRequest.newBuilder(uri)
+				.timeout(Duration.ofMillis(policy.readTimeout_ms()))
+				.header("Accept-Encoding", "gzip, deflate")
+				.header("User-Agent", USER_AGENT)
+				.GET();
+		if (cached!=null && cached.etag()        !=null) requestBuilder.header("If-None-Match"    , cached.etag());
+		if (cached!=null && cached.lastModified()!=null) requestBuilder.header("If-Modified-Since", cached.lastModified());
+		HttpRequest request = requestBuilder.build();
+
+		HttpResponse<InputStream> response;
+		try { response = client.send(request, HttpResponse.BodyHandlers.ofInputStream()); }
+		catch (IllegalArgumentException ex) { throw new IOException("Can't send request to \"%s\": %s".formatted(url, ex.getMessage()), ex); }
+
+		InputStream body = response.body();
+		int statusCode = response.statusCode();
+		if (stats!=null)
+		{
+			stats.headers_ms = stats.getElapsed_ms();
+			stats.statusCode = statusCode;
+		}
+		if (statusCode==304 && cached!=null)
+		{
+			body.close();
+			return openCached(response.uri(), statusCode, cache.revalidated(cached), ResponseCache.Source.revalidated, policy, wasCanceled, stats);
+		}
+		if (statusCode<200 || statusCode>=300)
+		{
+			body.close();
+			throw new HttpStatusException(url, statusCode);
+		}
+
+		HttpHeaders headers = response.headers();
+		Response result = new Response(response.uri(), statusCode, headers, body, ResponseCache.Source.fetched, policy, wasCanceled, stats);
+		openResponses.add(result);
+		try
+		{
+			InputStream decodedBody = decode(result.rawBody, headers);
+			if (cache!=null)
+				decodedBody = cache.record(url, headers.firstValue("ETag").orElse(null), headers.firstValue("Last-Modified").orElse(null), headers.firstValue("Content-Type").orElse(null), decodedBody);
+			result.setBody(decodedBody);
+		}
+		catch (IOException ex)
+		{
+			result.close();
+			throw ex;
+		}
+		return result;
+	}
+
+	/**
+	 * The bytes of a cached body aren't counted as received bytes in {@code stats}.
+	 */
+	private Response openCached(URI uri, int statusCode, ResponseCache.Entry entry, ResponseCache.Source source, FetchPolicy.Resolved policy, BooleanSupplier wasCanceled, FetchStats stats)
+	{
+		if (stats!=null) stats.statusCode = statusCode;
+		HttpHeaders headers = HttpHeaders.of(entry.contentType()==null ? Map.of() : Map.of("Content-Type", List.of(entry.contentType())), (name, value) -> true);
+		Response result = new Response(uri, statusCode, headers, new ByteArrayInputStream(entry.body()), source, policy, wasCanceled, null);
+		openResponses.add(result);
+		return result;
+	}
+
+	/**
+	 * Resolves the host name in advance, so the following request gets it from the DNS cache of the JVM.
+	 * A failed lookup is ignored here. The request will report it, if it's not resolved by a proxy.
+	 * @return duration of the lookup in ms or {@code -1}
+	 */
+	private static long measureDnsLookup(URI uri, FetchStats stats)
+	{
+		String host = uri.getHost();
+		if (host==null) return -1;
+		long start_ms = stats.getElapsed_ms();
+		try { InetAddress.getAllByName(host); }
+		catch (UnknownHostException | SecurityException ex) { return -1; }
+		return stats.getElapsed_ms()-start_ms;
+	}
+
+	private static InputStream decode(InputStream body, HttpHeaders headers) throws IOException
+	{
+		String encoding = headers.firstValue("Content-Encoding").orElse("").trim().toLowerCase();
+		return switch (encoding)
+		{
+			case "gzip", "x-gzip" -> new GZIPInputStream(body);
+			case "deflate"        -> new InflaterInputStream(body);
+			default               -> body;
+		};
+	}
+
+	class Response implements Closeable
+	{
+		final URI uri;
+		final int statusCode;
+		final HttpHeaders headers;
+		/** where the body comes from */
+		final ResponseCache.Source source;
+		private final WatchedInputStream rawBody;
+		InputStream body;
+
+		private final BooleanSupplier wasCanceled;
+		private final FetchStats stats;
+		private final long readTimeout_ns;
+		private final long deadline_ns;
+		private volatile long lastActivity_ns;
+		private String abortReason;
+		private boolean canceled;
+		private boolean closed;
+
+		private Response(URI uri, int statusCode, HttpHeaders headers, InputStream body, ResponseCache.Source source, FetchPolicy.Resolved policy, BooleanSupplier wasCanceled, FetchStats stats)
+		{
+			this.uri = uri;
+			this.statusCode = statusCode;
+			this.headers = headers;
+			this.source = source;
+			this.rawBody = new WatchedInputStream(body);
+			this.body = rawBody;
+
+			this.wasCanceled = wasCanceled;
+			this.stats = stats;
+			readTimeout_ns = TimeUnit.MILLISECONDS.toNanos(policy.readTimeout_ms());
+			lastActivity_ns = System.nanoTime();
+			deadline_ns = lastActivity_ns + TimeUnit.MILLISECONDS.toNanos(policy.totalTimeout_ms());
+			abortReason = null;
+			canceled = false;
+			closed = false;
+		}
+
+		private void setBody(InputStream body)
+		{
+			this.body = body;
+		}
+
+		private void checkDeadlines(long now)
+		{
+			synchronized (this)
+			{
+				if (closed || abortReason!=null) return;
+				if (wasCanceled.getAsBoolean())
+				{
+					abortReason = "Reading of response from \"%s\" was canceled".formatted(uri);
+					canceled = true;
+				}
+				else if (now-deadline_ns > 0)
+					abortReason = "Response from \"%s\" wasn't read completely within the total timeout".formatted(uri);
+				else if (now-lastActivity_ns > readTimeout_ns)
+					abortReason = "No data received from \"%s\" within the read timeout".formatted(uri);
+				else
+					return;
+			}
+			try { rawBody.source.close(); }
+			catch (IOException ex) {}
+		}
+
+		/**
+		 * @return an exception, that replaces {@code ex}, if the body was closed by the watchdog, or {@code ex} otherwise
+		 */
+		private synchronized IOException getAbortException(IOException ex)
+		{
+			if (abortReason==null) return ex;
+			if (canceled)
+			{
+				InterruptedIOException canceledEx = new InterruptedIOException(abortReason);
+				canceledEx.initCause(ex);
+				return canceledEx;
+			}
+			return new FetchTimeoutException(abortReason, ex);
+		}
+
+		/**
+		 * @return value of the "Content-Type" header or {@code null}
+		 */
+		String getContentType()
+		{
+			return headers.firstValue("Content-Type").orElse(null);
+		}
+
+		/**
+		 * @return the charset given in the "Content-Type" header or {@code fallback}, if there is none or it's unknown
+		 */
+		Charset getCharset(Charset fallback)
+		{
+			String contentType = getContentType();
+			if (contentType==null) return fallback;
+
+			for (String param : contentType.split(";"))
+			{
+				String str = param.trim();
+				if (str.regionMatches(true, 0, "charset=", 0, 8))
+				{
+					String name = str.substring(8).trim();
+					if (name.length()>=2 && name.startsWith("\"") && name.endsWith("\""))
+						name = name.substring(1, name.length()-1);
+					try { return Charset.forName(name); }
+					catch (IllegalCharsetNameException | UnsupportedCharsetException ex)
+					{
+						System.err.printf("Unknown charset in response from \"%s\": \"%s\"%n", uri, name);
+						return fallback;
+					}
+				}
+			}
+			return fallback;
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			openResponses.remove(this);
+			synchronized (this)
+			{
+				if (closed) return;
+				closed = true;
+			}
+			body.close();
+		}
+
+		private class WatchedInputStream extends FilterInputStream
+		{
+			final InputStream source;
+
+			WatchedInputStream(InputStream source)
+			{
+				super(source);
+				this.source = source;
+			}
+
+			@Override
+			public int read() throws IOException
+			{
+				try
+				{
+					int b = super.read();
+					lastActivity_ns = System.nanoTime();
+					if (b>=0) received(1);
+					return b;
+				}
+				catch (IOException ex) { throw getAbortException(ex); }
+			}
+
+			@Override
+			public int read(byte[] b, int off, int len) throws IOException
+			{
+				try
+				{
+					int n = super.read(b, off, len);
+					lastActivity_ns = System.nanoTime();
+					if (n>0) received(n);
+					return n;
+				}
+				catch (IOException ex) { throw getAbortException(ex); }
+			}
+
+			private void received(int byteCount)
+			{
+				if (stats==null) return;
+				if (stats.firstByte_ms<0) stats.firstByte_ms = stats.getElapsed_ms();
+				stats.bytesReceived += byteCount;
+			}
+		}
+	}
+
+	static class FetchTimeoutException extends IOException
+	{
+		private static final long serialVersionUID = 2951043436593346121L;
+
+		FetchTimeoutException(String message, Throwable cause)
+		{
+			super(message, cause);
+		}
+	}
+
+	static class HttpStatusException extends IOException
+	{
+		private static final long serialVersionUID = -2418853624061593245L;
+
+		final int statusCode;
+
+		HttpStatusException(String url, int statusCode)
+		{
+			super("Server returned HTTP status %d for \"%s\"".formatted(statusCode, url));
+			this.statusCode = statusCode;
+		}
+	}
+}
@@ -0,0 +1,494 @@
+package net.schwarzbaer.java.tools.livestreamlistconverter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+import java.util.regex.PatternSyntaxException;
+
+/**
+ * Rules of the {@code [IgnoredStreamURLs]} section, that define the stream URLs to ignore.
+ * <p>
+ * All rules are compiled into one {@link Matcher}, when the rules are used first after a change:
+ * <ul>
+ * <li>{@link Type#url} rules are looked up in a hash set,</li>
+ * <li>{@link Type#host} rules in a hash set with every domain suffix of the host of the URL,</li>
+ * <li>{@link Type#prefix} rules in a trie, that is walked once along the URL,</li>
+ * <li>{@link Type#glob} rules are compiled together into one automaton ({@link GlobMatcher}),</li>
+ * <li>{@link Type#regex} rules are joined into one pattern.</li>
+ * </ul>
+ * Apart from the regex rules, the time to check an URL doesn't depend on the number of rules,
+ * once the {@link GlobMatcher} has cached the transitions, that the URL needs.
+ */
+class IgnoreRules
+{
+	enum Type
+	{
+		/** the whole URL */
+		url,
+		/** the host or a subdomain of it */
+		host,
+		/** the beginning of the URL */
+		prefix,
+		/** the whole URL with the wildcards "*" (any characters) and "?" (one character) */
+		glob,
+		/** a part of the URL, as {@link Pattern} */
+		regex,
+		;
+		/**
+		 * @return the type named {@code str} (case sensitive) or {@code null}
+		 */
+		static Type parse(String str)
+		{
+			try { return valueOf(str); }
+			catch (IllegalArgumentException ex) { return null; }
+		}
+	}
+
+	record Rule(Type type, String pattern)
+	{
+		static final Comparator<Rule> ORDER = Comparator.comparing(Rule::type).thenComparing(Rule::pattern);
+
+		/**
+		 * @return a description of the syntax error or {@code null}, if the rule is valid
+		 */
+		String getError()
+		{
+			if (pattern==null || pattern.isEmpty()) return "empty pattern";
+			if (type==Type.regex)
+				try { Pattern.compile(pattern); }
+				catch (PatternSyntaxException ex) { return ex.getDescription(); }
+			return null;
+		}
+	}
+
+	private final Set<Rule> rules;
+	private Matcher matcher;
+
+	IgnoreRules()
+	{
+		rules = new HashSet<>();
+		matcher = null;
+	}
+
+	synchronized boolean isEmpty() { return rules.isEmpty(); }
+	synchronized List<Rule> getSortedRules() { return rules.stream().sorted(Rule.ORDER).toList(); }
+
+	synchronized void add(Rule rule) { rules.add(rule); matcher = null; }
+	synchronized void removeAll(Collection<Rule> rules) { this.rules.removeAll(rules); matcher = null; }
+	synchronized void clear() { rules.clear(); matcher = null; }
+
+	synchronized void replace(Rule oldRule, Rule newRule)
+	{
+		rules.remove(oldRule);
+		rules.add(newRule);
+		matcher = null;
+	}
+
+	boolean matches(String url)
+	{
+		return url!=null && getMatcher().matches(url);
+	}
+
+	synchronized Matcher getMatcher()
+	{
+		if (matcher==null)
+			matcher = new Matcher(rules);
+		return matcher;
+	}
+
+	/**
+	 * Immutable, compiled form of a set of rules.
+	 */
+	static class Matcher
+	{
+		private final Set<String> urls;
+		private final Set<String> hosts;
+		private final TrieNode prefixTrie;
+		private final GlobMatcher globMatcher;
+		private final Pattern combinedRegex;
+
+		Matcher(Collection<Rule> rules)
+		{
+			urls = new HashSet<>();
+			hosts = new HashSet<>();
+			prefixTrie = new TrieNode();
+			List<String> globs = new ArrayList<>();
+			List<String> regexes = new ArrayList<>();
+
+			for (Rule rule : rules)
+			{
+				String error = rule.getError();
+				if (error!=null)
+				{
+					System.err.printf("Found invalid %s rule in IgnoredStreamURLs: \"%s\" (%s)%n", rule.type, rule.pattern, error);
+					continue;
+				}
+				switch (rule.type)
+				{
+				case url   : urls .add(rule.pattern); break;
+				case host  : hosts.add(rule.pattern.toLowerCase(Locale.ROOT)); break;
+				case prefix: prefixTrie.getNode(rule.pattern).isPrefixEnd = true; break;
+				case glob  : globs.add(rule.pattern); break;
+				case regex : regexes.add(rule.pattern); break;
+				}
+			}
+
+			globMatcher = globs.isEmpty() ? null : new GlobMatcher(globs);
+			combinedRegex = regexes.isEmpty() ? null : Pattern.compile(String.join("|", regexes.stream().map("(?:%s)"::formatted).toList()));
+		}
+
+		boolean matches(String url)
+		{
+			if (urls.contains(url)) return true;
+			if (!hosts.isEmpty() && matchesHost(getHost(url))) return true;
+			if (prefixTrie.matches(url)) return true;
+			if (globMatcher!=null && globMatcher.matches(url)) return true;
+			if (combinedRegex!=null && combinedRegex.matcher(url).find()) return true;
+			return false;
+		}
+
+		private boolean matchesHost(String host)
+		{
+			if (host==null) return false;
+			int pos = 0;
+			while (true)
+			{
+				if (hosts.contains(host.substring(pos))) return true;
+				int dotPos = host.indexOf('.', pos);
+				if (dotPos<0) return false;
+				pos = dotPos+1;
+			}
+		}
+
+		/**
+		 * @return the host of {@code url} in lower case or {@code null}, if it has no host
+		 */
+		static String getHost(String url)
+		{
+			int start = url.indexOf("://");
+			if (start<0) return null;
+			start += 3;
+			int end = start;
+			while (end<url.length() && "/?#".indexOf(url.charAt(end))<0) end++;
+			int userInfoEnd = url.lastIndexOf('@', end-1);
+			if (userInfoEnd>=start) start = userInfoEnd+1;
+			int portPos = url.lastIndexOf(':', end-1);
+			if (portPos>=start && url.lastIndexOf(']', end-1)<portPos) end = portPos;
+			return url.substring(start, end).toLowerCase(Locale.ROOT);
+		}
+	}
+
+	private static class TrieNode
+	{
+		private final Map<Character, TrieNode> children = new HashMap<>(4);
+		private boolean isPrefixEnd = false;
+
+		TrieNode getNode(String key)
+		{
+			TrieNode node = this;
+			for (int i=0; i<key.length(); i++)
+				node = node.children.computeIfAbsent(key.charAt(i), ch -> new TrieNode());
+			return node;
+		}
+
+		boolean matches(String url)
+		{
+			TrieNode node = this;
+			for (int i=0; node!=null; i++)
+			{
+				if (node.isPrefixEnd) return true;
+				node = i<url.length() ? node.children.get(url.charAt(i)) : null;
+			}
+			return false;
+		}
+	}
+
+	/**
+	 * Matches an URL against all globs at once.
+	 * <p>
+	 * The globs are put into a trie of their characters and wildcards, that serves as one NFA.
+	 * Globs with a common beginning (like {@code "http://*."}) share its states.
+	 * The NFA is turned lazily into a DFA: Each set of NFA states, that is reached while checking an URL, becomes a DFA state,
+	 * and its transitions are cached. So a check takes one cached transition per character of the URL, regardless of the number of globs.
+	 * Only a transition, that is taken for the first time, costs time proportional to the number of NFA states in the set.
+	 * The cache is limited by {@value #MAX_CACHED_NFA_STATES} NFA states; beyond that, new transitions are computed for each check.
+	 * <p>
+	 * Thread-safe.
+	 */
+	static class GlobMatcher
+	{
+		private static final int MAX_CACHED_NFA_STATES = 1<<22;
+
+		/** trie nodes: child by "*", child by "?", children by literal characters (key: node<<16 | char) */
+		private final int[] anyCharsChild;
+		private final int[] anyCharChild;
+		private final Map<Long, Integer> literalChildren;
+		/** node was reached by "*", so it stays active with each character */
+		private final boolean[] isAnyChars;
+		/** a glob ends at this node */
+		private final boolean[] isEnd;
+
+		private final Map<StateKey, State> states;
+		private final AtomicLong cachedNfaStates;
+		private final State start;
+		private final State dead;
+
+		GlobMatcher(Collection<String> globs)
+		{
+			IntList anyCharsChildList = new IntList();
+			IntList anyCharChildList = new IntList();
+			IntList flags = new IntList();
+			literalChildren = new HashMap<>();
+			anyCharsChildList.add(-1); anyCharChildList.add(-1); flags.add(0);
+
+			for (String glob : globs)
+			{
+				int node = 0;
+				for (int i=0; i<glob.length(); i++)
+				{
+					char ch = glob.charAt(i);
+					int child = switch (ch)
+					{
+						case '*' -> anyCharsChildList.get(node);
+						case '?' -> anyCharChildList .get(node);
+						default  -> literalChildren.getOrDefault(getLiteralKey(node, ch), -1);
+					};
+					if (child<0)
+					{
+						child = flags.size();
+						anyCharsChildList.add(-1); anyCharChildList.add(-1); flags.add(ch=='*' ? 1 : 0);
+						switch (ch)
+						{
+						case '*': anyCharsChildList.set(node, child); break;
+						case '?': anyCharChildList .set(node, child); break;
+						default : literalChildren.put(getLiteralKey(node, ch), child); break;
+						}
+					}
+					node = child;
+				}
+				flags.set(node, flags.get(node) | 2);
+			}
+
+			anyCharsChild = anyCharsChildList.toArray();
+			anyCharChild  = anyCharChildList .toArray();
+			isAnyChars = new boolean[flags.size()];
+			isEnd      = new boolean[flags.size()];
+			for (int node=0; node<flags.size(); node++)
+			{
+				isAnyChars[node] = (flags.get(node) & 1)!=0;
+				isEnd     [node] = (flags.get(node) & 2)!=0;
+			}
+
+			states = new ConcurrentHashMap<>();
+			cachedNfaStates = new AtomicLong(0);
+			dead = getState(new int[0]);
+			IntList nodes = new IntList();
+			addClosure(nodes, 0);
+			start = getState(nodes.toSortedSet());
+		}
+
+		private static long getLiteralKey(int node, char ch)
+		{
+			return ((long) node << 16) | ch;
+		}
+
+		boolean matches(String url)
+		{
+			State state = start;
+			for (int i=0; i<url.length(); i++)
+			{
+				if (state.matchesAnyRest) return true;
+				if (state==dead) return false;
+				state = getNext(state, url.charAt(i));
+			}
+			return state.accepting;
+		}
+
+		private State getNext(State state, char ch)
+		{
+			State next = state.transitions.get(ch);
+			if (next!=null) return next;
+
+			IntList nodes = new IntList();
+			for (int node : state.nfaStates)
+			{
+				if (isAnyChars[node]) addClosure(nodes, node);
+				if (anyCharChild[node]>=0) addClosure(nodes, anyCharChild[node]);
+				Integer child = literalChildren.get(getLiteralKey(node, ch));
+				if (child!=null) addClosure(nodes, child);
+			}
+			next = getState(nodes.toSortedSet());
+
+			if (next.cached)
+			{
+				state.addTransition(ch, next);
+			}
+			return next;
+		}
+
+		/**
+		 * Adds {@code node} and the nodes, that are reached from it without reading a character ("*" matches nothing).
+		 */
+		private void addClosure(IntList nodes, int node)
+		{
+			nodes.add(node);
+			while ( (node = anyCharsChild[node])>=0 )
+				nodes.add(node);
+		}
+
+		private State getState(int[] nfaStates)
+		{
+			StateKey key = new StateKey(nfaStates);
+			State state = states.get(key);
+			if (state!=null) return state;
+
+			boolean accepting = false;
+			boolean matchesAnyRest = false;
+			for (int node : nfaStates)
+				if (isEnd[node])
+				{
+					accepting = true;
+					// a glob ending with "*" matches any rest of the URL
+					if (isAnyChars[node]) matchesAnyRest = true;
+				}
+
+			if (cachedNfaStates.get()+nfaStates.length > MAX_CACHED_NFA_STATES)
+				return new State(nfaStates, accepting, matchesAnyRest, false);
+
+			state = new State(nfaStates, accepting, matchesAnyRest, true);
+			State existing = states.putIfAbsent(key, state);
+			if (existing!=null) return existing;
+			cachedNfaStates.addAndGet(nfaStates.length);
+			return state;
+		}
+
+		/**
+		 * DFA state. Its cached transitions are replaced as a whole (copy on write), so they are read without lock.
+		 */
+		private static class State
+		{
+			final int[] nfaStates;
+			final boolean accepting;
+			final boolean matchesAnyRest;
+			final boolean cached;
+			volatile Transitions transitions;
+
+			State(int[] nfaStates, boolean accepting, boolean matchesAnyRest, boolean cached)
+			{
+				this.nfaStates = nfaStates;
+				this.accepting = accepting;
+				this.matchesAnyRest = matchesAnyRest;
+				this.cached = cached;
+				transitions = Transitions.EMPTY;
+			}
+
+			synchronized void addTransition(char ch, State next)
+			{
+				if (transitions.get(ch)==null)
+					transitions = transitions.with(ch, next);
+			}
+		}
+
+		/**
+		 * Immutable transitions of a DFA state.
+		 * Most states have only a few transitions, so they are kept in a short list.
+		 * Beyond {@value #MAX_LISTED} transitions, ASCII characters get a table.
+		 */
+		private static class Transitions
+		{
+			static final Transitions EMPTY = new Transitions(new char[0], new State[0], null);
+			private static final int MAX_LISTED = 8;
+			private static final int ASCII = 128;
+
+			/** all transitions, if there is no table, otherwise only the ones of non-ASCII characters */
+			private final char[] chars;
+			private final State[] targets;
+			private final State[] asciiTable;
+
+			private Transitions(char[] chars, State[] targets, State[] asciiTable)
+			{
+				this.chars = chars;
+				this.targets = targets;
+				this.asciiTable = asciiTable;
+			}
+
+			State get(char ch)
+			{
+				if (asciiTable!=null && ch<ASCII) return asciiTable[ch];
+				for (int i=0; i<chars.length; i++)
+					if (chars[i]==ch) return targets[i];
+				return null;
+			}
+
+			Transitions with(char ch, State next)
+			{
+				if (asciiTable==null && chars.length>=MAX_LISTED && ch<ASCII)
+				{
+					State[] table = new State[ASCII];
+					StringBuilder otherChars = new StringBuilder();
+					List<State> otherTargets = new ArrayList<>();
+					for (int i=0; i<chars.length; i++)
+						if (chars[i]<ASCII) table[chars[i]] = targets[i];
+						else { otherChars.append(chars[i]); otherTargets.add(targets[i]); }
+					table[ch] = next;
+					return new Transitions(otherChars.toString().toCharArray(), otherTargets.toArray(new State[0]), table);
+				}
+				if (asciiTable!=null && ch<ASCII)
+				{
+					State[] table = asciiTable.clone();
+					table[ch] = next;
+					return new Transitions(chars, targets, table);
+				}
+				char[] newChars = Arrays.copyOf(chars, chars.length+1);
+				State[] newTargets = Arrays.copyOf(targets, targets.length+1);
+				newChars[chars.length] = ch;
+				newTargets[targets.length] = next;
+				return new Transitions(newChars, newTargets, asciiTable);
+			}
+		}
+
+		private record StateKey(int[] nfaStates)
+		{
+			@Override public boolean equals(Object obj) { return obj instanceof StateKey other && Arrays.equals(nfaStates, other.nfaStates); }
+			@Override public int hashCode() { return Arrays.hashCode(nfaStates); }
+		}
+
+		private static class IntList
+		{
+			private int[] values = new int[16];
+			private int size = 0;
+
+			int size() { return size; }
+			int get(int index) { return values[index]; }
+			void set(int index, int value) { values[index] = value; }
+			int[] toArray() { return Arrays.copyOf(values, size); }
+
+			void add(int value)
+			{
+				if (size==values.length) values = Arrays.copyOf(values, size*2);
+				values[size++] = value;
+			}
+
+			int[] toSortedSet()
+			{
+				int[] result = Arrays.copyOf(values, size);
+				Arrays.sort(result);
+				int length = 0;
+				for (int i=0; i<result.length; i++)
+					if (i==0 || result[i]!=result[i-1])
+						result[length++] = result[i];
+				return length==result.length ? result : Arrays.copyOf(result, length);
+			}
+		}
+	}
+}
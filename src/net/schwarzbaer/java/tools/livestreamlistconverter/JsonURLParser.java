@@ -0,0 +1,225 @@
+package net.schwarzbaer.java.tools.livestreamlistconverter;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.net.URI;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Streaming tokenizer for JSON directory responses (e.g. of radio-browser.info or of an Icecast status page).
+ * <p>
+ * No document tree is built. Every object, that has a member with a known URL key, yields one URL,
+ * as soon as the object is closed. If an object has several of these members, the key with the highest priority wins
+ * (e.g. "url_resolved" before "url").
+ * <p>
+ * {@link #parseObjects(Reader, Consumer)} hands the string members of each object to a consumer instead (used by {@link StationImporter}).
+ */
+class JsonURLParser
+{
+	/** in order of priority */
+	private static final List<String> URL_KEYS = List.of("url_resolved", "listenurl", "listen_url", "stream_url", "streamurl", "url", "stream", "src", "file", "href");
+	private static final int MAX_DEPTH = 512;
+
+	private final Reader input;
+	private final URI base;
+	private final Consumer<String> urlConsumer;
+	private final Consumer<Map<String, String>> objectConsumer;
+	private final char[] buffer;
+	private int bufferLength;
+	private int bufferPos;
+	private long position;
+
+	private JsonURLParser(Reader input, URI base, Consumer<String> urlConsumer, Consumer<Map<String, String>> objectConsumer)
+	{
+		this.input = input;
+		this.base = base;
+		this.urlConsumer = urlConsumer;
+		this.objectConsumer = objectConsumer;
+		buffer = new char[8192];
+		bufferLength = 0;
+		bufferPos = 0;
+		position = 0;
+	}
+
+	static void parse(Reader input, URI base, Consumer<String> urlConsumer) throws IOException
+	{
+		new JsonURLParser(input, base, urlConsumer, null).parseDocument();
+	}
+
+	/**
+	 * Passes the members with string values of each object (keys in lower case) to {@code objectConsumer}, as soon as the object is closed.
+	 * Nested objects are passed before the object, that contains them. Objects without string members are skipped.
+	 */
+	static void parseObjects(Reader input, Consumer<Map<String, String>> objectConsumer) throws IOException
+	{
+		new JsonURLParser(input, null, null, objectConsumer).parseDocument();
+	}
+
+	private void parseDocument() throws IOException
+	{
+		skipValue(0);
+		if (nextNonWhitespace()>=0)
+			throw syntaxError("unexpected data after the end");
+	}
+
+	/**
+	 * @return the string, if the value is a string, {@code null} otherwise
+	 */
+	private String skipValue(int depth) throws IOException
+	{
+		if (depth>MAX_DEPTH) throw syntaxError("too deeply nested");
+		int ch = nextNonWhitespace();
+		switch (ch)
+		{
+		case '{': parseObject(depth); return null;
+		case '[': parseArray(depth); return null;
+		case '"': return readString();
+		case -1 : throw syntaxError("unexpected end");
+		default:
+			if (ch=='-' || ('0'<=ch && ch<='9') || ('a'<=ch && ch<='z'))
+			{
+				// number, true, false or null
+				while ( (ch=peek())>=0 && (ch=='-' || ch=='+' || ch=='.' || ('0'<=ch && ch<='9') || ('a'<=ch && ch<='z') || ('A'<=ch && ch<='Z')) )
+					next();
+				return null;
+			}
+			throw syntaxError("unexpected character '%c'".formatted((char) ch));
+		}
+	}
+
+	private void parseObject(int depth) throws IOException
+	{
+		String bestURL = null;
+		int bestPriority = URL_KEYS.size();
+		Map<String, String> members = null;
+
+		int ch = nextNonWhitespace();
+		if (ch!='}')
+			while (true)
+			{
+				if (ch!='"') throw syntaxError("expected a member name");
+				String key = readString();
+				if (nextNonWhitespace()!=':') throw syntaxError("expected ':'");
+				String value = skipValue(depth+1);
+
+				if (objectConsumer!=null)
+				{
+					if (value!=null)
+					{
+						if (members==null) members = new HashMap<>();
+						members.put(key.toLowerCase(Locale.ROOT), value);
+					}
+				}
+				else
+				{
+					int priority = value==null ? -1 : URL_KEYS.indexOf(key.toLowerCase(Locale.ROOT));
+					if (priority>=0 && priority<bestPriority)
+					{
+						String url = SourceType.resolveURL(base, value.trim());
+						if (url!=null)
+						{
+							bestURL = url;
+							bestPriority = priority;
+						}
+					}
+				}
+
+				ch = nextNonWhitespace();
+				if (ch=='}') break;
+				if (ch!=',') throw syntaxError("expected ',' or '}'");
+				ch = nextNonWhitespace();
+			}
+
+		if (members!=null)
+			objectConsumer.accept(members);
+		if (bestURL!=null)
+			urlConsumer.accept(bestURL);
+	}
+
+	private void parseArray(int depth) throws IOException
+	{
+		if (peekNonWhitespace()==']') { next(); return; }
+		while (true)
+		{
+			skipValue(depth+1);
+			int ch = nextNonWhitespace();
+			if (ch==']') return;
+			if (ch!=',') throw syntaxError("expected ',' or ']'");
+		}
+	}
+
+	private String readString() throws IOException
+	{
+		StringBuilder sb = new StringBuilder();
+		while (true)
+		{
+			int ch = next();
+			if (ch<0) throw syntaxError("unterminated string");
+			if (ch=='"') return sb.toString();
+			if (ch!='\\') { sb.append((char) ch); continue; }
+
+			ch = next();
+			switch (ch)
+			{
+			case '"', '\\', '/': sb.append((char) ch); break;
+			case 'b': sb.append('\b'); break;
+			case 'f': sb.append('\f'); break;
+			case 'n': sb.append('\n'); break;
+			case 'r': sb.append('\r'); break;
+			case 't': sb.append('\t'); break;
+			case 'u':
+				int value = 0;
+				for (int i=0; i<4; i++)
+				{
+					int digit = Character.digit(next(), 16);
+					if (digit<0) throw syntaxError("invalid unicode escape");
+					value = value*16 + digit;
+				}
+				sb.append((char) value);
+				break;
+			default: throw syntaxError("invalid escape sequence");
+			}
+		}
+	}
+
+	private Station.ParseException syntaxError(String message)
+	{
+		return new Station.ParseException("Invalid JSON at position %d: %s".formatted(position, message));
+	}
+
+	private int nextNonWhitespace() throws IOException
+	{
+		int ch;
+		do ch = next(); while (ch==' ' || ch=='\t' || ch=='\r' || ch=='\n');
+		return ch;
+	}
+
+	private int peekNonWhitespace() throws IOException
+	{
+		int ch;
+		while ( (ch=peek())==' ' || ch=='\t' || ch=='\r' || ch=='\n' ) next();
+		return ch;
+	}
+
+	private int next() throws IOException
+	{
+		int ch = peek();
+		if (ch>=0) { bufferPos++; position++; }
+		return ch;
+	}
+
+	private int peek() throws IOException
+	{
+		if (bufferPos>=bufferLength)
+		{
+			bufferLength = input.read(buffer);
+			bufferPos = 0;
+			if (bufferLength<=0) { bufferLength = 0; return -1; }
+		}
+		return buffer[bufferPos];
+	}
+}
@@ -8,107 +8,78 @@ import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.PrintWriter;
 import java.nio.charset.StandardCharsets;
-import java.util.Arrays;
-import java.util.HashSet;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Set;
-import java.util.Vector;
-
-import javax.swing.DefaultListModel;
 
 class KnownStations
 {
-	final Vector<Station> stationList = new Vector<>();
-	final Set<String> ignoredStreamURLs = new HashSet<>();
+	final StationStore stationStore = new StationStore();
+	final IgnoreRules ignoreRules = new IgnoreRules();
 
-	Integer moveStation(int index, int inc)
+	/**
+	 * @return the new indexes of the moved stations or {@code null}, if they can't be moved
+	 */
+	int[] moveStations(int[] indexes, int inc)
 	{
-		int from = index;
-		int to = from+inc;
-		if (0<=Math.min(from, to) && Math.max(from, to)<stationList.size())
-		{
-			Station station = stationList.get(from);
-			stationList.removeElementAt(from);
-			stationList.insertElementAt(station, to);
-			return to;
-		}
-		return null;
+		return stationStore.move(indexes, inc);
 	}
 
 	void deleteStations(int[] indexes)
 	{
-		Arrays.sort(indexes);
-		for (int i=indexes.length-1; i>=0; i--)
-		{
-			int index = indexes[i];
-			if (0<=index && index<stationList.size())
-				stationList.removeElementAt(index);
-		}
+		stationStore.removeAll(indexes);
 	}
 
-	void replaceStationsInList(DefaultListModel<Station> listModel)
-	{
-		listModel.removeAllElements();
-		listModel.addAll(stationList);
-	}
-
-	boolean hasStations() { return !stationList.isEmpty(); }
-	int getStationCount() { return stationList.size(); }
-	Station getStation(int index) { return index<0 || index>=stationList.size() ? null : stationList.get(index); }
+	boolean hasStations() { return !stationStore.isEmpty(); }
+	int getStationCount() { return stationStore.size(); }
+	Station getStation(int index) { return stationStore.get(index); }
+	List<Station> getStations() { return stationStore.getAll(); }
 
 	Station addNewStation()
 	{
 		Station station = new Station();
-		stationList.add(station);
+		stationStore.add(station);
 		return station;
 	}
 
-	interface ForEachStationAction
-	{
-		boolean doWith(int index, Station station);
-	}
-	
-	void forEachStation(KnownStations.ForEachStationAction action)
+	void forEachStation(StationStore.ForEachStationAction action)
 	{
-		boolean dontStop = true;
-		for (int i=0; i<stationList.size() && dontStop; i++)
-			dontStop = action.doWith(i, stationList.get(i));
+		stationStore.forEach(action);
 	}
 
-	boolean isIgnoredStreamURL(String url) { return ignoredStreamURLs.contains(url); }
-	void addIgnoredStreamURL(String url) { ignoredStreamURLs.add(url); }
-	void deleteIgnoredStreamURLs(List<String> urls) { urls.forEach(ignoredStreamURLs::remove); }
+	boolean isIgnoredStreamURL(String url) { return ignoreRules.matches(url); }
+	void addIgnoreRule(IgnoreRules.Rule rule) { ignoreRules.add(rule); }
+	void deleteIgnoreRules(List<IgnoreRules.Rule> rules) { ignoreRules.removeAll(rules); }
+	void replaceIgnoreRule(IgnoreRules.Rule oldRule, IgnoreRules.Rule newRule) { ignoreRules.replace(oldRule, newRule); }
 
-	void replaceIgnoredStreamURL(String oldUrl, String newUrl)
+	void writeToFile()
 	{
-		ignoredStreamURLs.remove(oldUrl);
-		ignoredStreamURLs.add(newUrl);
+		writeToFile(new File(LiveStreamListConverter.FILENAME_STATIONS_LIST));
 	}
 
-	void writeToFile()
+	void writeToFile(File file)
 	{
-		File file = new File(LiveStreamListConverter.FILENAME_STATIONS_LIST);
 		System.out.printf("Write StationList to file \"%s\" ...%n", file.getAbsolutePath());
 		
 		try (PrintWriter output = new PrintWriter(file, StandardCharsets.UTF_8))
 		{
-			if (!ignoredStreamURLs.isEmpty())
+			if (!ignoreRules.isEmpty())
 			{
 				output.println("[IgnoredStreamURLs]");
-				List<String> urls = ignoredStreamURLs.stream().sorted().toList();
-				for (String url : urls)
-					output.printf("url=%s%n", url);
+				for (IgnoreRules.Rule rule : ignoreRules.getSortedRules())
+					output.printf("%s=%s%n", rule.type().name(), rule.pattern());
 				output.println();
 			}
 			
-			if (!stationList.isEmpty())
+			List<Station> stations = stationStore.getAll();
+			if (!stations.isEmpty())
 			{
-				for (Station station : stationList)
+				for (Station station : stations)
 				{
 					output.println("[Station]");
 					if (station.url  != null) output.printf("url=%s%n" , station.url );
 					if (station.name != null) output.printf("name=%s%n", station.name);
 					if (station.type != null) output.printf("type=%s%n", station.type.name());
+					station.fetchPolicy.writeToFile(output, "fetch.");
 					output.println();
 				}
 			}
@@ -124,48 +95,67 @@ class KnownStations
 
 	void readFromFile()
 	{
-		File file = new File(LiveStreamListConverter.FILENAME_STATIONS_LIST);
+		readFromFile(new File(LiveStreamListConverter.FILENAME_STATIONS_LIST));
+	}
+
+	void readFromFile(File file)
+	{
 		System.out.printf("Read StationList from file \"%s\" ...%n", file.getAbsolutePath());
 		
-		stationList.clear();
-		ignoredStreamURLs.clear();
+		List<Station> stations = new ArrayList<>();
+		ignoreRules.clear();
 		
+		ConfigReader reader = new ConfigReader("StationList");
 		try (BufferedReader input = new BufferedReader( new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)))
 		{
-			String line, valueStr;
-			Station station = null;
-			boolean inIgnoredStreamURLsSection = false;
-			while( (line=input.readLine())!=null )
-			{
-				if (line.toLowerCase().equals("[station]"))
-				{
-					stationList.add(station = new Station());
-					inIgnoredStreamURLsSection = false;
-				}
-				if (line.toLowerCase().equals("[ignoredstreamurls]"))
-				{
-					station = null;
-					inIgnoredStreamURLsSection = true;
-				}
+			reader.read(input, new ConfigReader.Handler() {
+				private Station station = null;
+				private boolean inIgnoredStreamURLsSection = false;
 				
-				if (station!=null)
+				@Override public boolean section(String name)
 				{
-					if ( (valueStr = LiveStreamListConverter.parseValue(line,"url=" ))!=null ) station.url  = valueStr;
-					if ( (valueStr = LiveStreamListConverter.parseValue(line,"name="))!=null ) station.name = valueStr;
-					if ( (valueStr = LiveStreamListConverter.parseValue(line,"type="))!=null ) station.type = SourceType.parseSourceType(valueStr);
+					station = null;
+					inIgnoredStreamURLsSection = false;
+					switch (name)
+					{
+					case "station"          : stations.add(station = new Station()); return true;
+					case "ignoredstreamurls": inIgnoredStreamURLsSection = true; return true;
+					}
+					return false;
 				}
 				
-				if (inIgnoredStreamURLsSection)
+				@Override public boolean value(String key, String value)
 				{
-					if ( (valueStr = LiveStreamListConverter.parseValue(line,"url=" ))!=null ) ignoredStreamURLs.add(valueStr);
+					if (station!=null)
+						switch (key)
+						{
+						case "url" : station.url  = value; return true;
+						case "name": station.name = value; return true;
+						case "type":
+							station.type = SourceType.get(value);
+							if (station.type==null) reader.reportInvalidValue(key, value);
+							return true;
+						default:
+							return key.startsWith("fetch.") && station.fetchPolicy.parseValue(key, key.substring("fetch.".length()), value, reader);
+						}
+					
+					if (inIgnoredStreamURLsSection)
+					{
+						IgnoreRules.Type type = IgnoreRules.Type.parse(key);
+						if (type==null) return false;
+						ignoreRules.add(new IgnoreRules.Rule(type, value));
+						return true;
+					}
+					return false;
 				}
-			}
+			});
 		}
 		catch (FileNotFoundException ex) {}
 		catch (IOException ex) {
 			System.err.printf("IOException while reading StationList: %s%n", ex.getMessage());
 			//ex.printStackTrace();
 		}
+		stationStore.replaceAll(stations);
 		
 		System.out.println("... done");
 	}
@@ -4,15 +4,18 @@ import java.awt.BorderLayout;
 import java.awt.Color;
 import java.awt.Component;
 import java.awt.Window;
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.InvocationTargetException;
 import java.util.Arrays;
 import java.util.List;
-import java.util.Set;
 import java.util.Vector;
 import java.util.function.Function;
 import java.util.function.Supplier;
 
 import javax.swing.BorderFactory;
 import javax.swing.JComponent;
+import javax.swing.JFileChooser;
 import javax.swing.JOptionPane;
 import javax.swing.JPanel;
 import javax.swing.JScrollPane;
@@ -22,10 +25,12 @@ import javax.swing.JToolBar;
 import javax.swing.ListSelectionModel;
 import javax.swing.SwingConstants;
 import javax.swing.SwingUtilities;
+import javax.swing.filechooser.FileNameExtensionFilter;
 import javax.swing.table.TableCellRenderer;
 
 import net.schwarzbaer.java.lib.gui.Disabler;
 import net.schwarzbaer.java.lib.gui.GeneralIcons.GrayCommandIcons;
+import net.schwarzbaer.java.lib.gui.ProgressDialog;
 import net.schwarzbaer.java.lib.gui.Tables;
 import net.schwarzbaer.java.lib.system.Settings.DefaultAppSettings.SplitPaneDividersDefinition;
 import net.schwarzbaer.java.tools.livestreamlistconverter.LiveStreamListConverter.AppSettings;
@@ -39,6 +44,7 @@ class KnownStationsPanel extends JPanel
 	private final StationListPanel stationListPanel;
 	private final IgnoredStreamURLsPanel ignoredStreamURLsPanel;
 	private final JSplitPane splitPane;
+	private final JFileChooser importFileChooser;
 
 	KnownStationsPanel(Window parent, KnownStations knownStations, Runnable readKnownStations)
 	{
@@ -48,6 +54,9 @@ class KnownStationsPanel extends JPanel
 		disabler = new Disabler<>();
 		disabler.setCareFor(Commands.values());
 		
+		importFileChooser = new JFileChooser("./");
+		importFileChooser.setFileFilter(new FileNameExtensionFilter("Station Directory (CSV, JSON)", "csv", "tsv", "txt", "json"));
+		
 		JToolBar toolBar = new JToolBar();
 		toolBar.setFloatable(false);
 		toolBar.add(addCommand(Commands.ReadList , LiveStreamListConverter.createButton("Read List from File", GrayCommandIcons.IconGroup.Folder, e -> {
@@ -57,6 +66,10 @@ class KnownStationsPanel extends JPanel
 			this.knownStations.writeToFile();
 			resetChangesFlag();
 		})));
+		toolBar.addSeparator();
+		toolBar.add(addCommand(Commands.ImportStations, LiveStreamListConverter.createButton("Import Stations", GrayCommandIcons.IconGroup.Add, e -> {
+			importStations(parent);
+		})));
 		
 		splitPane = new JSplitPane(
 				JSplitPane.VERTICAL_SPLIT, true,
@@ -73,7 +86,7 @@ class KnownStationsPanel extends JPanel
 		splitPaneDividersDefinition.add(splitPane, AppSettings.ValueKey.SplitPaneDivider_KnownStationsPanelSplitPane);
 	}
 
-	enum Commands { ReadList, WriteList, StationDelete, StationMoveUp, StationMoveDown, IgnoredURLDelete }
+	enum Commands { ReadList, WriteList, ImportStations, StationDelete, StationMoveUp, StationMoveDown, IgnoredURLDelete }
 	
 	private <C extends JComponent> C addCommand(Commands command, C comp)
 	{
@@ -90,7 +103,7 @@ class KnownStationsPanel extends JPanel
 		disabler.setEnable(command ->
 			switch (command)
 			{
-			case ReadList  -> enabled;
+			case ReadList, ImportStations -> enabled;
 			case WriteList -> enabled && (stationListPanel.hasChanges() || ignoredStreamURLsPanel.hasChanges());
 			
 			case StationDelete, StationMoveDown, StationMoveUp
@@ -101,6 +114,65 @@ class KnownStationsPanel extends JPanel
 		);
 	}
 	
+	private void importStations(Window parent)
+	{
+		if (importFileChooser.showOpenDialog(parent)!=JFileChooser.APPROVE_OPTION) return;
+		File file = importFileChooser.getSelectedFile();
+		
+		ProgressDialog.runWithProgressDialog(parent, "Import Stations", 200, pd -> {
+			int stationCountBefore = knownStations.getStationCount();
+			// batches are added in the event dispatch thread, because the table listens to the store
+			StationImporter importer = new StationImporter(
+					url -> !knownStations.stationStore.getByURL(url).isEmpty(),
+					batch -> runInEventDispatchThread(() -> knownStations.stationStore.addAll(batch))
+			);
+			String message;
+			int messageType;
+			try
+			{
+				StationImporter.Result result = importer.importFile(file, StationImporter.Format.detect(file), ProgressReporter.of(pd));
+				System.out.printf("Import stations from \"%s\": %s%n", file.getAbsolutePath(), result);
+				message = result.toString();
+				messageType = JOptionPane.INFORMATION_MESSAGE;
+			}
+			catch (IOException ex)
+			{
+				System.err.printf("IOException while importing stations from \"%s\": %s%n", file.getAbsolutePath(), ex.getMessage());
+				message = "Import stopped: %s%n%d stations were imported before.".formatted(ex.getMessage(), knownStations.getStationCount()-stationCountBefore);
+				messageType = JOptionPane.ERROR_MESSAGE;
+			}
+			
+			String message_ = message;
+			int messageType_ = messageType;
+			SwingUtilities.invokeLater(() -> {
+				if (knownStations.getStationCount()!=stationCountBefore)
+				{
+					stationListPanel.tableModel.setHasChanges(true);
+					updateGuiAccess();
+				}
+				JOptionPane.showMessageDialog(parent, message_, "Import Stations", messageType_);
+			});
+		});
+	}
+
+	private static void runInEventDispatchThread(Runnable task)
+	{
+		try
+		{
+			// waits, so the importer doesn't run ahead of the GUI
+			SwingUtilities.invokeAndWait(task);
+		}
+		catch (InterruptedException ex)
+		{
+			SwingUtilities.invokeLater(task);
+			Thread.currentThread().interrupt();
+		}
+		catch (InvocationTargetException ex)
+		{
+			throw new IllegalStateException(ex.getCause());
+		}
+	}
+
 	private void updateGuiAccess()
 	{
 		setEnabled(isEnabled());
@@ -128,24 +200,25 @@ class KnownStationsPanel extends JPanel
 			super("Ignored Stream URLs", IgnoredStreamURLsTableModel::new);
 			
 			toolBar.add(addCommand(Commands.IgnoredURLDelete, LiveStreamListConverter.createButton("Delete Selected", GrayCommandIcons.IconGroup.Delete, e -> {
-				List<String> urls = Arrays
+				List<IgnoreRules.Rule> rules = Arrays
 					.stream(table.getSelectedRows())
 					.filter(i -> i>=0)
 					.map(table::convertRowIndexToModel)
 					.filter(i -> i>=0)
 					.mapToObj(index -> tableModel.getRow(index))
+					.filter(rule -> rule!=null)
 					.toList();
 				
 				Vector<String> msg = new Vector<>();
 				msg.add("Are you sure?");
-				msg.add("Do you really want to delete %d urls:".formatted(urls.size()));
-				for (int i=0; i<urls.size(); i++)
-					msg.add("    [%d] %s".formatted(i+1, urls.get(i)));
+				msg.add("Do you really want to delete %d rules:".formatted(rules.size()));
+				for (int i=0; i<rules.size(); i++)
+					msg.add("    [%d] %s: %s".formatted(i+1, rules.get(i).type(), rules.get(i).pattern()));
 				
 				int result = JOptionPane.showConfirmDialog(parent, msg.toArray(String[]::new), "Delete Ignored Stream URLs", JOptionPane.YES_NO_CANCEL_OPTION, JOptionPane.WARNING_MESSAGE);
 				if (result == JOptionPane.YES_OPTION)
 				{
-					knownStations.deleteIgnoredStreamURLs(urls);
+					knownStations.deleteIgnoreRules(rules);
 					tableModel.updateTableData();
 					tableModel.setHasChanges(true);
 					updateGuiAccess();
@@ -170,35 +243,87 @@ class KnownStationsPanel extends JPanel
 		}
 	}
 	
-	private class IgnoredStreamURLsTableModel extends AbstractTableModel<String, IgnoredStreamURLsTableModel.ColumnID>
+	private class IgnoredStreamURLsTableModel extends AbstractTableModel<IgnoreRules.Rule, IgnoredStreamURLsTableModel.ColumnID>
 	{
-		enum ColumnID implements Tables.AbstractGetValueTableModel.ColumnIDTypeInt<String>
+		enum ColumnID implements Tables.AbstractGetValueTableModel.ColumnIDTypeInt<IgnoreRules.Rule>
 		{
-			Index ("#"   , Integer.class,  30, null),
-			URL   ("URL" ,  String.class, 450, url -> url),
+			Index   ("#"      ,           Integer.class,  30, null),
+			Type    ("Type"   , IgnoreRules.Type.class,  60, IgnoreRules.Rule::type),
+			Pattern ("Pattern",            String.class, 450, IgnoreRules.Rule::pattern),
 			;
 			private final Tables.SimplifiedColumnConfig cfg;
-			private final Function<String, ?> getValue;
+			private final Function<IgnoreRules.Rule, ?> getValue;
 			
-			<V> ColumnID(String name, Class<V> columnClass, int width, Function<String,V> getValue)
+			<V> ColumnID(String name, Class<V> columnClass, int width, Function<IgnoreRules.Rule,V> getValue)
 			{
 				this.cfg = new Tables.SimplifiedColumnConfig(name, columnClass, 20, -1, width, width);
 				this.getValue = getValue;
 			}
 		
 			@Override public Tables.SimplifiedColumnConfig getColumnConfig() { return cfg; }
-			@Override public Function<String, ?> getGetValue() { return getValue; }
+			@Override public Function<IgnoreRules.Rule, ?> getGetValue() { return getValue; }
 		}
+		
+		/** type of the next rule, that is added in the last row */
+		private IgnoreRules.Type newRuleType;
 	
 		IgnoredStreamURLsTableModel()
 		{
-			super(ColumnID.values(), getSortedList(knownStations.ignoredStreamURLs), ColumnID.Index);
+			super(ColumnID.values(), getSortedList(knownStations.ignoreRules), ColumnID.Index);
+			newRuleType = IgnoreRules.Type.url;
 		}
 		
-		private static Vector<String> getSortedList(Set<String> data)
+		private static Vector<IgnoreRules.Rule> getSortedList(IgnoreRules rules)
 		{
-			List<String> list = data.stream().sorted().toList();
-			return new Vector<>(list);
+			return new Vector<>(rules.getSortedRules());
+		}
+
+		@Override
+		public void setDefaultCellEditorsAndRenderers()
+		{
+			super.setDefaultCellEditorsAndRenderers();
+			
+			setCellEditor(ColumnID.Type, new Tables.ComboboxCellEditor<>(IgnoreRules.Type.values()));
+			
+			IgnoreRuleTableCellRenderer tcr = new IgnoreRuleTableCellRenderer();
+			setCellRenderer(ColumnID.Type   , tcr);
+			setCellRenderer(ColumnID.Pattern, tcr);
+		}
+		
+		private class IgnoreRuleTableCellRenderer implements TableCellRenderer
+		{
+			private final Tables.LabelRendererComponent comp;
+			
+			IgnoreRuleTableCellRenderer()
+			{
+				this.comp = new Tables.LabelRendererComponent();
+			}
+
+			@Override
+			public Component getTableCellRendererComponent(JTable table, Object value, boolean isSelected, boolean hasFocus, int rowV, int columnV)
+			{
+				int rowM    = rowV   <0 ? -1 : table.convertRowIndexToModel(rowV);
+				int columnM = columnV<0 ? -1 : table.convertColumnIndexToModel(columnV);
+				ColumnID columnID = getColumnID(columnM);
+				IgnoreRules.Rule rule = rowM+1 == getRowCount() ? null : getRow(rowM);
+				
+				String valueStr = value==null ? "" : value.toString();
+				String error = rule==null ? null : rule.getError();
+				Supplier<Color> getCustomBackground = error!=null ? ()->Color.RED : null;
+				comp.configureAsTableCellRendererComponent(table, null, valueStr, isSelected, hasFocus, getCustomBackground, null);
+				comp.setHorizontalAlignment(columnID == ColumnID.Type ? SwingConstants.CENTER : SwingConstants.LEFT);
+				comp.setToolTipText(error);
+				
+				return comp;
+			}
+		}
+
+		@Override
+		public Object getValueAt(int rowIndex, int columnIndex, ColumnID columnID)
+		{
+			if (columnID == ColumnID.Type && rowIndex+1 == getRowCount())
+				return newRuleType;
+			return super.getValueAt(rowIndex, columnIndex, columnID);
 		}
 		
 		@Override
@@ -207,7 +332,7 @@ class KnownStationsPanel extends JPanel
 			return switch (columnID)
 					{
 					case Index -> false;
-					case URL -> true;
+					case Type, Pattern -> true;
 					};
 		}
 		
@@ -217,17 +342,26 @@ class KnownStationsPanel extends JPanel
 			if (columnID==null || aValue==null)
 				return;
 			
-			String oldUrl = rowIndex+1 == getRowCount() ? null : getRow(rowIndex);
+			IgnoreRules.Rule oldRule = rowIndex+1 == getRowCount() ? null : getRow(rowIndex);
 			
 			switch (columnID)
 			{
 			case Index: break;
-			case URL  :
-				String newUrl = (String)aValue;
-				if (oldUrl==null)
-					knownStations.addIgnoredStreamURL( newUrl );
+			case Type :
+				IgnoreRules.Type newType = (IgnoreRules.Type)aValue;
+				if (oldRule==null)
+				{
+					newRuleType = newType;
+					return;
+				}
+				knownStations.replaceIgnoreRule( oldRule, new IgnoreRules.Rule(newType, oldRule.pattern()) );
+				break;
+			case Pattern:
+				String newPattern = (String)aValue;
+				if (oldRule==null)
+					knownStations.addIgnoreRule( new IgnoreRules.Rule(newRuleType, newPattern) );
 				else
-					knownStations.replaceIgnoredStreamURL( oldUrl, newUrl );
+					knownStations.replaceIgnoreRule( oldRule, new IgnoreRules.Rule(oldRule.type(), newPattern) );
 				break;
 			}
 			
@@ -239,7 +373,7 @@ class KnownStationsPanel extends JPanel
 
 		void updateTableData()
 		{
-			setData( getSortedList( knownStations.ignoredStreamURLs ) );
+			setData( getSortedList( knownStations.ignoreRules ) );
 			repaint();
 			updateGuiAccess();
 		}
@@ -278,7 +412,6 @@ class KnownStationsPanel extends JPanel
 				if (result == JOptionPane.YES_OPTION)
 				{
 					knownStations.deleteStations(selectedRowsM);
-					tableModel.fireTableUpdate();
 					tableModel.setHasChanges(true);
 					updateGuiAccess();
 				}
@@ -289,17 +422,24 @@ class KnownStationsPanel extends JPanel
 
 		private void moveStation(int inc)
 		{
-			if (table.getSelectedRowCount() != 1) return;
-			int rowV = table.getSelectedRow();
-			int rowM = rowV<0 ? -1 : table.convertRowIndexToModel(rowV);
-			if (rowM<0) return;
-			Integer newIndex = knownStations.moveStation(rowM, inc);
-			if (newIndex!=null)
+			int[] selectedRowsM = Arrays
+				.stream(table.getSelectedRows())
+				.filter(i -> i>=0)
+				.map(table::convertRowIndexToModel)
+				.filter(i -> i>=0)
+				.toArray();
+			if (selectedRowsM.length==0) return;
+			int[] newIndexes = knownStations.moveStations(selectedRowsM, inc);
+			if (newIndexes!=null)
 			{
-				tableModel.fireTableUpdate();
 				tableModel.setHasChanges(true);
 				updateGuiAccess();
-				table.setRowSelectionInterval(newIndex.intValue(), newIndex.intValue());
+				table.clearSelection();
+				for (int rowM : newIndexes)
+				{
+					int rowV = table.convertRowIndexToView(rowM);
+					if (rowV>=0) table.addRowSelectionInterval(rowV, rowV);
+				}
 			}
 		}
 
@@ -314,17 +454,15 @@ class KnownStationsPanel extends JPanel
 		{
 			return switch(command)
 					{
-					case StationDelete
+					case StationDelete, StationMoveDown, StationMoveUp
 						-> table.getSelectedRowCount() > 0;
-					case StationMoveDown, StationMoveUp
-						-> table.getSelectedRowCount() == 1;
 					default
 						-> false;
 					};
 		}
 	}
 
-	private class StationListTableModel extends AbstractTableModel<Station, StationListTableModel.ColumnID>
+	private class StationListTableModel extends AbstractTableModel<Station, StationListTableModel.ColumnID> implements StationStore.Listener
 	{
 		// ColumnWidths: [25, 305, 450, 46] in ModelOrdery
 		enum ColumnID implements Tables.AbstractGetValueTableModel.ColumnIDTypeInt<Station>
@@ -350,9 +488,15 @@ class KnownStationsPanel extends JPanel
 
 		StationListTableModel()
 		{
-			super(ColumnID.values(), knownStations.stationList, ColumnID.Index);
+			super(ColumnID.values(), knownStations.stationStore.getTableData(), ColumnID.Index);
+			knownStations.stationStore.addListener(this);
 		}
 
+		@Override public void stationsAdded  (int firstIndex, int lastIndex) { fireTableRowsInserted(firstIndex, lastIndex); }
+		@Override public void stationsRemoved(int firstIndex, int lastIndex) { fireTableRowsDeleted (firstIndex, lastIndex); }
+		@Override public void stationsChanged(int firstIndex, int lastIndex) { fireTableRowsUpdated (firstIndex, lastIndex); }
+		@Override public void stationsReplaced() { fireTableUpdate(); }
+
 		@Override
 		public void setDefaultCellEditorsAndRenderers()
 		{
@@ -422,29 +566,23 @@ class KnownStationsPanel extends JPanel
 				return;
 			
 			Station row;
-			boolean newRow = false;
 			if (rowIndex+1 == getRowCount())
-			{
 				row = knownStations.addNewStation();
-				newRow = true;
-			}
 			else
 				row = getRow(rowIndex);
 			
 			if (row==null)
 				return;
 			
+			StationStore stationStore = knownStations.stationStore;
 			switch (columnID)
 			{
 			case Index: break;
-			case Name: row.name = (String)aValue; break;
-			case URL : row.url  = (String)aValue; break;
-			case Type: row.type = (SourceType)aValue; break;
+			case Name: stationStore.setName(row, (String)aValue); break;
+			case URL : stationStore.setURL (row, (String)aValue); break;
+			case Type: stationStore.setType(row, (SourceType)aValue); break;
 			}
 			
-			if (newRow)
-				fireTableUpdate();
-			
 			hasChanges = true;
 			updateGuiAccess();
 		}
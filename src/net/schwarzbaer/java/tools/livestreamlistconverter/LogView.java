@@ -0,0 +1,365 @@
+package net.schwarzbaer.java.tools.livestreamlistconverter;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashSet;
+
+import javax.swing.AbstractListModel;
+import javax.swing.DefaultComboBoxModel;
+import javax.swing.DefaultListCellRenderer;
+import javax.swing.JComboBox;
+import javax.swing.JLabel;
+import javax.swing.JList;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JToolBar;
+import javax.swing.ListSelectionModel;
+import javax.swing.UIManager;
+
+import net.schwarzbaer.java.lib.gui.Tables;
+
+/**
+ * Log of the determination of stream URLs.
+ * <p>
+ * Entries are kept in a ring buffer with a fixed capacity. If it's full, each new entry replaces the oldest one,
+ * so memory use is bounded and appending is O(1), regardless of how many determinations run in a session.
+ * The entries are shown in a {@link JList} with fixed cell sizes, so only the visible rows are rendered.
+ * <p>
+ * The view can be filtered by station. The filter holds the sequence numbers of the matching entries
+ * and is extended with each appended entry; only a change of the filter scans the whole buffer.
+ * All methods have to be called on the event dispatch thread.
+ */
+class LogView extends JPanel
+{
+	private static final long serialVersionUID = 7215566094802379712L;
+	static final int DEFAULT_CAPACITY = 50_000;
+	private static final String ALL_STATIONS = "<all stations>";
+
+	enum Type { station, list, adress }
+
+	enum Mark
+	{
+		none     (""           ),
+		ignored  ("[IGNORED] "  ),
+		duplicate("[DUPLICATE] "),
+		alive    ("[ALIVE] "    ),
+		offline  ("[OFFLINE] "  ),
+		;
+		final String prefix;
+		Mark(String prefix) { this.prefix = prefix; }
+	}
+
+	/**
+	 * @param station  station, the entry belongs to
+	 * @param text  name of the station, URL of its list or URL (or probe description) of a stream adress, depending on {@code type}
+	 */
+	record Entry(Type type, Station station, String text, Mark mark)
+	{
+		static Entry station(Station station) { return new Entry(Type.station, station, station.name, Mark.none); }
+		static Entry list   (Station station) { return new Entry(Type.list   , station, station.url , Mark.none); }
+		static Entry adress (Station station, String text, Mark mark) { return new Entry(Type.adress, station, text, mark); }
+
+		boolean isIgnored() { return mark==Mark.ignored; }
+
+		@Override
+		public String toString()
+		{
+			return switch (type)
+			{
+				case station -> "station: "+text;
+				case list    -> "  list: "+text;
+				case adress  -> "    "+mark.prefix+text;
+			};
+		}
+	}
+
+	final int capacity;
+	private final RingBuffer<Entry> entries;
+	private final SeqRing filteredSeqs;
+	private Station filter;
+	private long clearedSeq;
+	private int maxTextLength;
+	private final HashSet<Station> stationsInLog;
+
+	private final LogListModel listModel;
+	private final JList<Entry> list;
+	private final DefaultComboBoxModel<Object> stationFilterModel;
+	private final JComboBox<Object> stationFilter;
+	private final JLabel statusLabel;
+	private boolean ignoreFilterEvents;
+
+	LogView(int capacity)
+	{
+		super(new BorderLayout(2,2));
+		this.capacity = Math.max(1, capacity);
+		entries = new RingBuffer<>(this.capacity);
+		filteredSeqs = new SeqRing(this.capacity);
+		filter = null;
+		clearedSeq = 0;
+		maxTextLength = 0;
+		stationsInLog = new HashSet<>();
+		ignoreFilterEvents = false;
+
+		listModel = new LogListModel();
+		list = new JList<>(listModel);
+		list.setSelectionMode(ListSelectionModel.MULTIPLE_INTERVAL_SELECTION);
+		Font font = UIManager.getFont("TextArea.font");
+		list.setFont(new Font(Font.MONOSPACED, Font.PLAIN, font==null ? 12 : font.getSize()));
+		list.setCellRenderer(new EntryRenderer());
+		// fixed cell sizes: JList doesn't measure all rows after each change
+		list.setFixedCellHeight(getCellSize(Entry.adress(null, "Xy", Mark.none)).height);
+		list.setFixedCellWidth(getCellSize(Entry.adress(null, "", Mark.none)).width);
+
+		stationFilterModel = new DefaultComboBoxModel<>(new Object[] { ALL_STATIONS });
+		stationFilter = new JComboBox<>(stationFilterModel);
+		stationFilter.setRenderer(new Tables.NonStringRenderer<>(obj -> obj instanceof Station station ? station.name : String.valueOf(obj)));
+		stationFilter.addActionListener(e -> {
+			if (!ignoreFilterEvents)
+				setFilter(stationFilter.getSelectedItem() instanceof Station station ? station : null);
+		});
+		statusLabel = new JLabel(" ");
+
+		JToolBar toolBar = new JToolBar();
+		toolBar.setFloatable(false);
+		toolBar.add(new JLabel("Station: "));
+		toolBar.add(stationFilter);
+		toolBar.addSeparator();
+		toolBar.add(statusLabel);
+
+		add(toolBar, BorderLayout.PAGE_START);
+		add(new JScrollPane(list), BorderLayout.CENTER);
+	}
+
+	private Dimension getCellSize(Entry entry)
+	{
+		return list.getCellRenderer().getListCellRendererComponent(list, entry, 0, false, false).getPreferredSize();
+	}
+
+	void clear()
+	{
+		int oldSize = listModel.getSize();
+		entries.clear();
+		filteredSeqs.clear();
+		clearedSeq = entries.getNextSeq();
+		stationsInLog.clear();
+		if (oldSize>0) listModel.fireRemoved(0, oldSize-1);
+
+		// filter stays on "all stations", the stations of the next determination are new objects after a reload
+		ignoreFilterEvents = true;
+		filter = null;
+		stationFilterModel.removeAllElements();
+		stationFilterModel.addElement(ALL_STATIONS);
+		stationFilter.setSelectedIndex(0);
+		ignoreFilterEvents = false;
+		updateStatus();
+	}
+
+	void append(Collection<Entry> newEntries)
+	{
+		if (newEntries.isEmpty()) return;
+		int oldSize = listModel.getSize();
+		long oldFirstSeq = entries.getFirstSeq();
+		int droppedFiltered = 0;
+		int longestNewText = maxTextLength;
+
+		for (Entry entry : newEntries)
+		{
+			long seq = entries.add(entry);
+			if (filter!=null && entry.station==filter && filteredSeqs.add(seq)) droppedFiltered++;
+			if (entry.type==Type.station && entry.station!=null && stationsInLog.add(entry.station))
+				stationFilterModel.addElement(entry.station);
+			longestNewText = Math.max(longestNewText, entry.toString().length());
+		}
+		if (filter!=null) droppedFiltered += filteredSeqs.dropBelow(entries.getFirstSeq());
+
+		int removedOld = filter==null ? (int) Math.min(oldSize, entries.getFirstSeq()-oldFirstSeq) : Math.min(oldSize, droppedFiltered);
+		int newSize = listModel.getSize();
+		int added = newSize - (oldSize-removedOld);
+		if (removedOld>0) listModel.fireRemoved(0, removedOld-1);
+		if (added>0) listModel.fireAdded(newSize-added, newSize-1);
+
+		if (longestNewText>maxTextLength)
+		{
+			maxTextLength = longestNewText;
+			list.setFixedCellWidth(getCellSize(Entry.adress(null, "m".repeat(Math.max(0, maxTextLength-4)), Mark.none)).width);
+		}
+		updateStatus();
+	}
+
+	void scrollToEnd()
+	{
+		int size = listModel.getSize();
+		if (size>0) list.ensureIndexIsVisible(size-1);
+	}
+
+	/**
+	 * @param station  shows only entries of this station, all entries if {@code null}
+	 */
+	void setFilter(Station station)
+	{
+		int oldSize = listModel.getSize();
+		filter = station;
+		filteredSeqs.clear();
+		if (filter!=null)
+			for (long seq=entries.getFirstSeq(); seq<entries.getNextSeq(); seq++)
+				if (entries.get(seq).station==filter)
+					filteredSeqs.add(seq);
+		list.clearSelection();
+		if (oldSize>0) listModel.fireRemoved(0, oldSize-1);
+		int newSize = listModel.getSize();
+		if (newSize>0) listModel.fireAdded(0, newSize-1);
+		updateStatus();
+		scrollToEnd();
+	}
+
+	private void updateStatus()
+	{
+		long discarded = entries.getFirstSeq()-clearedSeq;
+		String shown = filter==null ? "" : "%d of ".formatted(filteredSeqs.size());
+		statusLabel.setText(discarded>0
+				? "%s%d entries (%d older entries discarded)".formatted(shown, entries.size(), discarded)
+				: "%s%d entries".formatted(shown, entries.size()));
+	}
+
+	private class LogListModel extends AbstractListModel<Entry>
+	{
+		private static final long serialVersionUID = -6270283614735853425L;
+
+		@Override
+		public int getSize()
+		{
+			return filter==null ? entries.size() : filteredSeqs.size();
+		}
+
+		@Override
+		public Entry getElementAt(int index)
+		{
+			return filter==null ? entries.get(entries.getFirstSeq()+index) : entries.get(filteredSeqs.get(index));
+		}
+
+		void fireRemoved(int index0, int index1) { fireIntervalRemoved(this, index0, index1); }
+		void fireAdded  (int index0, int index1) { fireIntervalAdded  (this, index0, index1); }
+	}
+
+	private static class EntryRenderer extends DefaultListCellRenderer
+	{
+		private static final long serialVersionUID = -1810905311207542232L;
+
+		@Override
+		public Component getListCellRendererComponent(JList<?> list, Object value, int index, boolean isSelected, boolean cellHasFocus)
+		{
+			Component comp = super.getListCellRendererComponent(list, value, index, isSelected, cellHasFocus);
+			if (!isSelected && value instanceof Entry entry && (entry.mark==Mark.ignored || entry.mark==Mark.duplicate || entry.mark==Mark.offline))
+				comp.setForeground(Color.GRAY);
+			return comp;
+		}
+	}
+
+	/**
+	 * Fixed-capacity buffer, that overwrites its oldest element, if it's full.
+	 * Elements are addressed by sequence numbers, that keep increasing over {@link #clear()}.
+	 */
+	static class RingBuffer<E>
+	{
+		private final Object[] items;
+		private long firstSeq;
+		private long nextSeq;
+
+		RingBuffer(int capacity)
+		{
+			items = new Object[Math.max(1, capacity)];
+			firstSeq = 0;
+			nextSeq = 0;
+		}
+
+		int  size       () { return (int) (nextSeq-firstSeq); }
+		long getFirstSeq() { return firstSeq; }
+		long getNextSeq () { return nextSeq; }
+
+		/**
+		 * @return sequence number of {@code item}
+		 */
+		long add(E item)
+		{
+			items[(int) (nextSeq % items.length)] = item;
+			if (nextSeq-firstSeq==items.length) firstSeq++;
+			return nextSeq++;
+		}
+
+		@SuppressWarnings("unchecked")
+		E get(long seq)
+		{
+			if (seq<firstSeq || seq>=nextSeq) throw new IndexOutOfBoundsException("sequence number %d is outside of [%d,%d)".formatted(seq, firstSeq, nextSeq));
+			return (E) items[(int) (seq % items.length)];
+		}
+
+		void clear()
+		{
+			Arrays.fill(items, null);
+			firstSeq = nextSeq;
+		}
+	}
+
+	/**
+	 * Fixed-capacity FIFO of ascending sequence numbers.
+	 */
+	static class SeqRing
+	{
+		private final long[] seqs;
+		private int start;
+		private int size;
+
+		SeqRing(int capacity)
+		{
+			seqs = new long[Math.max(1, capacity)];
+			start = 0;
+			size = 0;
+		}
+
+		int size() { return size; }
+
+		long get(int index)
+		{
+			if (index<0 || index>=size) throw new IndexOutOfBoundsException(index);
+			return seqs[(start+index) % seqs.length];
+		}
+
+		/**
+		 * @return {@code true}, if the oldest sequence number was dropped to make room
+		 */
+		boolean add(long seq)
+		{
+			boolean dropped = size==seqs.length;
+			if (dropped) { start = (start+1) % seqs.length; size--; }
+			seqs[(start+size) % seqs.length] = seq;
+			size++;
+			return dropped;
+		}
+
+		/**
+		 * @return number of dropped sequence numbers
+		 */
+		int dropBelow(long minSeq)
+		{
+			int dropped = 0;
+			while (size>0 && seqs[start]<minSeq)
+			{
+				start = (start+1) % seqs.length;
+				size--;
+				dropped++;
+			}
+			return dropped;
+		}
+
+		void clear()
+		{
+			start = 0;
+			size = 0;
+		}
+	}
+}
@@ -1,8 +1,10 @@
 package net.schwarzbaer.java.tools.livestreamlistconverter;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.EnumMap;
+import java.util.List;
 import java.util.Map;
-import java.util.Vector;
 import java.util.function.IntConsumer;
 import java.util.function.Supplier;
 
@@ -41,106 +43,163 @@ abstract class OutputFormat
 		this.fileTypeExt = fileTypeExt;
 	}
 
-	abstract String createOutputFileContent(Vector<StreamAdress> adressList, IntConsumer setProgress);
+	/**
+	 * Writes the content of the output file to {@code out} without building it completely in memory.
+	 */
+	final void writeOutputFileContent(List<StreamAdress> adressList, Appendable out, IntConsumer setProgress) throws IOException
+	{
+		writeHeader(out, adressList.size());
+		for (int i=0; i<adressList.size(); i++) {
+			writeEntry(out, i+1, adressList.get(i));
+			setProgress.accept(i+1);
+		}
+		writeFooter(out, adressList.size());
+	}
+	
+	/**
+	 * @return {@code true}, if the header contains the number of entries.
+	 *         Then the header can't be written, before all adresses are known.
+	 */
+	boolean hasEntryCountInHeader()
+	{
+		return false;
+	}
+	
+	/**
+	 * @param entryCount  number of entries or {@code -1}, if it's not known yet (only if {@link #hasEntryCountInHeader()} is {@code false})
+	 */
+	abstract void writeHeader(Appendable out, int entryCount) throws IOException;
+	
+	/**
+	 * @param number  1-based number of the entry
+	 */
+	abstract void writeEntry(Appendable out, int number, StreamAdress adress) throws IOException;
+	
+	void writeFooter(Appendable out, int entryCount) throws IOException {}
+	
+	String createOutputFileContent(List<StreamAdress> adressList, IntConsumer setProgress)
+	{
+		StringBuilder sb = new StringBuilder();
+		try { writeOutputFileContent(adressList, sb, setProgress); }
+		catch (IOException ex) { throw new UncheckedIOException(ex); } // StringBuilder doesn't throw IOExceptions
+		return sb.toString();
+	}
 	
 	static class ETS2RadioList extends OutputFormat
 	{
+		private static final OutputTemplate ENTRY = OutputTemplate.compile("stream_data[]: \"{url}|{name}|{genre}|{country}|{bitRate}|{isFavorite}\"\r\n");
+		
 		ETS2RadioList()
 		{
 			super("ETS2 Radio List", "SII file","sii");
 		}
 		
 		@Override
-		String createOutputFileContent(Vector<StreamAdress> adressList, IntConsumer setProgress)
-		{
-			StringBuilder sb = new StringBuilder();
-			sb.append("SiiNunit\r\n");
-			sb.append("{\r\n");
-			sb.append("live_stream_def : _nameless.35BF.92E8 {\r\n");
-			for (int i=0; i<adressList.size(); i++) {
-				StreamAdress adress = adressList.get(i);
-				//sb.append(String.format("stream_data[]: \"%s|%s\"\r\n", adress.url,adress.name));
-				sb.append(String.format("stream_data[]: \"%s|%s|%s|%s|%d|%d\"\r\n", adress.url,adress.name,adress.genre,adress.country,adress.bitRate,adress.isFavorite));
-				//stream_data[32]: "http://striiming.trio.ee/uuno.mp3|Raadio Uuno|Rock|EST|128|0"
-				setProgress.accept(i+1);
-			}
-			sb.append("}\r\n");
-			sb.append("}\r\n");
-			return sb.toString();
+		void writeHeader(Appendable out, int entryCount) throws IOException
+		{
+			out.append("SiiNunit\r\n");
+			out.append("{\r\n");
+			out.append("live_stream_def : _nameless.35BF.92E8 {\r\n");
+		}
+		
+		@Override
+		void writeEntry(Appendable out, int number, StreamAdress adress) throws IOException
+		{
+			ENTRY.appendTo(out, number, adress);
+			//stream_data[32]: "http://striiming.trio.ee/uuno.mp3|Raadio Uuno|Rock|EST|128|0"
+		}
+		
+		@Override
+		void writeFooter(Appendable out, int entryCount) throws IOException
+		{
+			out.append("}\r\n");
+			out.append("}\r\n");
 		}
 	}
 	
 	static class StarTruckerRadioList extends OutputFormat
 	{
+		private static final OutputTemplate ENTRY = OutputTemplate.compile("{url}|{name}|Custom radio\r\n");
+		
 		StarTruckerRadioList()
 		{
 			super("StarTrucker Radio List", "Text file","txt");
 		}
 		
 		@Override
-		String createOutputFileContent(Vector<StreamAdress> adressList, IntConsumer setProgress)
-		{
-			StringBuilder sb = new StringBuilder();
-			sb.append("### Add a custom station on a new line using the following format:\r\n");
-			sb.append("### [url]|[name]|[genre]\r\n");
-			sb.append("http://stream.simulatorradio.com:8002/stream.mp3|SimulatorRadio|Sim radio\r\n");
-			sb.append("http://radio.trucksim.fm:8000/stream|TruckSimFM|Sim radio\r\n");
-			sb.append("https://oreo.truckstopradio.co.uk/radio/8000/radio.mp3|TruckStopRadio|Sim radio\r\n");
-			sb.append("https://radio.truckers.fm|TruckersFM|Sim radio\r\n");
-			sb.append("\r\n");
-			for (int i=0; i<adressList.size(); i++) {
-				StreamAdress adress = adressList.get(i);
-				sb.append("%s|%s|Custom radio\r\n".formatted(adress.url, adress.name));
-				setProgress.accept(i+1);
-			}
-			return sb.toString();
+		void writeHeader(Appendable out, int entryCount) throws IOException
+		{
+			out.append("### Add a custom station on a new line using the following format:\r\n");
+			out.append("### [url]|[name]|[genre]\r\n");
+			out.append("http://stream.simulatorradio.com:8002/stream.mp3|SimulatorRadio|Sim radio\r\n");
+			out.append("http://radio.trucksim.fm:8000/stream|TruckSimFM|Sim radio\r\n");
+			out.append("https://oreo.truckstopradio.co.uk/radio/8000/radio.mp3|TruckStopRadio|Sim radio\r\n");
+			out.append("https://radio.truckers.fm|TruckersFM|Sim radio\r\n");
+			out.append("\r\n");
+		}
+		
+		@Override
+		void writeEntry(Appendable out, int number, StreamAdress adress) throws IOException
+		{
+			ENTRY.appendTo(out, number, adress);
 		}
 	}
 	
 	static class PLSPlayList extends OutputFormat
 	{
+		private static final OutputTemplate ENTRY = OutputTemplate.compile("File{number}={url}\r\nTitle{number}={name}\r\nLength{number}=-1\r\n");
+		
 		PLSPlayList()
 		{
 			super("PLS PlayList", "PLS file","pls");
 		}
 		
 		@Override
-		String createOutputFileContent(Vector<StreamAdress> adressList, IntConsumer setProgress)
-		{
-			StringBuilder sb = new StringBuilder();
-			sb.append("[playlist]").append("\r\n");
-			sb.append("numberofentries=").append(adressList.size()).append("\r\n");
-			for (int i=0; i<adressList.size(); i++) {
-				StreamAdress adress = adressList.get(i);
-				sb.append(String.format("File%d=%s\r\n", i+1,adress.url));
-				sb.append(String.format("Title%d=%s\r\n", i+1,adress.name));
-				sb.append(String.format("Length%d=-1\r\n", i+1));
-				setProgress.accept(i+1);
-			}
-			sb.append("Version=2").append("\r\n");
-			return sb.toString();
+		boolean hasEntryCountInHeader()
+		{
+			return true;
+		}
+		
+		@Override
+		void writeHeader(Appendable out, int entryCount) throws IOException
+		{
+			out.append("[playlist]").append("\r\n");
+			out.append("numberofentries=").append(Integer.toString(entryCount)).append("\r\n");
+		}
+		
+		@Override
+		void writeEntry(Appendable out, int number, StreamAdress adress) throws IOException
+		{
+			ENTRY.appendTo(out, number, adress);
+		}
+		
+		@Override
+		void writeFooter(Appendable out, int entryCount) throws IOException
+		{
+			out.append("Version=2").append("\r\n");
 		}
 	}
 	
 	static class M3UPlayList extends OutputFormat
 	{
+		private static final String NEWLINE = System.lineSeparator();
+		private static final OutputTemplate ENTRY = OutputTemplate.compile("#EXTINF:0,{name}"+NEWLINE+"{url}"+NEWLINE);
+		
 		M3UPlayList()
 		{
 			super("M3U PlayList", "M3U file","m3u");
 		}
 		
 		@Override
-		String createOutputFileContent(Vector<StreamAdress> adressList, IntConsumer setProgress)
-		{
-			StringBuilder sb = new StringBuilder();
-			sb.append(String.format("#EXTM3U%n"));
-			for (int i=0; i<adressList.size(); i++) {
-				StreamAdress adress = adressList.get(i);
-				sb.append(String.format("#EXTINF:0,%s%n", adress.name));
-				sb.append(String.format("%s%n", adress.url));
-				setProgress.accept(i+1);
-			}
-			return sb.toString();
+		void writeHeader(Appendable out, int entryCount) throws IOException
+		{
+			out.append("#EXTM3U").append(NEWLINE);
+		}
+		
+		@Override
+		void writeEntry(Appendable out, int number, StreamAdress adress) throws IOException
+		{
+			ENTRY.appendTo(out, number, adress);
 		}
 	}
 }
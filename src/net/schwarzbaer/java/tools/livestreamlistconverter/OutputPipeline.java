@@ -0,0 +1,212 @@
+package net.schwarzbaer.java.tools.livestreamlistconverter;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Render stage of a pipelined run: writes the output files of all formats, while the stream adresses are still determined.
+ * <p>
+ * The stages of a pipelined run (see {@link StreamURLDeterminer#determineAndWrite}) are connected by bounded queues:
+ * <ol>
+ * <li>fetching and parsing: the worker threads of the {@link StationFetcher} parse each station list while it's received</li>
+ * <li>filtering: ignore rules and deduplication in a {@link PipelineStage}</li>
+ * <li>rendering: this class</li>
+ * </ol>
+ * <p>
+ * Each format has a render thread, that takes the adresses from its own bounded queue and writes them with an {@link Outputter.StreamingWriter}.
+ * {@link #add(StreamAdress)} blocks, while a queue is full, so a slow format holds up the producer (backpressure)
+ * instead of piling up adresses in memory. The adresses are written in the order of {@link #add(StreamAdress)}.
+ * A failure in one format is reported and doesn't stop the other formats.
+ * <p>
+ * {@link #add(StreamAdress)}, {@link #finish()} and {@link #abort()} mustn't be called concurrently.
+ * (The filter stage calls {@link #add(StreamAdress)}, {@link #finish()} is called after this stage has ended.)
+ */
+class OutputPipeline
+{
+	static final int DEFAULT_QUEUE_CAPACITY = 256;
+
+	/** marks the end of the adresses in a queue */
+	private static final StreamAdress END = new StreamAdress(null, null);
+
+	private final List<Stage> stages;
+	private final ExecutorService executor;
+	private volatile boolean aborted;
+	private boolean closed;
+
+	private static class Stage
+	{
+		final Outputter outputter;
+		final BlockingQueue<StreamAdress> queue;
+		/** the render thread has stopped with an exception and takes no more adresses */
+		volatile boolean failed;
+		Future<Outputter.WriteReport> future;
+
+		Stage(Outputter outputter, int queueCapacity)
+		{
+			this.outputter = outputter;
+			queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+			failed = false;
+			future = null;
+		}
+	}
+
+	/**
+	 * Starts the render threads.
+	 */
+	OutputPipeline(List<Outputter> outputters, int queueCapacity)
+	{
+		stages = new ArrayList<>();
+		for (Outputter outputter : outputters)
+			stages.add(new Stage(outputter, queueCapacity));
+		aborted = false;
+		closed = false;
+
+		executor = Executors.newFixedThreadPool(Math.max(1, stages.size()), new DaemonThreadFactory("OutputPipeline"));
+		for (Stage stage : stages)
+			stage.future = executor.submit(() -> render(stage));
+	}
+
+	private Outputter.WriteReport render(Stage stage) throws Exception
+	{
+		try (Outputter.StreamingWriter writer = stage.outputter.createStreamingWriter())
+		{
+			// takes all queued adresses at once, so the producer is woken up less often
+			List<StreamAdress> adresses = new ArrayList<>();
+			while (true)
+			{
+				adresses.add(stage.queue.take());
+				stage.queue.drainTo(adresses);
+				for (StreamAdress adress : adresses)
+				{
+					if (adress==END) return aborted ? null : writer.finish();
+					writer.add(adress);
+				}
+				adresses.clear();
+			}
+		}
+		catch (Exception ex)
+		{
+			// the producer mustn't wait for space in this queue anymore
+			stage.failed = true;
+			stage.queue.clear();
+			throw ex;
+		}
+	}
+
+	/**
+	 * Passes {@code adress} to all formats. Waits, while the queue of a format is full.
+	 */
+	void add(StreamAdress adress)
+	{
+		if (closed) throw new IllegalStateException("Output pipeline is already finished");
+		for (Stage stage : stages)
+			if (!stage.failed && !aborted)
+				try
+				{
+					stage.queue.put(adress);
+				}
+				catch (InterruptedException ex)
+				{
+					// the determination is canceled by the interrupt, the pipeline is aborted afterwards
+					Thread.currentThread().interrupt();
+					aborted = true;
+				}
+	}
+
+	/**
+	 * Waits for all render threads and replaces the changed output files.
+	 * @return the results of all formats in order of the outputters (empty, if the pipeline was aborted)
+	 */
+	Map<Outputter, Outputter.WriteReport> finish()
+	{
+		Map<Outputter, Outputter.WriteReport> results = new LinkedHashMap<>();
+		if (aborted)
+		{
+			abort();
+			return results;
+		}
+		close(false);
+
+		try
+		{
+			for (Stage stage : stages)
+				try
+				{
+					results.put(stage.outputter, stage.future.get());
+				}
+				catch (ExecutionException ex)
+				{
+					System.err.printf("Exception while creating %s: %s%n", stage.outputter.outputFormat.fileLabel, ex.getCause());
+					ex.getCause().printStackTrace();
+					results.put(stage.outputter, stage.outputter.createFailedReport());
+				}
+		}
+		catch (InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+			return new LinkedHashMap<>();
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+
+		Outputter.printWriteSummary(results);
+		return results;
+	}
+
+	/**
+	 * Stops all render threads and waits for them. No output file is changed.
+	 */
+	void abort()
+	{
+		aborted = true;
+		close(true);
+		try
+		{
+			// the render threads release their output buffers, before they end
+			for (Stage stage : stages)
+				try { stage.future.get(); }
+				catch (ExecutionException ex) {}
+		}
+		catch (InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+	}
+
+	private void close(boolean dropPending)
+	{
+		if (closed) return;
+		closed = true;
+		for (Stage stage : stages)
+		{
+			if (stage.failed) continue;
+			if (dropPending) stage.queue.clear();
+			try
+			{
+				stage.queue.put(END);
+			}
+			catch (InterruptedException ex)
+			{
+				Thread.currentThread().interrupt();
+				// END fits into a cleared queue without waiting
+				aborted = true;
+				stage.queue.clear();
+				stage.queue.offer(END);
+			}
+		}
+	}
+}
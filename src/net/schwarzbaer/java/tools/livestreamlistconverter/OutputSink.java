@@ -0,0 +1,300 @@
+package net.schwarzbaer.java.tools.livestreamlistconverter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Encodes appended text once and writes the bytes to several files.
+ * <p>
+ * The bytes are hashed on the way and held in memory, or in a temporary file in the default temporary folder,
+ * if they exceed {@value #MAX_MEMORY_BYTES} bytes.
+ * {@link #commit()} compares the hash with the current content of each target file, before anything is written next to it.
+ * Unchanged files are left untouched, so a sync client, that watches their folder, sees no change at all.
+ * A changed file gets a temporary file next to it, which replaces it by an atomic move,
+ * so readers never see a half-written file.
+ * <p>
+ * A file, that can't be replaced, is reported, while the other files are written further on.
+ */
+class OutputSink implements Appendable, Closeable
+{
+	private static final int CHAR_BUFFER_SIZE = 8*1024;
+	private static final int MAX_MEMORY_BYTES = 4*1024*1024;
+	private static final String HASH_ALGORITHM = "SHA-256";
+
+	enum WriteResult
+	{
+		Written("written"), Unchanged("unchanged, skipped"), Failed("failed");
+
+		final String label;
+		WriteResult(String label) { this.label = label; }
+	}
+
+	private final CharsetEncoder encoder;
+	private final CharBuffer charBuffer;
+	private final ByteBuffer byteBuffer;
+	private final MessageDigest digest;
+	private final List<File> files;
+	/** the written bytes, as long as they fit into memory */
+	private ByteArrayOutputStream memoryBuffer;
+	/** the written bytes, after they have exceeded {@link #MAX_MEMORY_BYTES} */
+	private FileChannel fileBuffer;
+	private boolean bufferFailed;
+	private long byteCount;
+
+	OutputSink(List<File> files, Charset charset)
+	{
+		encoder = charset.newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+		charBuffer = CharBuffer.allocate(CHAR_BUFFER_SIZE);
+		byteBuffer = ByteBuffer.allocate((int) Math.ceil(CHAR_BUFFER_SIZE*encoder.maxBytesPerChar()));
+		digest = createDigest();
+		this.files = List.copyOf(files);
+		memoryBuffer = new ByteArrayOutputStream();
+		fileBuffer = null;
+		bufferFailed = false;
+		byteCount = 0;
+	}
+
+	private static MessageDigest createDigest()
+	{
+		try { return MessageDigest.getInstance(HASH_ALGORITHM); }
+		catch (NoSuchAlgorithmException ex) { throw new IllegalStateException(ex); } // every JRE has to support SHA-256
+	}
+
+	private static Path getTempFile(Path file)
+	{
+		// not Files.createTempFile, because its restrictive file permissions would be moved over to the target file
+		String name = ".%s.%08x.tmp".formatted(file.getFileName(), ThreadLocalRandom.current().nextInt());
+		return file.resolveSibling(name);
+	}
+
+	boolean hasTargets()
+	{
+		return !files.isEmpty() && !bufferFailed;
+	}
+
+	/**
+	 * @return number of bytes written so far
+	 */
+	long getByteCount()
+	{
+		return byteCount;
+	}
+
+	@Override
+	public OutputSink append(CharSequence csq)
+	{
+		return append(csq, 0, csq.length());
+	}
+
+	@Override
+	public OutputSink append(CharSequence csq, int start, int end)
+	{
+		int pos = start;
+		while (pos<end)
+		{
+			int length = Math.min(end-pos, charBuffer.remaining());
+			charBuffer.append(csq, pos, pos+length);
+			pos += length;
+			if (!charBuffer.hasRemaining())
+				encodeChars(false);
+		}
+		return this;
+	}
+
+	@Override
+	public OutputSink append(char c)
+	{
+		charBuffer.put(c);
+		if (!charBuffer.hasRemaining())
+			encodeChars(false);
+		return this;
+	}
+
+	private void encodeChars(boolean endOfInput)
+	{
+		charBuffer.flip();
+		CoderResult result;
+		while ( (result = encoder.encode(charBuffer, byteBuffer, endOfInput)).isOverflow() )
+			writeBytes();
+		if (result.isError())
+			throw new IllegalStateException("Unexpected encoder result: %s".formatted(result));
+		charBuffer.compact();
+	}
+
+	private void writeBytes()
+	{
+		byteBuffer.flip();
+		byteCount += byteBuffer.remaining();
+		digest.update(byteBuffer.duplicate());
+		if (!bufferFailed)
+			try
+			{
+				buffer(byteBuffer);
+			}
+			catch (IOException ex)
+			{
+				System.err.printf("Can't buffer the output in a temporary file: %s%n", ex);
+				bufferFailed = true;
+				releaseBuffer();
+			}
+		byteBuffer.clear();
+	}
+
+	private void buffer(ByteBuffer bytes) throws IOException
+	{
+		if (fileBuffer==null && memoryBuffer.size()+bytes.remaining() > MAX_MEMORY_BYTES)
+		{
+			Path tempFile = Files.createTempFile("LiveStreamListConverter.", ".out");
+			fileBuffer = FileChannel.open(tempFile, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+			memoryBuffer.writeTo(Channels.newOutputStream(fileBuffer));
+			memoryBuffer = null;
+		}
+		if (fileBuffer!=null)
+			while (bytes.hasRemaining())
+				fileBuffer.write(bytes);
+		else
+			memoryBuffer.write(bytes.array(), bytes.arrayOffset()+bytes.position(), bytes.remaining());
+	}
+
+	private void releaseBuffer()
+	{
+		memoryBuffer = null;
+		if (fileBuffer==null) return;
+		try { fileBuffer.close(); }
+		catch (IOException ex)
+		{
+			System.err.printf("Can't delete temporary output buffer: %s%n", ex);
+		}
+		fileBuffer = null;
+	}
+
+	/**
+	 * Finishes the output and replaces all target files, whose content has changed.
+	 * @return the result for each target file in the given order
+	 */
+	Map<File, WriteResult> commit()
+	{
+		encodeChars(true);
+		while (encoder.flush(byteBuffer).isOverflow())
+			writeBytes();
+		writeBytes();
+
+		try
+		{
+			byte[] hash = digest.digest();
+			Map<File, WriteResult> results = new LinkedHashMap<>();
+			for (File file : files)
+				results.put(file, bufferFailed ? WriteResult.Failed : commit(file, hash));
+			return results;
+		}
+		finally
+		{
+			releaseBuffer();
+		}
+	}
+
+	private WriteResult commit(File file, byte[] hash)
+	{
+		Path path = file.toPath();
+		Path tempFile = null;
+		try
+		{
+			if (hasContent(path, hash, byteCount))
+				return WriteResult.Unchanged;
+
+			tempFile = getTempFile(path);
+			try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE))
+			{
+				writeBufferTo(channel);
+			}
+			try
+			{
+				Files.move(tempFile, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+			}
+			catch (AtomicMoveNotSupportedException ex)
+			{
+				Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING);
+			}
+			return WriteResult.Written;
+		}
+		catch (IOException ex)
+		{
+			System.err.printf("Can't replace output file \"%s\": %s%n", file.getAbsolutePath(), ex);
+			if (tempFile!=null)
+				try { Files.deleteIfExists(tempFile); }
+				catch (IOException ex1)
+				{
+					System.err.printf("Can't delete temporary file \"%s\": %s%n", tempFile, ex1);
+				}
+			return WriteResult.Failed;
+		}
+	}
+
+	private void writeBufferTo(FileChannel channel) throws IOException
+	{
+		if (fileBuffer==null)
+		{
+			memoryBuffer.writeTo(Channels.newOutputStream(channel));
+			return;
+		}
+		long position = 0;
+		while (position<byteCount)
+		{
+			long transferred = fileBuffer.transferTo(position, byteCount-position, channel);
+			if (transferred<=0) throw new IOException("Temporary output buffer is shorter than expected");
+			position += transferred;
+		}
+	}
+
+	/**
+	 * Deletes the buffered bytes. No target file is changed, if {@link #commit()} wasn't called.
+	 */
+	@Override
+	public void close()
+	{
+		releaseBuffer();
+	}
+
+	private static boolean hasContent(Path file, byte[] hash, long size) throws IOException
+	{
+		if (!Files.isRegularFile(file) || Files.size(file)!=size)
+			return false;
+
+		MessageDigest fileDigest = createDigest();
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ))
+		{
+			ByteBuffer buffer = ByteBuffer.allocate(64*1024);
+			while (channel.read(buffer)>=0)
+			{
+				buffer.flip();
+				fileDigest.update(buffer);
+				buffer.clear();
+			}
+		}
+		return Arrays.equals(fileDigest.digest(), hash);
+	}
+}
@@ -0,0 +1,95 @@
+package net.schwarzbaer.java.tools.livestreamlistconverter;
+
+import java.io.IOException;
+import java.util.Vector;
+
+/**
+ * Precompiled template for one entry of an {@link OutputFormat}.
+ * <p>
+ * Placeholders like <code>{url}</code> are resolved once in {@link #compile(String)}.
+ * Rendering an entry only appends the literal parts and the field values in order,
+ * without parsing a format string for each entry.
+ * Values are written like {@code %s} and {@code %d} of {@link String#format} would write them.
+ */
+final class OutputTemplate
+{
+	enum Field
+	{
+		/** 1-based number of the entry in the list */
+		number,
+		url, name, genre, country, bitRate, isFavorite,
+		;
+
+		void appendTo(Appendable out, int number, StreamAdress adress) throws IOException
+		{
+			switch (this)
+			{
+			case number    : appendInt(out, number); break;
+			case url       : out.append(String.valueOf(adress.url    )); break;
+			case name      : out.append(String.valueOf(adress.name   )); break;
+			case genre     : out.append(String.valueOf(adress.genre  )); break;
+			case country   : out.append(String.valueOf(adress.country)); break;
+			case bitRate   : appendInt(out, adress.bitRate   ); break;
+			case isFavorite: appendInt(out, adress.isFavorite); break;
+			}
+		}
+
+		private static void appendInt(Appendable out, int value) throws IOException
+		{
+			if (out instanceof StringBuilder sb) sb.append(value);
+			else out.append(Integer.toString(value));
+		}
+	}
+
+	private final String[] literals;
+	private final Field[] fields;
+
+	private OutputTemplate(String[] literals, Field[] fields)
+	{
+		this.literals = literals;
+		this.fields = fields;
+	}
+
+	/**
+	 * @param template text with placeholders <code>{fieldname}</code> for the values of {@link Field}
+	 * @throws IllegalArgumentException if a placeholder is unknown or not closed
+	 */
+	static OutputTemplate compile(String template)
+	{
+		Vector<String> literals = new Vector<>();
+		Vector<Field> fields = new Vector<>();
+
+		int pos = 0;
+		int start;
+		while ( (start = template.indexOf('{', pos)) >= 0 )
+		{
+			int end = template.indexOf('}', start);
+			if (end<0)
+				throw new IllegalArgumentException("Placeholder at position %d isn't closed: \"%s\"".formatted(start, template));
+			String fieldName = template.substring(start+1, end);
+			Field field;
+			try { field = Field.valueOf(fieldName); }
+			catch (IllegalArgumentException ex) {
+				throw new IllegalArgumentException("Unknown placeholder \"{%s}\" in template \"%s\"".formatted(fieldName, template), ex);
+			}
+			literals.add(template.substring(pos, start));
+			fields.add(field);
+			pos = end+1;
+		}
+		literals.add(template.substring(pos));
+
+		return new OutputTemplate(literals.toArray(String[]::new), fields.toArray(Field[]::new));
+	}
+
+	void appendTo(Appendable out, int number, StreamAdress adress) throws IOException
+	{
+		for (int i=0; i<fields.length; i++)
+		{
+			if (!literals[i].isEmpty())
+				out.append(literals[i]);
+			fields[i].appendTo(out, number, adress);
+		}
+		if (!literals[fields.length].isEmpty())
+			out.append(literals[fields.length]);
+	}
+}
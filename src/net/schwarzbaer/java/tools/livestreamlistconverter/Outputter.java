@@ -4,20 +4,28 @@ import java.awt.BorderLayout;
 import java.awt.GridBagConstraints;
 import java.awt.GridBagLayout;
 import java.awt.Window;
+import java.awt.event.HierarchyEvent;
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.PrintWriter;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Vector;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 
 import javax.swing.BorderFactory;
 import javax.swing.JButton;
 import javax.swing.JFileChooser;
 import javax.swing.JPanel;
-import javax.swing.JScrollPane;
-import javax.swing.JTextArea;
 import javax.swing.JTextField;
 import javax.swing.JToolBar;
 import javax.swing.SwingUtilities;
@@ -25,9 +33,13 @@ import javax.swing.SwingUtilities;
 import net.schwarzbaer.java.lib.gui.FileChooser;
 import net.schwarzbaer.java.lib.gui.GeneralIcons.GrayCommandIcons;
 import net.schwarzbaer.java.lib.gui.ProgressDialog;
+import net.schwarzbaer.java.tools.livestreamlistconverter.OutputSink.WriteResult;
 
 class Outputter
 {
+	/** renders the previews of all outputters, one after another, outside of the event dispatch thread */
+	private static final ExecutorService previewRenderer = Executors.newSingleThreadExecutor(new DaemonThreadFactory("PreviewRenderer"));
+	
 	interface ExternalIF
 	{
 		Vector<StreamAdress> getAdressList();
@@ -37,7 +49,6 @@ class Outputter
 	private final ExternalIF externalIF;
 	private final BaseConfig baseConfig;
 	        final OutputFormat outputFormat;
-	private final FileChooser fileChooser;
 	private       Panel panel;
 	private final Vector<File> outputFiles;
 	private       Runnable doBeforeGenerating;
@@ -47,10 +58,6 @@ class Outputter
 		this.externalIF    = Objects.requireNonNull(externalIF);
 		this.baseConfig    = Objects.requireNonNull(baseConfig   );
 		this.outputFormat  = Objects.requireNonNull(outputFormat );
-		fileChooser = new FileChooser(
-				this.outputFormat.fileTypeName,
-				this.outputFormat.fileTypeExt
-		);
 		
 		panel = null;
 		outputFiles = new Vector<>();
@@ -66,38 +73,222 @@ class Outputter
 	{
 		if (outputFile==null) return;
 		outputFiles.add(outputFile);
-		fileChooser.setSelectedFile(outputFile);
 		if (panel!=null)
 		{
+			panel.fileChooser.setSelectedFile(outputFile);
 			panel.updateFileFields();
 			panel.setEnabled(true);
 		}
 	}
 	
-	void generateAndWriteContentToFile(ProgressDialog pd) {
+	/**
+	 * Result of writing the output files of one format.
+	 * @param bytes  size of the written content
+	 * @param duration_ms  duration of generating and writing the content
+	 */
+	record WriteReport(Map<File, WriteResult> fileResults, long bytes, long duration_ms) {}
+	
+	void generateAndWriteContentToFile(ProgressReporter pr) {
 		if (doBeforeGenerating!=null)
 			doBeforeGenerating.run();
-		Vector<StreamAdress> adressList = externalIF.getAdressList();
-		SwingUtilities.invokeLater(()->{
-			pd.setTaskTitle( "Create %s:".formatted( outputFormat.fileLabel ) );
-			pd.setValue(0, adressList.size());
-		});
-		String content = outputFormat.createOutputFileContent(adressList, progress -> SwingUtilities.invokeLater( () -> pd.setValue(progress) ));
-		outputFiles.forEach( outputFile -> writeContentTo( content, outputFile ) );
+		List<StreamAdress> adressList = List.copyOf(externalIF.getAdressList());
+		pr.setTaskTitle( "Create %s:".formatted( outputFormat.fileLabel ) );
+		pr.setValue(0, adressList.size());
+		WriteReport report = generateAndWriteContentToFile( adressList, pr::setValue );
+		printWriteSummary(Map.of(this, report));
+	}
+
+	private WriteReport generateAndWriteContentToFile(List<StreamAdress> adressList, IntConsumer setProgress) {
+		WriteReport report = writeContentToFiles( adressList, setProgress );
 		if (panel!=null)
-			SwingUtilities.invokeLater(()->{
-				panel.contentTextArea.setText(content);
+			panel.setPreviewData(adressList);
+		return report;
+	}
+
+	/**
+	 * Renders and writes the files of all {@code outputters} concurrently from one snapshot of {@code adressList}.
+	 * The progress of all formats is summed up in {@code pr}.
+	 * A failure in one format is reported and doesn't stop the other formats.
+	 * @return the results of all formats in order of {@code outputters} (empty, if canceled)
+	 */
+	static Map<Outputter, WriteReport> generateAndWriteAllFiles(List<Outputter> outputters, List<StreamAdress> adressList, ProgressReporter pr) {
+		Map<Outputter, WriteReport> results = new LinkedHashMap<>();
+		if (outputters.isEmpty() || pr.wasCanceled()) return results;
+		List<StreamAdress> snapshot = List.copyOf(adressList);
+		
+		pr.setTaskTitle("Create all files:");
+		pr.setValue(0, outputters.size()*snapshot.size());
+		ProgressSum progressSum = new ProgressSum(pr, outputters.size());
+		
+		ExecutorService executor = Executors.newFixedThreadPool(outputters.size(), new DaemonThreadFactory("Outputter"));
+		try
+		{
+			Vector<Future<WriteReport>> futures = new Vector<>();
+			for (int i=0; i<outputters.size(); i++)
+			{
+				Outputter outputter = outputters.get(i);
+				int index = i;
+				futures.add(executor.submit(() -> outputter.generateAndWriteContentToFile( snapshot, progress -> progressSum.setValue(index, progress) )));
+			}
+			
+			for (int i=0; i<outputters.size(); i++)
+				try
+				{
+					results.put(outputters.get(i), futures.get(i).get());
+				}
+				catch (ExecutionException ex)
+				{
+					System.err.printf("Exception while creating %s: %s%n", outputters.get(i).outputFormat.fileLabel, ex.getCause());
+					ex.getCause().printStackTrace();
+					results.put(outputters.get(i), outputters.get(i).createFailedReport());
+				}
+			
+			printWriteSummary(results);
+		}
+		catch (InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+		}
+		finally
+		{
+			executor.shutdown();
+		}
+		return results;
+	}
+	
+	private static class ProgressSum
+	{
+		private final ProgressReporter pr;
+		private final int[] values;
+		private int sum;
+		
+		ProgressSum(ProgressReporter pr, int count)
+		{
+			this.pr = pr;
+			values = new int[count];
+			sum = 0;
+		}
+		
+		synchronized void setValue(int index, int value)
+		{
+			sum += value-values[index];
+			values[index] = value;
+			pr.setValue(sum);
+		}
+	}
+
+	static void printWriteSummary(Map<Outputter, WriteReport> results)
+	{
+		System.out.println();
+		System.out.println("Output files:");
+		results.forEach((outputter, report) -> {
+			Map<File, WriteResult> fileResults = report.fileResults();
+			if (fileResults.isEmpty())
+				System.out.printf("    %-22s: no output files%n", outputter.outputFormat.fileLabel);
+			fileResults.forEach((file, result) -> {
+				System.out.printf("    %-22s: %-18s \"%s\"%n", outputter.outputFormat.fileLabel, result.label, file.getAbsolutePath());
 			});
+		});
+	}
+
+	WriteReport createFailedReport()
+	{
+		Map<File, WriteResult> results = new LinkedHashMap<>();
+		for (File file : List.copyOf(outputFiles))
+			results.put(file, WriteResult.Failed);
+		return new WriteReport(results, 0, 0);
 	}
 
-	private static void writeContentTo(String content, File outputFile) {
-		try (PrintWriter output = new PrintWriter(outputFile))
+	/**
+	 * Only changed files are replaced. Unchanged files keep their timestamp.
+	 */
+	private WriteReport writeContentToFiles(List<StreamAdress> adressList, IntConsumer setProgress) {
+		long start_ns = System.nanoTime();
+		// same charset and trailing line break as the PrintWriter.println of former versions
+		try (OutputSink sink = new OutputSink(List.copyOf(outputFiles), Charset.defaultCharset()))
 		{
-			output.println(content);
+			if (sink.hasTargets())
+			{
+				outputFormat.writeOutputFileContent(adressList, sink, setProgress);
+				sink.append(System.lineSeparator());
+			}
+			Map<File, WriteResult> results = sink.commit();
+			return new WriteReport(results, sink.getByteCount(), (System.nanoTime()-start_ns)/1_000_000L);
 		}
-		catch (FileNotFoundException e)
+		catch (IOException e)
 		{
 			e.printStackTrace();
+			return createFailedReport();
+		}
+	}
+	
+	StreamingWriter createStreamingWriter() throws IOException
+	{
+		return new StreamingWriter();
+	}
+	
+	/**
+	 * Writes the output files adress by adress, while the adresses are still determined.
+	 * The files get the same content as by {@link #generateAndWriteContentToFile(ProgressReporter)} with all adresses.
+	 * If the format has the entry count in its header, the rendered entries are held back in memory until {@link #finish()}.
+	 * {@link #close()} without {@link #finish()} leaves the output files unchanged.
+	 */
+	class StreamingWriter implements Closeable
+	{
+		private final OutputSink sink;
+		private final StringBuilder heldBackEntries;
+		private final List<StreamAdress> previewAdressList;
+		private int entryCount;
+		/** time spent in this writer, without the waiting for adresses */
+		private long duration_ns;
+		
+		private StreamingWriter() throws IOException
+		{
+			long start_ns = System.nanoTime();
+			sink = new OutputSink(List.copyOf(outputFiles), Charset.defaultCharset());
+			heldBackEntries = outputFormat.hasEntryCountInHeader() ? new StringBuilder() : null;
+			previewAdressList = panel==null ? null : new ArrayList<>();
+			entryCount = 0;
+			if (sink.hasTargets() && heldBackEntries==null)
+				outputFormat.writeHeader(sink, -1);
+			duration_ns = System.nanoTime()-start_ns;
+		}
+		
+		void add(StreamAdress adress) throws IOException
+		{
+			long start_ns = System.nanoTime();
+			entryCount++;
+			if (previewAdressList!=null)
+				previewAdressList.add(adress);
+			if (sink.hasTargets())
+				outputFormat.writeEntry(heldBackEntries!=null ? heldBackEntries : sink, entryCount, adress);
+			duration_ns += System.nanoTime()-start_ns;
+		}
+		
+		WriteReport finish() throws IOException
+		{
+			long start_ns = System.nanoTime();
+			if (sink.hasTargets())
+			{
+				if (heldBackEntries!=null)
+				{
+					outputFormat.writeHeader(sink, entryCount);
+					sink.append(heldBackEntries);
+				}
+				outputFormat.writeFooter(sink, entryCount);
+				sink.append(System.lineSeparator());
+			}
+			Map<File, WriteResult> results = sink.commit();
+			if (panel!=null)
+				panel.setPreviewData(previewAdressList);
+			duration_ns += System.nanoTime()-start_ns;
+			return new WriteReport(results, sink.getByteCount(), duration_ns/1_000_000L);
+		}
+		
+		@Override
+		public void close()
+		{
+			sink.close();
 		}
 	}
 	
@@ -117,21 +308,38 @@ class Outputter
 	{
 		private static final long serialVersionUID = 2132641733100889592L;
 		
+		private final FileChooser fileChooser;
 		private final JPanel fileFieldsPanel;
-		private final JTextArea contentTextArea;
+		private final TextViewer contentViewer;
 		private final JButton btnAddOutputFile;
 		private final Vector<JButton> btnArrOpenFolder;
 		private final Vector<JButton> btnArrRemoveFile;
 		private final JButton btnWriteContentToFile;
+		private List<StreamAdress> previewAdressList;
+		private boolean previewOutdated;
+		/** counts the started renderings, so the result of an outdated one is dropped */
+		private int previewGeneration;
 		
 		Panel(Window parent)
 		{
 			super(new BorderLayout(2,2));
 			setBorder(BorderFactory.createEmptyBorder(2,2,2,2));
 			
-			contentTextArea = new JTextArea();
-			contentTextArea.setEditable(false);
-			JScrollPane contentTextAreaScrollPane = new JScrollPane(contentTextArea);
+			fileChooser = new FileChooser(
+					outputFormat.fileTypeName,
+					outputFormat.fileTypeExt
+			);
+			if (!outputFiles.isEmpty())
+				fileChooser.setSelectedFile(outputFiles.lastElement());
+			
+			previewAdressList = null;
+			previewOutdated = false;
+			previewGeneration = 0;
+			contentViewer = new TextViewer();
+			addHierarchyListener(e -> {
+				if ((e.getChangeFlags() & HierarchyEvent.SHOWING_CHANGED)!=0 && isShowing())
+					updatePreview();
+			});
 			
 			JToolBar toolBar = new JToolBar();
 			toolBar.setFloatable(false);
@@ -148,7 +356,7 @@ class Outputter
 			toolBar.add(btnWriteContentToFile = LiveStreamListConverter.createButton("Generate & Write Content to File", GrayCommandIcons.IconGroup.Save, e->{
 				ProgressDialog.runWithProgressDialog(parent, "Progress", 200, pd -> {
 					externalIF.enableGUI(false);
-					generateAndWriteContentToFile(pd);
+					generateAndWriteContentToFile(ProgressReporter.of(pd));
 					externalIF.enableGUI(true);
 				});
 			}));
@@ -159,7 +367,7 @@ class Outputter
 
 			JPanel centerPanel = new JPanel(new BorderLayout(2,2));
 			centerPanel.add(fileFieldsPanel, BorderLayout.NORTH);
-			centerPanel.add(contentTextAreaScrollPane, BorderLayout.CENTER);
+			centerPanel.add(contentViewer, BorderLayout.CENTER);
 			
 			add(toolBar, BorderLayout.PAGE_START);
 			add(centerPanel, BorderLayout.CENTER);
@@ -167,6 +375,51 @@ class Outputter
 			updateFileFields();
 		}
 		
+		/**
+		 * The preview is rendered not before this panel is shown.
+		 */
+		void setPreviewData(List<StreamAdress> adressList)
+		{
+			SwingUtilities.invokeLater(()->{
+				previewAdressList = adressList;
+				previewOutdated = true;
+				if (isShowing())
+					updatePreview();
+			});
+		}
+		
+		/**
+		 * Renders the preview in {@link #previewRenderer} and shows it, when it's finished.
+		 * Has to be called in the event dispatch thread.
+		 */
+		private void updatePreview()
+		{
+			if (!previewOutdated || previewAdressList==null) return;
+			previewOutdated = false;
+			List<StreamAdress> adressList = previewAdressList;
+			int generation = ++previewGeneration;
+			contentViewer.setText("<rendering preview of %d stream adresses ...>".formatted(adressList.size()));
+			
+			previewRenderer.execute(() -> {
+				String content;
+				try
+				{
+					content = outputFormat.createOutputFileContent(adressList, progress->{});
+				}
+				catch (RuntimeException ex)
+				{
+					System.err.printf("Exception while rendering preview of %s: %s%n", outputFormat.fileLabel, ex);
+					ex.printStackTrace();
+					content = "<preview not available: %s>".formatted(ex);
+				}
+				String finalContent = content;
+				SwingUtilities.invokeLater(() -> {
+					if (generation==previewGeneration)
+						contentViewer.setText(finalContent);
+				});
+			});
+		}
+		
 		void openFolder(File outputFile) {
 			if (baseConfig.filemanagerPath!=null && outputFile!=null) {
 				try {
@@ -0,0 +1,137 @@
+package net.schwarzbaer.java.tools.livestreamlistconverter;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A stage of a pipelined run, that runs its tasks in its own thread, one after another in the order of {@link #submit(Runnable)}.
+ * <p>
+ * The queue of the stage is bounded: {@link #submit(Runnable)} waits, while it's full (backpressure).
+ * If a task throws an exception, the stage drops all further tasks and {@link #finish()} throws the exception.
+ * <p>
+ * {@link #submit(Runnable)}, {@link #finish()} and {@link #abort()} have to be called by the same thread.
+ */
+class PipelineStage
+{
+	static final int DEFAULT_QUEUE_CAPACITY = 256;
+
+	/** marks the end of the tasks */
+	private static final Runnable END = () -> {};
+
+	private final BlockingQueue<Runnable> queue;
+	private final Thread thread;
+	private volatile RuntimeException failure;
+	private volatile boolean aborted;
+	private boolean closed;
+
+	/**
+	 * Starts the thread of the stage.
+	 */
+	PipelineStage(String name, int queueCapacity)
+	{
+		queue = new ArrayBlockingQueue<>(Math.max(1, queueCapacity));
+		failure = null;
+		aborted = false;
+		closed = false;
+
+		thread = new DaemonThreadFactory(name).newThread(this::runTasks);
+		thread.start();
+	}
+
+	private void runTasks()
+	{
+		try
+		{
+			while (true)
+			{
+				Runnable task = queue.take();
+				if (task==END) return;
+				if (failure==null && !aborted)
+					try
+					{
+						task.run();
+					}
+					catch (RuntimeException ex)
+					{
+						// the other tasks are still taken, so the producer doesn't wait forever
+						failure = ex;
+					}
+			}
+		}
+		catch (InterruptedException ex) {} // not interrupted by this class
+	}
+
+	/**
+	 * Passes {@code task} to the thread of the stage. Waits, while the queue is full.
+	 * If the calling thread is interrupted meanwhile, the task is dropped and the interrupt flag is set again.
+	 */
+	void submit(Runnable task)
+	{
+		if (closed) throw new IllegalStateException("Pipeline stage is already finished");
+		if (failure!=null || aborted) return;
+		try
+		{
+			queue.put(task);
+		}
+		catch (InterruptedException ex)
+		{
+			// the run is canceled by the interrupt, the stage is aborted afterwards
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Waits, until all submitted tasks are done.
+	 * @return {@code false}, if the calling thread was interrupted while waiting
+	 * @throws RuntimeException  the exception of a failed task
+	 */
+	boolean finish()
+	{
+		close();
+		try
+		{
+			thread.join();
+		}
+		catch (InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+			aborted = true;
+			return false;
+		}
+		if (failure!=null) throw failure;
+		return true;
+	}
+
+	/**
+	 * Drops all pending tasks and waits for the running one.
+	 */
+	void abort()
+	{
+		aborted = true;
+		queue.clear();
+		close();
+		try { thread.join(); }
+		catch (InterruptedException ex) { Thread.currentThread().interrupt(); }
+	}
+
+	private void close()
+	{
+		if (closed) return;
+		closed = true;
+		// the queue has space for END, because the stage thread takes the tasks
+		boolean interrupted = false;
+		while (true)
+			try
+			{
+				queue.put(END);
+				break;
+			}
+			catch (InterruptedException ex)
+			{
+				interrupted = true;
+				aborted = true;
+				queue.clear();
+			}
+		if (interrupted) Thread.currentThread().interrupt();
+	}
+}
@@ -0,0 +1,64 @@
+package net.schwarzbaer.java.tools.livestreamlistconverter;
+
+import net.schwarzbaer.java.lib.gui.ProgressDialog;
+
+/**
+ * Progress output of long running tasks.
+ * Can be called from any thread.
+ */
+interface ProgressReporter
+{
+	void setTaskTitle(String taskTitle);
+	void setValue(int value, int maximum);
+	void setValue(int value);
+	boolean wasCanceled();
+
+	/**
+	 * @return a reporter, that forwards the values to {@code pd} on the event dispatch thread, coalesced by a {@link BatchingPublisher}
+	 */
+	static ProgressReporter of(ProgressDialog pd)
+	{
+		return new BatchingPublisher(pd, null);
+	}
+
+	/**
+	 * Writes the task titles and every 10% of progress to {@link System#out}.
+	 */
+	class ConsoleReporter implements ProgressReporter
+	{
+		private String taskTitle = "";
+		private int maximum = 0;
+		private int lastStep = -1;
+
+		@Override
+		public synchronized void setTaskTitle(String taskTitle)
+		{
+			this.taskTitle = taskTitle;
+			System.out.printf("[Progress] %s%n", taskTitle);
+		}
+
+		@Override
+		public synchronized void setValue(int value, int maximum)
+		{
+			this.maximum = maximum;
+			lastStep = -1;
+			setValue(value);
+		}
+
+		@Override
+		public synchronized void setValue(int value)
+		{
+			if (maximum<=0) return;
+			int step = (int) (value*10L/maximum);
+			if (step==lastStep) return;
+			lastStep = step;
+			System.out.printf("[Progress] %s %3d%% (%d/%d)%n", taskTitle, step*10, value, maximum);
+		}
+
+		@Override
+		public boolean wasCanceled()
+		{
+			return false;
+		}
+	}
+}
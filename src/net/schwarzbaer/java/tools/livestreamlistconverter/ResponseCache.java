@@ -0,0 +1,255 @@
+package net.schwarzbaer.java.tools.livestreamlistconverter;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * On-disk cache of station lists, keyed by the URL of the station.
+ * <p>
+ * Each entry is stored in its own file and holds the (decompressed) body, the validators "ETag" and "Last-Modified",
+ * the "Content-Type" and the time of the last successful fetch.
+ * {@link HttpFetcher} sends conditional requests with the validators and reuses the cached body, if the server answers "304 Not Modified".
+ * Entries, that are younger than {@code maxAge_ms}, and all entries in offline mode are used without any request.
+ * Entries are written to a temporary file first and moved into place, so a canceled run never leaves a broken entry.
+ */
+class ResponseCache
+{
+	static final String DEFAULT_FOLDER = "LiveStreamListConverter.Cache";
+
+	private static final int FILE_VERSION = 1;
+	private static final String FILE_EXTENSION = ".cache";
+	/** bodies above this size aren't cached */
+	private static final int MAX_BODY_SIZE = 16*1024*1024;
+
+	enum Source
+	{
+		/** received from the server */
+		fetched("fetched"),
+		/** server answered "304 Not Modified", the cached body was used */
+		revalidated("revalidated"),
+		/** cached body was used without a request */
+		hit("cache hit"),
+		;
+		final String label;
+		Source(String label) { this.label = label; }
+	}
+
+	/**
+	 * @param etag  value of the "ETag" header or {@code null}
+	 * @param lastModified  value of the "Last-Modified" header or {@code null}
+	 * @param contentType  value of the "Content-Type" header or {@code null}
+	 * @param fetchTime_ms  time of the last successful request (fetched or revalidated)
+	 */
+	record Entry(String url, String etag, String lastModified, String contentType, long fetchTime_ms, byte[] body) {}
+
+	private final File folder;
+	private final long maxAge_ms;
+	final boolean offline;
+
+	ResponseCache(File folder, long maxAge_ms, boolean offline)
+	{
+		this.folder = folder;
+		this.maxAge_ms = Math.max(0, maxAge_ms);
+		this.offline = offline;
+	}
+
+	/**
+	 * @return {@code true}, if {@code entry} can be used without a request
+	 */
+	boolean isUsableWithoutRequest(Entry entry)
+	{
+		if (offline) return true;
+		return entry!=null && System.currentTimeMillis()-entry.fetchTime_ms < maxAge_ms;
+	}
+
+	/**
+	 * @return the cached entry of {@code url} or {@code null}, if there is none or it can't be read
+	 */
+	Entry get(String url)
+	{
+		File file = getFile(url);
+		try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath()))))
+		{
+			if (in.readInt()!=FILE_VERSION) return null;
+			String storedUrl = in.readUTF();
+			if (!storedUrl.equals(url)) return null; // hash collision
+			String etag         = toNull(in.readUTF());
+			String lastModified = toNull(in.readUTF());
+			String contentType  = toNull(in.readUTF());
+			long fetchTime_ms = in.readLong();
+			byte[] body = new byte[in.readInt()];
+			in.readFully(body);
+			return new Entry(url, etag, lastModified, contentType, fetchTime_ms, body);
+		}
+		catch (NoSuchFileException ex) { return null; }
+		catch (IOException ex)
+		{
+			System.err.printf("Can't read cache entry of \"%s\": %s%n", url, ex.getMessage());
+			return null;
+		}
+	}
+
+	/**
+	 * Stores {@code entry} with the current time as fetch time, after the server has confirmed it.
+	 * @return the stored entry
+	 */
+	Entry revalidated(Entry entry)
+	{
+		Entry newEntry = new Entry(entry.url, entry.etag, entry.lastModified, entry.contentType, System.currentTimeMillis(), entry.body);
+		put(newEntry);
+		return newEntry;
+	}
+
+	/**
+	 * @return a stream, that passes {@code body} through and stores it as new entry of {@code url},
+	 *         when it's closed after it was read completely
+	 */
+	InputStream record(String url, String etag, String lastModified, String contentType, InputStream body)
+	{
+		return new RecordingInputStream(body, bytes -> put(new Entry(url, etag, lastModified, contentType, System.currentTimeMillis(), bytes)));
+	}
+
+	void put(Entry entry)
+	{
+		Path path = getFile(entry.url).toPath();
+		Path tempFile = null;
+		try
+		{
+			Files.createDirectories(folder.toPath());
+			tempFile = Files.createTempFile(folder.toPath(), "entry", ".tmp");
+			try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile))))
+			{
+				out.writeInt(FILE_VERSION);
+				out.writeUTF(entry.url);
+				out.writeUTF(toEmpty(entry.etag));
+				out.writeUTF(toEmpty(entry.lastModified));
+				out.writeUTF(toEmpty(entry.contentType));
+				out.writeLong(entry.fetchTime_ms);
+				out.writeInt(entry.body.length);
+				out.write(entry.body);
+			}
+			try { Files.move(tempFile, path, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING); }
+			catch (AtomicMoveNotSupportedException ex) { Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING); }
+			tempFile = null;
+		}
+		catch (IOException ex)
+		{
+			System.err.printf("Can't write cache entry of \"%s\": %s%n", entry.url, ex.getMessage());
+		}
+		finally
+		{
+			if (tempFile!=null)
+				try { Files.deleteIfExists(tempFile); }
+				catch (IOException ex) {}
+		}
+	}
+
+	private File getFile(String url)
+	{
+		try
+		{
+			byte[] hash = MessageDigest.getInstance("SHA-256").digest(url.getBytes(StandardCharsets.UTF_8));
+			return new File(folder, HexFormat.of().formatHex(hash) + FILE_EXTENSION);
+		}
+		catch (NoSuchAlgorithmException ex)
+		{
+			// every JRE has to support SHA-256
+			throw new IllegalStateException(ex);
+		}
+	}
+
+	/**
+	 * Thrown in offline mode, if an URL isn't in the cache.
+	 */
+	static class NotCachedException extends IOException
+	{
+		private static final long serialVersionUID = 6211930795432768105L;
+
+		NotCachedException(String url)
+		{
+			super("\"%s\" isn't in the cache (offline mode)".formatted(url));
+		}
+	}
+
+	private static String toEmpty(String str) { return str==null ? "" : str; }
+	private static String toNull (String str) { return str.isEmpty() ? null : str; }
+
+	private interface BodyConsumer
+	{
+		void accept(byte[] body);
+	}
+
+	private static class RecordingInputStream extends FilterInputStream
+	{
+		private final BodyConsumer consumer;
+		private ByteArrayOutputStream recorded;
+		private boolean complete;
+
+		RecordingInputStream(InputStream in, BodyConsumer consumer)
+		{
+			super(in);
+			this.consumer = consumer;
+			recorded = new ByteArrayOutputStream();
+			complete = false;
+		}
+
+		@Override
+		public int read() throws IOException
+		{
+			int b = super.read();
+			if (b<0) complete = true;
+			else if (recorded!=null) { recorded.write(b); checkSize(); }
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException
+		{
+			int n = super.read(b, off, len);
+			if (n<0) complete = true;
+			else if (recorded!=null) { recorded.write(b, off, n); checkSize(); }
+			return n;
+		}
+
+		@Override
+		public long skip(long n) throws IOException
+		{
+			// skipped bytes would be missing in the recorded body
+			recorded = null;
+			return super.skip(n);
+		}
+
+		private void checkSize()
+		{
+			if (recorded.size()>MAX_BODY_SIZE) recorded = null;
+		}
+
+		@Override
+		public void close() throws IOException
+		{
+			super.close();
+			if (complete && recorded!=null)
+			{
+				byte[] body = recorded.toByteArray();
+				recorded = null;
+				consumer.accept(body);
+			}
+		}
+	}
+}
@@ -0,0 +1,294 @@
+package net.schwarzbaer.java.tools.livestreamlistconverter;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Keeps the raw responses of the stations within a memory budget.
+ * <p>
+ * Responses are held in memory in LRU order. If the budget is exceeded, the least recently used responses are
+ * written to compressed temporary files and dropped from memory. A spilled response is read again,
+ * when it's requested, and becomes the most recently used one.
+ * The temporary files are deleted, when their response is replaced or removed, and at the exit of the application.
+ * <p>
+ * The store is locked only for the bookkeeping, never for the disk access, so callers (like the event dispatch thread)
+ * aren't blocked by a spilling. Responses, that exceed the budget, are handed over to a background thread, that writes them
+ * to disk. Until then, they are still served from memory. {@link #put(long, String)} waits,
+ * while more than {@value #MAX_SPILL_BACKLOG} bytes are waiting to be written.
+ */
+class ResponseStore
+{
+	static final long DEFAULT_MEMORY_BUDGET = 32L*1024*1024;
+	private static final long MAX_SPILL_BACKLOG = 8L*1024*1024;
+
+	private static final ExecutorService spiller = Executors.newSingleThreadExecutor(new DaemonThreadFactory("ResponseStore.Spiller"));
+
+	private final LinkedHashMap<Long, String> inMemory;
+	/** responses, that are written to disk right now */
+	private final Map<Long, String> spilling;
+	private final Map<Long, File> spilled;
+	private long memoryBudget;
+	private long memoryUsed;
+	private long spillBacklog;
+	/** only used by the {@link #spiller} */
+	private File spillFolder;
+	private long spillCounter;
+
+	ResponseStore(long memoryBudget)
+	{
+		inMemory = new LinkedHashMap<>(16, 0.75f, true);
+		spilling = new HashMap<>();
+		spilled = new HashMap<>();
+		this.memoryBudget = Math.max(0, memoryBudget);
+		memoryUsed = 0;
+		spillBacklog = 0;
+		spillFolder = null;
+		spillCounter = 0;
+	}
+
+	/**
+	 * @param memoryBudget  bytes, that the responses in memory may use (estimated as 2 bytes per char)
+	 */
+	synchronized void setMemoryBudget(long memoryBudget)
+	{
+		this.memoryBudget = Math.max(0, memoryBudget);
+		evict();
+	}
+
+	synchronized long getMemoryUsed() { return memoryUsed; }
+	/** @return number of responses on disk or on their way there */
+	synchronized int  getSpilledCount() { return spilled.size() + spilling.size(); }
+
+	/**
+	 * @return {@code true}, if there is a response for {@code key}. Spilled responses aren't read.
+	 */
+	synchronized boolean contains(long key)
+	{
+		return inMemory.containsKey(key) || spilling.containsKey(key) || spilled.containsKey(key);
+	}
+
+	/**
+	 * Waits, while too many responses are waiting to be written to disk.
+	 * @param response  new response or {@code null} to remove the former one
+	 */
+	synchronized void put(long key, String response)
+	{
+		remove(key);
+		if (response==null) return;
+		inMemory.put(key, response);
+		memoryUsed += getSize(response);
+		evict();
+
+		try
+		{
+			// releases the lock while waiting
+			while (spillBacklog>MAX_SPILL_BACKLOG)
+				wait();
+		}
+		catch (InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return the response of {@code key} or {@code null}, if there is none or its temporary file can't be read
+	 */
+	String get(long key)
+	{
+		File file;
+		synchronized (this)
+		{
+			String response = inMemory.get(key);
+			if (response!=null) return response;
+
+			response = spilling.remove(key);
+			if (response!=null)
+			{
+				// the spiller drops its file, because the response isn't in "spilling" anymore
+				putMostRecentlyUsed(key, response);
+				return response;
+			}
+
+			file = spilled.get(key);
+			if (file==null) return null;
+		}
+
+		String response;
+		try
+		{
+			response = readFile(file);
+		}
+		catch (IOException ex)
+		{
+			synchronized (this)
+			{
+				// replaced or removed while reading
+				if (spilled.get(key)!=file) return get(key);
+			}
+			System.err.printf("IOException while reading spilled station response \"%s\": %s%n", file.getAbsolutePath(), ex.getMessage());
+			return null;
+		}
+
+		synchronized (this)
+		{
+			// replaced or removed while reading: the response read is returned, but not kept
+			if (spilled.get(key)!=file) return response;
+			spilled.remove(key);
+			file.delete();
+			putMostRecentlyUsed(key, response);
+		}
+		return response;
+	}
+
+	/**
+	 * Eviction may spill {@code response} again only if it exceeds the budget alone.
+	 */
+	private void putMostRecentlyUsed(long key, String response)
+	{
+		inMemory.put(key, response);
+		memoryUsed += getSize(response);
+		evict();
+	}
+
+	synchronized void remove(long key)
+	{
+		String response = inMemory.remove(key);
+		if (response!=null) memoryUsed -= getSize(response);
+		spilling.remove(key);
+		File file = spilled.remove(key);
+		if (file!=null) file.delete();
+	}
+
+	synchronized void clear()
+	{
+		inMemory.clear();
+		memoryUsed = 0;
+		spilling.clear();
+		for (File file : spilled.values()) file.delete();
+		spilled.clear();
+	}
+
+	/**
+	 * Hands the least recently used responses over to the {@link #spiller}, until the budget is kept.
+	 */
+	private void evict()
+	{
+		Iterator<Map.Entry<Long, String>> it = inMemory.entrySet().iterator();
+		while (memoryUsed>memoryBudget && it.hasNext())
+		{
+			Map.Entry<Long, String> entry = it.next();
+			long key = entry.getKey();
+			String response = entry.getValue();
+			memoryUsed -= getSize(response);
+			it.remove();
+
+			spilling.put(key, response);
+			spillBacklog += getSize(response);
+			spiller.execute(() -> spill(key, response));
+		}
+	}
+
+	/**
+	 * Writes {@code response} to disk and publishes the file, if the response wasn't requested, replaced or removed meanwhile.
+	 * Runs in the {@link #spiller}.
+	 */
+	private void spill(long key, String response)
+	{
+		File file = null;
+		try
+		{
+			// nothing to write, if it's not wanted anymore
+			synchronized (this) { if (spilling.get(key)!=response) return; }
+			file = writeFile(response);
+		}
+		catch (IOException ex)
+		{
+			System.err.printf("IOException while spilling station response to disk: %s%n", ex.getMessage());
+			// response is dropped, the memory budget has priority
+		}
+		finally
+		{
+			synchronized (this)
+			{
+				if (spilling.get(key)==response)
+				{
+					spilling.remove(key);
+					File replaced = file==null ? null : spilled.put(key, file);
+					if (replaced!=null) replaced.delete();
+				}
+				else if (file!=null)
+					file.delete();
+				spillBacklog -= getSize(response);
+				notifyAll();
+			}
+		}
+	}
+
+	private File writeFile(String response) throws IOException
+	{
+		if (spillFolder==null || !spillFolder.isDirectory())
+		{
+			File folder = Files.createTempDirectory("LiveStreamListConverter.Responses").toFile();
+			// File.deleteOnExit would keep the path of each spilled file until the exit
+			Runtime.getRuntime().addShutdownHook(new Thread(() -> deleteFolder(folder)));
+			spillFolder = folder;
+		}
+		// the folder is private to this store, so a counter gives unique names
+		File file = new File(spillFolder, "response%d.txt.gz".formatted(++spillCounter));
+		// fast compression: spilling happens while a determination is running
+		try (Writer out = new BufferedWriter(new OutputStreamWriter(new GZIPOutputStream(Files.newOutputStream(file.toPath()), 8192) { { def.setLevel(Deflater.BEST_SPEED); } }, StandardCharsets.UTF_8)))
+		{
+			out.write(response);
+		}
+		catch (IOException ex)
+		{
+			file.delete();
+			throw ex;
+		}
+		return file;
+	}
+
+	private static void deleteFolder(File folder)
+	{
+		File[] files = folder.listFiles();
+		if (files!=null)
+			for (File file : files)
+				file.delete();
+		folder.delete();
+	}
+
+	private static String readFile(File file) throws IOException
+	{
+		try (Reader in = new BufferedReader(new InputStreamReader(new GZIPInputStream(Files.newInputStream(file.toPath())), StandardCharsets.UTF_8)))
+		{
+			StringBuilder sb = new StringBuilder();
+			char[] buffer = new char[8192];
+			int n;
+			while ( (n=in.read(buffer))>=0 ) sb.append(buffer, 0, n);
+			return sb.toString();
+		}
+	}
+
+	private static long getSize(String response)
+	{
+		return 2L*response.length();
+	}
+}
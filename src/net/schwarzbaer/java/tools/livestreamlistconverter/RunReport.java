@@ -0,0 +1,273 @@
+package net.schwarzbaer.java.tools.livestreamlistconverter;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Vector;
+
+import net.schwarzbaer.java.tools.livestreamlistconverter.OutputSink.WriteResult;
+
+/**
+ * Metrics of one run: fetching and parsing of all stations and writing of all output files.
+ * <p>
+ * After a run the report is written as JSON file and as file in the Prometheus text format,
+ * that can be read by the textfile collector of the node_exporter.
+ * Both files are replaced atomically, so a collector never reads a half-written file.
+ */
+class RunReport
+{
+	private static final String METRIC_PREFIX = "livestreamlistconverter_";
+
+	record StationEntry(int index, String name, String url, String host, FetchStats stats, int adressesIgnored, int adressesDuplicate) {}
+	record OutputEntry(String format, File file, WriteResult result, long bytes, long duration_ms) {}
+
+	private final long startTime_ms;
+	private final long start_ns;
+	private final List<StationEntry> stations;
+	private final List<OutputEntry> outputs;
+	private long determination_ms;
+	private boolean canceled;
+	private int streamsProbed;
+	private int streamsAlive;
+
+	RunReport()
+	{
+		startTime_ms = System.currentTimeMillis();
+		start_ns = System.nanoTime();
+		stations = new Vector<>();
+		outputs = new Vector<>();
+		determination_ms = -1;
+		canceled = false;
+		streamsProbed = 0;
+		streamsAlive = 0;
+	}
+
+	/**
+	 * @param index  index of the station in the list of known stations
+	 */
+	void addStation(int index, Station station, FetchStats stats, int adressesIgnored, int adressesDuplicate)
+	{
+		stations.add(new StationEntry(index, station.name, station.url, StationFetcher.getHost(station.url), stats, adressesIgnored, adressesDuplicate));
+	}
+
+	void addProbeResult(StreamProber.Result result)
+	{
+		streamsProbed++;
+		if (result.alive()) streamsAlive++;
+	}
+
+	void setDeterminationFinished(boolean canceled)
+	{
+		determination_ms = (System.nanoTime()-start_ns) / 1_000_000L;
+		this.canceled = canceled;
+	}
+
+	/**
+	 * Adds the results of writing output files. Former results of the same files are replaced.
+	 */
+	void addOutputs(Map<Outputter, Outputter.WriteReport> reports)
+	{
+		reports.forEach((outputter, report) -> {
+			report.fileResults().forEach((file, result) -> {
+				outputs.removeIf(entry -> entry.file.equals(file));
+				outputs.add(new OutputEntry(outputter.outputFormat.fileLabel, file, result, report.bytes(), report.duration_ms()));
+			});
+		});
+	}
+
+	void writeToFiles(File jsonFile, File prometheusFile)
+	{
+		// stations are added in the order of completion
+		stations.sort(Comparator.comparingInt(StationEntry::index));
+		writeToFile(jsonFile, "run report", this::writeJson);
+		writeToFile(prometheusFile, "Prometheus metrics", this::writePrometheus);
+	}
+
+	private interface ContentWriter
+	{
+		void write(Appendable out) throws IOException;
+	}
+
+	private static void writeToFile(File file, String label, ContentWriter contentWriter)
+	{
+		if (file==null) return;
+		try (OutputSink sink = new OutputSink(List.of(file), StandardCharsets.UTF_8))
+		{
+			if (!sink.hasTargets()) return;
+			contentWriter.write(sink);
+			WriteResult result = sink.commit().get(file);
+			if (result!=WriteResult.Failed)
+				System.out.printf("Write %s to file \"%s\" ... %s%n", label, file.getAbsolutePath(), result.label);
+		}
+		catch (IOException ex)
+		{
+			System.err.printf("IOException while writing %s: %s%n", label, ex.getMessage());
+		}
+	}
+
+	private void writeJson(Appendable out) throws IOException
+	{
+		out.append("{\n");
+		out.append("  \"start\": %s,\n"           .formatted(toJsonString(Instant.ofEpochMilli(startTime_ms).toString())));
+		out.append("  \"determination_ms\": %d,\n".formatted(determination_ms));
+		out.append("  \"canceled\": %s,\n"        .formatted(canceled));
+		if (streamsProbed>0)
+			out.append("  \"probe\": { \"streams\": %d, \"alive\": %d },\n".formatted(streamsProbed, streamsAlive));
+		out.append("  \"stations\": [");
+		for (int i=0; i<stations.size(); i++)
+		{
+			StationEntry entry = stations.get(i);
+			FetchStats stats = entry.stats;
+			out.append(i==0 ? "\n" : ",\n");
+			out.append("    { \"index\": %d, \"name\": %s, \"url\": %s, \"host\": %s, ".formatted(entry.index, toJsonString(entry.name), toJsonString(entry.url), toJsonString(entry.host)));
+			out.append("\"attempts\": %d, \"skipped\": %s, \"status\": %d, ".formatted(stats.attempts, stats.skipped, stats.statusCode));
+			out.append("\"dns_ms\": %d, \"headers_ms\": %d, \"first_byte_ms\": %d, \"total_ms\": %d, ".formatted(stats.dns_ms, stats.headers_ms, stats.firstByte_ms, stats.total_ms));
+			out.append("\"type\": %s, \"source\": %s, \"bytes\": %d, \"lines\": %d, \"adresses\": %d, \"ignored\": %d, \"duplicates\": %d, ".formatted(toJsonString(stats.sourceType), toJsonString(stats.responseSource), stats.bytesReceived, stats.linesParsed, stats.adressesFound, entry.adressesIgnored, entry.adressesDuplicate));
+			out.append("\"error\": %s }".formatted(toJsonString(stats.error)));
+		}
+		out.append(stations.isEmpty() ? "],\n" : "\n  ],\n");
+		out.append("  \"outputs\": [");
+		for (int i=0; i<outputs.size(); i++)
+		{
+			OutputEntry entry = outputs.get(i);
+			out.append(i==0 ? "\n" : ",\n");
+			out.append("    { \"format\": %s, \"file\": %s, \"result\": %s, \"bytes\": %d, \"duration_ms\": %d }".formatted(
+					toJsonString(entry.format), toJsonString(entry.file.getAbsolutePath()), toJsonString(entry.result.name()), entry.bytes, entry.duration_ms));
+		}
+		out.append(outputs.isEmpty() ? "]\n" : "\n  ]\n");
+		out.append("}\n");
+	}
+
+	private void writePrometheus(Appendable out) throws IOException
+	{
+		int failedStations = 0;
+		for (StationEntry entry : stations)
+			if (!entry.stats.isSuccessful())
+				failedStations++;
+
+		writeMetricHeader(out, "last_run_timestamp_seconds", "gauge", "Start time of the last run.");
+		writeSample(out, "last_run_timestamp_seconds", "", startTime_ms/1000.0);
+		writeMetricHeader(out, "last_run_canceled", "gauge", "1, if the last run was canceled.");
+		writeSample(out, "last_run_canceled", "", canceled ? 1 : 0);
+		if (determination_ms>=0)
+		{
+			writeMetricHeader(out, "determination_duration_seconds", "gauge", "Duration of determining the stream URLs of all stations.");
+			writeSample(out, "determination_duration_seconds", "", determination_ms/1000.0);
+		}
+		writeMetricHeader(out, "stations", "gauge", "Number of stations in the last run.");
+		writeSample(out, "stations", "", stations.size());
+		writeMetricHeader(out, "stations_failed", "gauge", "Number of stations, whose station list couldn't be read.");
+		writeSample(out, "stations_failed", "", failedStations);
+
+		if (streamsProbed>0)
+		{
+			writeMetricHeader(out, "streams_probed", "gauge", "Number of probed streams.");
+			writeSample(out, "streams_probed", "", streamsProbed);
+			writeMetricHeader(out, "streams_alive", "gauge", "Number of probed streams, that were reachable.");
+			writeSample(out, "streams_alive", "", streamsAlive);
+		}
+
+		writeStationMetric(out, "station_up"                   , "1, if the station list was read completely.", entry -> entry.stats.isSuccessful() ? 1 : 0);
+		writeStationMetric(out, "station_attempts"             , "Number of attempts to read the station list.", entry -> entry.stats.attempts);
+		writeStationMetric(out, "station_dns_seconds"          , "Duration of the DNS lookup.", entry -> toSeconds(entry.stats.dns_ms));
+		writeStationMetric(out, "station_headers_seconds"      , "Time until the response headers were received, including the connect.", entry -> toSeconds(entry.stats.headers_ms));
+		writeStationMetric(out, "station_first_byte_seconds"   , "Time until the first byte of the body was received.", entry -> toSeconds(entry.stats.firstByte_ms));
+		writeStationMetric(out, "station_total_seconds"        , "Duration of the last attempt.", entry -> toSeconds(entry.stats.total_ms));
+		writeStationMetric(out, "station_response_from_cache"  , "1, if the station list was taken from the cache (revalidated or without request).", entry -> entry.stats.responseSource==null ? null : entry.stats.responseSource.equals(ResponseCache.Source.fetched.name()) ? 0 : 1);
+		writeStationMetric(out, "station_received_bytes"       , "Received bytes of the body (before decompression).", entry -> entry.stats.bytesReceived);
+		writeStationMetric(out, "station_parsed_lines"         , "Parsed lines of the station list.", entry -> entry.stats.linesParsed);
+		writeStationMetric(out, "station_adresses"             , "Found stream adresses.", entry -> entry.stats.adressesFound);
+		writeStationMetric(out, "station_ignored_adresses"     , "Found stream adresses, that are ignored.", entry -> entry.adressesIgnored);
+		writeStationMetric(out, "station_duplicate_adresses"   , "Found stream adresses, whose URL was already found before.", entry -> entry.adressesDuplicate);
+
+		if (!outputs.isEmpty())
+		{
+			writeMetricHeader(out, "output_file_written", "gauge", "1, if the output file was written, 0 if it was unchanged, -1 if it failed.");
+			for (OutputEntry entry : outputs)
+				writeSample(out, "output_file_written", toLabels("format", entry.format, "file", entry.file.getAbsolutePath()), switch (entry.result) {
+					case Written -> 1; case Unchanged -> 0; case Failed -> -1;
+				});
+			writeMetricHeader(out, "output_file_bytes", "gauge", "Size of the output file.");
+			for (OutputEntry entry : outputs)
+				writeSample(out, "output_file_bytes", toLabels("format", entry.format, "file", entry.file.getAbsolutePath()), entry.bytes);
+			writeMetricHeader(out, "output_file_duration_seconds", "gauge", "Duration of generating and writing the output files of the format.");
+			for (OutputEntry entry : outputs)
+				writeSample(out, "output_file_duration_seconds", toLabels("format", entry.format, "file", entry.file.getAbsolutePath()), entry.duration_ms/1000.0);
+		}
+	}
+
+	private interface StationValue
+	{
+		/**
+		 * @return the value or {@code null}, if the station has no value
+		 */
+		Number get(StationEntry entry);
+	}
+
+	private void writeStationMetric(Appendable out, String name, String help, StationValue getValue) throws IOException
+	{
+		writeMetricHeader(out, name, "gauge", help);
+		for (int i=0; i<stations.size(); i++)
+		{
+			StationEntry entry = stations.get(i);
+			Number value = getValue.get(entry);
+			if (value!=null)
+				writeSample(out, name, toLabels("index", Integer.toString(entry.index), "station", entry.name, "host", entry.host), value);
+		}
+	}
+
+	private static Double toSeconds(long ms)
+	{
+		return ms<0 ? null : ms/1000.0;
+	}
+
+	private static void writeMetricHeader(Appendable out, String name, String type, String help) throws IOException
+	{
+		out.append("# HELP ").append(METRIC_PREFIX).append(name).append(' ').append(help).append('\n');
+		out.append("# TYPE ").append(METRIC_PREFIX).append(name).append(' ').append(type).append('\n');
+	}
+
+	private static void writeSample(Appendable out, String name, String labels, Number value) throws IOException
+	{
+		String valueStr = value instanceof Double d ? String.format(Locale.ROOT, "%.3f", d) : value.toString();
+		out.append(METRIC_PREFIX).append(name).append(labels).append(' ').append(valueStr).append('\n');
+	}
+
+	private static String toLabels(String... namesAndValues)
+	{
+		StringBuilder sb = new StringBuilder("{");
+		for (int i=0; i+1<namesAndValues.length; i+=2)
+		{
+			if (i>0) sb.append(',');
+			String value = namesAndValues[i+1]==null ? "" : namesAndValues[i+1];
+			sb.append(namesAndValues[i]).append("=\"");
+			sb.append(value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n"));
+			sb.append('"');
+		}
+		return sb.append('}').toString();
+	}
+
+	private static String toJsonString(String str)
+	{
+		if (str==null) return "null";
+		StringBuilder sb = new StringBuilder("\"");
+		for (char ch : str.toCharArray())
+			switch (ch)
+			{
+			case '"' : sb.append("\\\""); break;
+			case '\\': sb.append("\\\\"); break;
+			case '\n': sb.append("\\n"); break;
+			case '\r': sb.append("\\r"); break;
+			case '\t': sb.append("\\t"); break;
+			default:
+				if (ch<0x20) sb.append("\\u%04x".formatted((int) ch));
+				else sb.append(ch);
+			}
+		return sb.append('"').toString();
+	}
+}
@@ -1,63 +1,231 @@
 package net.schwarzbaer.java.tools.livestreamlistconverter;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Reader;
 import java.net.MalformedURLException;
 import java.net.URI;
 import java.net.URISyntaxException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 import java.util.Objects;
+import java.util.ServiceLoader;
+import java.util.function.Consumer;
 
-enum SourceType
+/**
+ * Format of a station list and the parser for it.
+ * <p>
+ * The built-in types are registered as constants. Further types can be added with {@link #register(SourceType)}
+ * or by a {@link Provider}, that is registered as service in {@code META-INF/services}.
+ * All parsers read the station list as stream and don't build a document tree.
+ * Stations without type (or with type {@link #auto}) get their type by {@link #detect(String, String)}.
+ */
+final class SourceType
 {
-	plain(SourceType::parseLine_plain),
-	pls  (SourceType::parseLine_pls  ),
-	;
-	final LineParser parser;
-	
-	SourceType(LineParser parser)
+	interface LineParser
 	{
-		this.parser = Objects.requireNonNull(parser);
+		/**
+		 * @return the stream URL found in {@code line} or {@code null}
+		 */
+		String parseLine(String line);
 	}
-	
-	static SourceType parseSourceType(String str)
+
+	interface Parser
 	{
-		try
-		{
-			return valueOf(str);
-		}
-		catch (Exception ex)
+		/**
+		 * Reads the station list from {@code input} and passes each found stream URL to {@code urlConsumer}, as soon as it's found.
+		 * @param base  URI of the station list, to resolve relative URLs (can be {@code null})
+		 * @throws IOException  if the station list can't be read, {@link Station.ParseException} if it has a syntax error. URLs found before are already passed.
+		 */
+		void parse(Reader input, URI base, Consumer<String> urlConsumer) throws IOException;
+	}
+
+	interface Sniffer
+	{
+		/**
+		 * @param head  the first bytes of the station list (decoded as ISO-8859-1), without byte order mark and leading whitespace
+		 * @return {@code true}, if the station list has this type without doubt
+		 */
+		boolean matches(String head);
+	}
+
+	/**
+	 * Service interface for additional source types.
+	 */
+	interface Provider
+	{
+		List<SourceType> getSourceTypes();
+	}
+
+	private static final Map<String, SourceType> registry = new LinkedHashMap<>();
+
+	/** placeholder for "detect the type of each response" */
+	static final SourceType auto  = register(new SourceType("auto", (Parser) null, null));
+	static final SourceType plain = register(new SourceType("plain", SourceType::parseLine_plain, null));
+	static final SourceType pls   = register(new SourceType("pls"  , SourceType::parseLine_pls  , head -> startsWithIgnoreCase(head, "[playlist]"), "audio/x-scpls"));
+	static final SourceType m3u   = register(new SourceType("m3u"  , SourceType::parse_m3u, head -> head.startsWith("#EXTM3U"), "audio/x-mpegurl", "audio/mpegurl"));
+	static final SourceType m3u8  = register(new SourceType("m3u8" , SourceType::parse_m3u, null, "application/vnd.apple.mpegurl", "application/x-mpegurl"));
+	static final SourceType xspf  = register(new SourceType("xspf" , XmlPlaylistParser::parseXSPF, head -> head.startsWith("<") && head.contains("<playlist"), "application/xspf+xml"));
+	static final SourceType asx   = register(new SourceType("asx"  , XmlPlaylistParser::parseASX , head -> startsWithIgnoreCase(head, "<asx"), "video/x-ms-asf", "video/x-ms-asx", "audio/x-ms-asx", "application/vnd.ms-asf"));
+	static final SourceType json  = register(new SourceType("json" , JsonURLParser::parse, head -> head.startsWith("{") || head.startsWith("["), "application/json", "text/json"));
+
+	static
+	{
+		for (Provider provider : ServiceLoader.load(Provider.class))
+			provider.getSourceTypes().forEach(SourceType::register);
+	}
+
+	private final String name;
+	final Parser parser;
+	/** parser of a single line for line based formats, {@code null} for other formats */
+	final LineParser lineParser;
+	private final Sniffer sniffer;
+	private final List<String> contentTypes;
+
+	SourceType(String name, LineParser lineParser, Sniffer sniffer, String... contentTypes)
+	{
+		this(name, lineParser==null ? null : (input, base, urlConsumer) -> parseLines(input, lineParser, urlConsumer), lineParser, sniffer, contentTypes);
+	}
+
+	SourceType(String name, Parser parser, Sniffer sniffer, String... contentTypes)
+	{
+		this(name, parser, null, sniffer, contentTypes);
+	}
+
+	private SourceType(String name, Parser parser, LineParser lineParser, Sniffer sniffer, String... contentTypes)
+	{
+		this.name = Objects.requireNonNull(name);
+		this.parser = parser;
+		this.lineParser = lineParser;
+		this.sniffer = sniffer;
+		this.contentTypes = List.of(contentTypes);
+	}
+
+	String name() { return name; }
+	boolean isAuto() { return this==auto; }
+
+	@Override
+	public String toString()
+	{
+		return name;
+	}
+
+	/**
+	 * @return {@code type}, or a type registered before with the same name
+	 */
+	static synchronized SourceType register(SourceType type)
+	{
+		SourceType existing = registry.putIfAbsent(type.name, type);
+		if (existing!=null && existing!=type)
+			System.err.printf("SourceType \"%s\" is already registered%n", type.name);
+		return existing==null ? type : existing;
+	}
+
+	static synchronized SourceType[] values()
+	{
+		return registry.values().toArray(SourceType[]::new);
+	}
+
+	/**
+	 * @return the type named {@code name} or {@code null}
+	 */
+	static synchronized SourceType get(String name)
+	{
+		return registry.get(name);
+	}
+
+	/**
+	 * Determines the type of a station list. A clear signature at the beginning wins over the "Content-Type" header,
+	 * because many servers send wrong content types.
+	 * @param contentType  value of the "Content-Type" header (can be {@code null})
+	 * @param head  the first bytes of the station list, decoded as ISO-8859-1
+	 * @return the detected type, {@link #plain} if there is no hint
+	 */
+	static SourceType detect(String contentType, String head)
+	{
+		SourceType[] types = values();
+
+		// UTF-8 byte order mark
+		String trimmedHead = head.startsWith("\u00EF\u00BB\u00BF") ? head.substring(3) : head;
+		trimmedHead = trimmedHead.stripLeading();
+		for (SourceType type : types)
+			if (type.sniffer!=null && type.sniffer.matches(trimmedHead))
+				return type;
+
+		if (contentType!=null)
 		{
-			System.err.printf("Found unknown SourceType: \"%s\"%n", str);
-			return null;
+			int pos = contentType.indexOf(';');
+			String mimeType = (pos<0 ? contentType : contentType.substring(0, pos)).trim().toLowerCase(Locale.ROOT);
+			for (SourceType type : types)
+				if (type.contentTypes.contains(mimeType))
+					return type;
 		}
+		return plain;
 	}
 
-	interface LineParser
+	private static boolean startsWithIgnoreCase(String str, String prefix)
 	{
-		StreamAdress parseLine(String line, String label);
+		return str.regionMatches(true, 0, prefix, 0, prefix.length());
 	}
-	
-	private static StreamAdress parseLine_pls(String line, String label)
+
+	private static void parseLines(Reader input, LineParser lineParser, Consumer<String> urlConsumer) throws IOException
+	{
+		BufferedReader in = new BufferedReader(input);
+		String line;
+		while ( (line=in.readLine())!=null )
+		{
+			String url = lineParser.parseLine(line);
+			if (url!=null)
+				urlConsumer.accept(url);
+		}
+	}
+
+	private static String parseLine_pls(String line)
 	{
 		if (line.startsWith("File")) {
 			int pos = line.indexOf('=');
 			if (pos>=0)
-				return new StreamAdress(
-						label,
-						line.substring(pos+1)
-				);
+				return line.substring(pos+1);
 		}
 		return null;
 	}
 
-	private static StreamAdress parseLine_plain(String line, String label)
+	private static String parseLine_plain(String line)
 	{
 		if (isURL(line))
-			return new StreamAdress(
-					label,
-					line
-			);
+			return line;
 		return null;
 	}
 
+	/**
+	 * Simple and extended M3U: every line, that isn't empty or a comment / directive ("#..."), is an URL.
+	 */
+	private static void parse_m3u(Reader input, URI base, Consumer<String> urlConsumer) throws IOException
+	{
+		parseLines(input, line -> {
+			String str = line.trim();
+			if (str.isEmpty() || str.startsWith("#")) return null;
+			return resolveURL(base, str);
+		}, urlConsumer);
+	}
+
+	/**
+	 * @return {@code url} unchanged, if it's absolute, resolved against {@code base} otherwise, or {@code null}, if it isn't a valid URL
+	 */
+	static String resolveURL(URI base, String url)
+	{
+		if (isURL(url)) return url;
+		if (base==null) return null;
+		try
+		{
+			String resolved = base.resolve(new URI(url)).toString();
+			return isURL(resolved) ? resolved : null;
+		}
+		catch (URISyntaxException | IllegalArgumentException ex) { return null; }
+	}
+
 	private static boolean isURL(String url)
 	{
 		try
@@ -67,5 +235,6 @@ enum SourceType
 		}
 		catch (URISyntaxException e) { return false; }
 		catch (MalformedURLException e) { return false; }
+		catch (IllegalArgumentException e) { return false; }
 	}
 }
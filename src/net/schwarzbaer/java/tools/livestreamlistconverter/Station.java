@@ -1,73 +1,246 @@
 package net.schwarzbaer.java.tools.livestreamlistconverter;
 
-import java.io.BufferedReader;
+import java.io.BufferedInputStream;
+import java.io.FilterReader;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
-import java.net.MalformedURLException;
+import java.io.Reader;
 import java.net.URI;
 import java.net.URISyntaxException;
-import java.util.Vector;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
 
 class Station
 {
-	
+	private static final AtomicLong nextId = new AtomicLong(1);
+
+	/** unique in the running application, doesn't change when the station is moved or edited */
+	final long id = nextId.getAndIncrement();
 	String url = null;
 	String name = null;
 	SourceType type = null;
-	String stationResponse = null;
+	/** where the station response comes from, {@code null} if there is no response */
+	ResponseCache.Source stationResponseSource = null;
+	final FetchPolicy fetchPolicy = new FetchPolicy();
+
+	/** raw responses of all stations, bounded in memory */
+	static final ResponseStore responseStore = new ResponseStore(ResponseStore.DEFAULT_MEMORY_BUDGET);
+
+	/**
+	 * @return the response, that was received in the last determination, or {@code null}. It may be read from a temporary file.
+	 */
+	String getStationResponse()
+	{
+		return responseStore.get(id);
+	}
+
+	boolean hasStationResponse()
+	{
+		return responseStore.contains(id);
+	}
+
+	private void setStationResponse(String stationResponse, ResponseCache.Source source)
+	{
+		responseStore.put(id, stationResponse);
+		stationResponseSource = stationResponse==null ? null : source;
+	}
 
 	@Override
 	public String toString()
 	{
 		return "Station [ name=\"" + name + "\", url=\"" + url + "\", type=\"" + type + "\" ]";
 	}
-	
-	Vector<StreamAdress> readStreamAdressesFromWeb()
+
+	interface ParseListener
+	{
+		void responseReceived();
+		void adressFound(StreamAdress adress);
+	}
+
+	/**
+	 * Reads the station list from web and parses it, while it's received.
+	 * If the station has no type (or {@link SourceType#auto}), the type is detected from the beginning of the response and its "Content-Type".
+	 * Found stream adresses are passed to {@code listener} immediately.
+	 * Only the first adress is held back until a second one is found, because a single adress gets the name of the station.
+	 * @param wasCanceled  aborts reading the response, if it returns {@code true}
+	 * @param keepResponse  if {@code true}, the whole response is stored in the {@link #responseStore} and its source in {@link #stationResponseSource}
+	 * @param stats  gets the timings, the counts of received bytes and lines, the used type and the source of the response (can be {@code null})
+	 * @throws IOException  if the station list can't be read completely. Adresses found before are already passed to {@code listener}.
+	 */
+	void readStreamAdressesFromWeb(HttpFetcher httpFetcher, FetchPolicy.Resolved policy, BooleanSupplier wasCanceled, boolean keepResponse, ParseListener listener, FetchStats stats) throws URISyntaxException, IOException, InterruptedException
+	{
+		setStationResponse(null, null);
+		if (url==null) return;
+
+		try (HttpFetcher.Response response = httpFetcher.open(url, policy, wasCanceled, stats))
+		{
+			listener.responseReceived();
+			if (stats!=null) stats.responseSource = response.source.name();
+
+			BufferedInputStream body = new BufferedInputStream(response.body);
+			SourceType usedType = type;
+			if (usedType==null || usedType.isAuto())
+				usedType = SourceType.detect(response.getContentType(), peekHead(body));
+			if (stats!=null) stats.sourceType = usedType.name();
+
+			AdressEmitter adressEmitter = new AdressEmitter(listener::adressFound);
+			StringBuilder content = keepResponse ? new StringBuilder() : null;
+			parseStationList(body, response.getCharset(StandardCharsets.UTF_8), usedType, response.uri, content, stats, adressEmitter::add);
+			adressEmitter.finish();
+
+			if (content!=null)
+				setStationResponse(content.toString(), response.source);
+		}
+	}
+
+	/**
+	 * Parses a station list with the parser of {@code type}, while it's read.
+	 * The whole input is read, also after the parser has finished, to get complete line counts and responses.
+	 * @param content  gets the response with line endings as {@link System#lineSeparator()} (can be {@code null})
+	 * @param stats  gets the count of lines (can be {@code null})
+	 * @throws ParseException  if the station list is malformed
+	 */
+	static void parseStationList(InputStream input, Charset charset, SourceType type, URI base, StringBuilder content, FetchStats stats, Consumer<String> urlConsumer) throws IOException
+	{
+		try (RecordingReader in = new RecordingReader(new InputStreamReader(input, charset), content, stats))
+		{
+			if (type.parser!=null)
+				type.parser.parse(in, base, urlConsumer);
+			in.skipToEnd();
+		}
+	}
+
+	/**
+	 * A station list is malformed. Another attempt would get the same result.
+	 */
+	static class ParseException extends IOException
+	{
+		private static final long serialVersionUID = -7385061297243518840L;
+
+		ParseException(String message)
+		{
+			super(message);
+		}
+
+		ParseException(String message, Throwable cause)
+		{
+			super(message, cause);
+		}
+	}
+
+	private static final int HEAD_LENGTH = 256;
+
+	private static String peekHead(BufferedInputStream input) throws IOException
 	{
-		if (url==null) return null;
-		stationResponse = getContent(url);
-		if (stationResponse==null) return null;
-		
-		Vector<StreamAdress> adresses = new Vector<>();
-		stationResponse.lines().forEach(line -> {
-			String label = String.format("%s(%d)", name, adresses.size()+1);
-			StreamAdress streamAdress = type==null ? null : type.parser.parseLine(line, label);
-			if (streamAdress!=null)
-				adresses.add(streamAdress);
-		});
-		
-		if (adresses.size()==1) adresses.get(0).name = name;
-		return adresses;
+		input.mark(HEAD_LENGTH);
+		byte[] head = input.readNBytes(HEAD_LENGTH);
+		input.reset();
+		return new String(head, StandardCharsets.ISO_8859_1);
 	}
 
-	private static String getContent(String url)
+	/**
+	 * Counts the lines, that are read by the parser, and records them in {@code content} (can be {@code null})
+	 * with line endings as {@link System#lineSeparator()}.
+	 */
+	private static class RecordingReader extends FilterReader
 	{
-		Object obj; 
-		try { obj = new URI(url).toURL().getContent(); }
-		catch (URISyntaxException e) { e.printStackTrace(); return null; }
-		catch (MalformedURLException e) { e.printStackTrace(); return null; }
-		catch (IOException e) { e.printStackTrace(); return null; }
-		
-		if (obj==null) return null;
-		if (obj instanceof String str) return str;
-		if (obj instanceof InputStream input) return readFromInputStream(input);
-		
-		System.err.printf("Unknown content type of station list: %s%n", obj.getClass().getCanonicalName());
-		return null;
+		private final StringBuilder content;
+		private final FetchStats stats;
+		private boolean afterCR;
+		private boolean lineOpen;
+
+		RecordingReader(Reader in, StringBuilder content, FetchStats stats)
+		{
+			super(in);
+			this.content = content;
+			this.stats = stats;
+			afterCR = false;
+			lineOpen = false;
+		}
+
+		@Override
+		public int read() throws IOException
+		{
+			int ch = super.read();
+			if (ch<0) finishLastLine();
+			else record((char) ch);
+			return ch;
+		}
+
+		@Override
+		public int read(char[] cbuf, int off, int len) throws IOException
+		{
+			int n = super.read(cbuf, off, len);
+			if (n<0) finishLastLine();
+			for (int i=0; i<n; i++) record(cbuf[off+i]);
+			return n;
+		}
+
+		void skipToEnd() throws IOException
+		{
+			char[] buffer = new char[8192];
+			while (read(buffer, 0, buffer.length)>=0) {}
+		}
+
+		private void record(char ch)
+		{
+			if (ch=='\n' && afterCR) { afterCR = false; return; }
+			afterCR = ch=='\r';
+			if (ch=='\r' || ch=='\n')
+			{
+				lineOpen = false;
+				if (stats  !=null) stats.linesParsed++;
+				if (content!=null) content.append(System.lineSeparator());
+			}
+			else
+			{
+				lineOpen = true;
+				if (content!=null) content.append(ch);
+			}
+		}
+
+		private void finishLastLine()
+		{
+			if (!lineOpen) return;
+			lineOpen = false;
+			if (stats  !=null) stats.linesParsed++;
+			if (content!=null) content.append(System.lineSeparator());
+		}
 	}
 
-	private static String readFromInputStream(InputStream input)
+	private class AdressEmitter
 	{
-		try (BufferedReader in = new BufferedReader(new InputStreamReader(input)))
+		private final Consumer<StreamAdress> consumer;
+		private StreamAdress firstAdress;
+		private int count;
+
+		AdressEmitter(Consumer<StreamAdress> consumer)
 		{
-			return in.lines().reduce("", (content, line) -> "%s%s%n".formatted(content, line));
+			this.consumer = consumer;
+			firstAdress = null;
+			count = 0;
 		}
-		catch (IOException ex)
+
+		void add(String streamURL)
+		{
+			count++;
+			StreamAdress adress = new StreamAdress(String.format("%s(%d)", name, count), streamURL);
+			if (count==1) { firstAdress = adress; return; }
+			if (count==2) consumer.accept(firstAdress);
+			consumer.accept(adress);
+		}
+
+		void finish()
 		{
-			System.err.printf("IOException while reading response from station: %s%n", ex.getMessage());
-			//ex.printStackTrace();
+			if (count==1)
+			{
+				firstAdress.name = name;
+				consumer.accept(firstAdress);
+			}
 		}
-		return null;
 	}
-}
\ No newline at end of file
+}
@@ -0,0 +1,396 @@
+package net.schwarzbaer.java.tools.livestreamlistconverter;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
+import java.util.function.Function;
+
+/**
+ * Fetches the station lists of several stations concurrently.
+ * <p>
+ * Failed attempts are retried with an exponential, jittered backoff according to the {@link FetchPolicy} of the station,
+ * as long as no adress of the station was handed over.
+ * After {@code breakerThreshold} failed attempts in a row on the same host, all further stations of this host are skipped for the rest of the run.
+ * Canceling interrupts all running fetches.
+ * <p>
+ * Each station has a bounded queue of up to {@value #EVENT_QUEUE_CAPACITY} found adresses, that aren't handed over yet.
+ * A worker, whose station is ahead of the handed over one, waits, while this queue is full (backpressure).
+ */
+class StationFetcher
+{
+	static final int DEFAULT_PARALLELISM  = 8;
+	static final int DEFAULT_MAX_PER_HOST = 2;
+	static final int DEFAULT_RETRY_BACKOFF_MS   = 500;
+	static final int DEFAULT_BREAKER_THRESHOLD  = 3;
+
+	private static final long CANCEL_POLL_INTERVAL_MS = 100;
+	private static final int EVENT_QUEUE_CAPACITY = 4096;
+	private static final long MAX_RETRY_BACKOFF_MS = 30000;
+
+	interface ResultListener
+	{
+		void stationResponded(int index, Station station);
+		void adressFound     (int index, Station station, StreamAdress adress);
+		void stationFinished (int index, Station station, boolean responded, FetchStats stats);
+	}
+
+	private final HttpFetcher httpFetcher;
+	private final Function<Station, FetchPolicy.Resolved> getPolicy;
+	private final int parallelism;
+	private final int maxPerHost;
+	private final int retryBackoff_ms;
+	private final int breakerThreshold;
+	private final boolean keepResponses;
+
+	StationFetcher(HttpFetcher httpFetcher, Function<Station, FetchPolicy.Resolved> getPolicy, int parallelism, int maxPerHost, int retryBackoff_ms, int breakerThreshold, boolean keepResponses)
+	{
+		this.httpFetcher = httpFetcher;
+		this.getPolicy   = getPolicy;
+		this.parallelism = Math.max(1, parallelism);
+		this.maxPerHost  = Math.max(1, maxPerHost);
+		this.retryBackoff_ms  = Math.max(0, retryBackoff_ms);
+		this.breakerThreshold = Math.max(1, breakerThreshold);
+		this.keepResponses = keepResponses;
+	}
+
+	/**
+	 * Reads the stream adresses of all stations concurrently.
+	 * The results are handed to {@code listener} on the calling thread in the order of {@code stations}.
+	 * Adresses of the station, that is next in order, are handed over as soon as they are parsed.
+	 * @return {@code false}, if the task was canceled
+	 */
+	boolean fetchAll(List<Station> stations, BooleanSupplier wasCanceled, ResultListener listener)
+	{
+		if (stations.isEmpty()) return true;
+
+		Scheduler scheduler = new Scheduler(stations);
+		// each one is written by one worker thread and read after the FINISHED event of its station
+		FetchStats[] stats = new FetchStats[stations.size()];
+		for (int i=0; i<stats.length; i++) stats[i] = new FetchStats();
+		List<BlockingQueue<Event>> eventQueues = stations.stream().map(station -> (BlockingQueue<Event>) new LinkedBlockingQueue<Event>(EVENT_QUEUE_CAPACITY)).toList();
+
+		int threadCount = Math.min(parallelism, stations.size());
+		ExecutorService executor = Executors.newFixedThreadPool(threadCount, new DaemonThreadFactory("StationFetcher"));
+		try
+		{
+			for (int i=0; i<threadCount; i++)
+				executor.execute(() -> {
+					int index;
+					while ( (index = scheduler.next())>=0 )
+					{
+						Station station = stations.get(index);
+						BlockingQueue<Event> eventQueue = eventQueues.get(index);
+						try
+						{
+							fetchStation(index, station, eventQueue, scheduler, stats[index]);
+						}
+						catch (Throwable ex)
+						{
+							System.err.printf("Exception while reading stream adresses from station \"%s\": %s%n", station.name, ex);
+							stats[index].finishAttempt(ex);
+						}
+						finally
+						{
+							put(eventQueue, Event.FINISHED, scheduler);
+							scheduler.done(index);
+						}
+					}
+				});
+
+			for (int index=0; index<stations.size(); index++)
+			{
+				Station station = stations.get(index);
+				BlockingQueue<Event> eventQueue = eventQueues.get(index);
+				boolean responded = false;
+				boolean finished = false;
+				while (!finished)
+				{
+					Event event = waitFor(eventQueue, wasCanceled);
+					if (event==null) return false;
+
+					if (event==Event.RESPONDED)
+					{
+						// a station responds once per attempt
+						if (!responded)
+							listener.stationResponded(index, station);
+						responded = true;
+					}
+					else if (event==Event.FINISHED)
+					{
+						finished = true;
+						listener.stationFinished(index, station, responded, stats[index]);
+					}
+					else
+						listener.adressFound(index, station, event.adress);
+				}
+			}
+			return true;
+		}
+		finally
+		{
+			scheduler.cancel();
+			executor.shutdownNow();
+		}
+	}
+
+	private void fetchStation(int index, Station station, BlockingQueue<Event> eventQueue, Scheduler scheduler, FetchStats stats)
+	{
+		String host = scheduler.getHostOfStation(index);
+		if (scheduler.isHostBlocked(host))
+		{
+			System.err.printf("Skipped station \"%s\": Host \"%s\" has failed %d times in a row.%n", station.name, host, breakerThreshold);
+			stats.skipped = true;
+			return;
+		}
+		if (station.url==null)
+		{
+			stats.error = "Station has no URL";
+			return;
+		}
+
+		FetchPolicy.Resolved policy = getPolicy.apply(station);
+		Station.ParseListener parseListener = new Station.ParseListener() {
+			@Override public void responseReceived() { put(eventQueue, Event.RESPONDED, scheduler); }
+			@Override public void adressFound(StreamAdress adress) { stats.adressesFound++; put(eventQueue, new Event(adress), scheduler); }
+		};
+
+		for (int attempt=0; !scheduler.isCanceled(); attempt++)
+		{
+			stats.startAttempt();
+			try
+			{
+				station.readStreamAdressesFromWeb(httpFetcher, policy, scheduler::isCanceled, keepResponses, parseListener, stats);
+				stats.finishAttempt(null);
+				scheduler.hostSucceeded(host);
+				return;
+			}
+			catch (URISyntaxException ex)
+			{
+				System.err.printf("Invalid URL of station \"%s\": %s%n", station.name, ex.getMessage());
+				stats.finishAttempt(ex);
+				return;
+			}
+			catch (InterruptedException ex)
+			{
+				stats.finishAttempt(ex);
+				return; // canceled
+			}
+			catch (IOException ex)
+			{
+				stats.finishAttempt(ex);
+				if (scheduler.isCanceled()) return;
+				System.err.printf("IOException while reading station list of \"%s\" (attempt %d of %d): %s%n", station.name, attempt+1, policy.retries()+1, ex);
+
+				if (!isTransientFailure(ex)) return;
+				if (scheduler.hostFailed(host))
+					System.err.printf("Host \"%s\" has failed %d times in a row. It's skipped for the rest of this run.%n", host, breakerThreshold);
+
+				if (attempt>=policy.retries() || stats.adressesFound>0 || scheduler.isHostBlocked(host)) return;
+
+				long backoff_ms = getRetryBackoff_ms(attempt);
+				System.err.printf("    Retry in %d ms%n", backoff_ms);
+				try { Thread.sleep(backoff_ms); }
+				catch (InterruptedException ex1) { return; } // canceled
+			}
+		}
+	}
+
+	/**
+	 * Waits, while {@code eventQueue} is full. If the task is canceled meanwhile, the event is dropped, because nobody waits for it anymore.
+	 */
+	private static void put(BlockingQueue<Event> eventQueue, Event event, Scheduler scheduler)
+	{
+		try
+		{
+			// the interrupt of the canceling can be consumed by the fetch, so the flag of the scheduler is checked too
+			while (!scheduler.isCanceled())
+				if (eventQueue.offer(event, CANCEL_POLL_INTERVAL_MS, TimeUnit.MILLISECONDS))
+					return;
+		}
+		catch (InterruptedException ex)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * @return {@code true}, if another attempt could succeed and the failure tells something about the host
+	 */
+	private static boolean isTransientFailure(IOException ex)
+	{
+		if (ex instanceof ResponseCache.NotCachedException) return false;
+		if (ex instanceof Station.ParseException) return false;
+		if (ex instanceof HttpFetcher.HttpStatusException statusEx)
+		{
+			int statusCode = statusEx.statusCode;
+			return statusCode>=500 || statusCode==408 || statusCode==429;
+		}
+		return true;
+	}
+
+	/**
+	 * @return exponential backoff with "equal jitter": a random value between the half and the full backoff
+	 */
+	private long getRetryBackoff_ms(int attempt)
+	{
+		long backoff_ms = Math.min(MAX_RETRY_BACKOFF_MS, (long) retryBackoff_ms << Math.min(attempt, 20));
+		return backoff_ms/2 + ThreadLocalRandom.current().nextLong(backoff_ms/2 + 1);
+	}
+
+	/**
+	 * @return next event or {@code null}, if the task was canceled
+	 */
+	private static Event waitFor(BlockingQueue<Event> eventQueue, BooleanSupplier wasCanceled)
+	{
+		while (!wasCanceled.getAsBoolean())
+		{
+			try
+			{
+				Event event = eventQueue.poll(CANCEL_POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+				if (event!=null) return event;
+			}
+			catch (InterruptedException ex)
+			{
+				Thread.currentThread().interrupt();
+				return null;
+			}
+		}
+		return null;
+	}
+
+	private static class Event
+	{
+		static final Event RESPONDED = new Event(null);
+		static final Event FINISHED  = new Event(null);
+
+		final StreamAdress adress;
+
+		Event(StreamAdress adress)
+		{
+			this.adress = adress;
+		}
+	}
+
+	static String getHost(String url)
+	{
+		if (url==null) return "";
+		try
+		{
+			String host = URI.create(url).getHost();
+			return host==null ? "" : host.toLowerCase();
+		}
+		catch (IllegalArgumentException ex) { return ""; }
+	}
+
+	/**
+	 * Hands out pending station indexes to the worker threads.
+	 * Prefers the lowest pending index among all hosts, that are below their concurrency cap.
+	 */
+	private class Scheduler
+	{
+		private final Map<String, HostQueue> hostQueues;
+		private final String[] hostOfStation;
+		private int pendingCount;
+		private boolean canceled;
+
+		Scheduler(List<Station> stations)
+		{
+			hostQueues = new HashMap<>();
+			hostOfStation = new String[stations.size()];
+			for (int i=0; i<stations.size(); i++)
+			{
+				String host = getHost(stations.get(i).url);
+				hostOfStation[i] = host;
+				hostQueues.computeIfAbsent(host, h -> new HostQueue()).pending.add(i);
+			}
+			pendingCount = stations.size();
+			canceled = false;
+		}
+
+		synchronized int next()
+		{
+			while (!canceled && pendingCount>0)
+			{
+				HostQueue best = null;
+				for (HostQueue hostQueue : hostQueues.values())
+					if (!hostQueue.pending.isEmpty() && hostQueue.active<maxPerHost)
+						if (best==null || hostQueue.pending.peekFirst() < best.pending.peekFirst())
+							best = hostQueue;
+
+				if (best!=null)
+				{
+					best.active++;
+					pendingCount--;
+					return best.pending.pollFirst();
+				}
+
+				try { wait(); }
+				catch (InterruptedException ex) { return -1; }
+			}
+			return -1;
+		}
+
+		synchronized void done(int index)
+		{
+			hostQueues.get(hostOfStation[index]).active--;
+			notifyAll();
+		}
+
+		String getHostOfStation(int index)
+		{
+			return hostOfStation[index];
+		}
+
+		synchronized boolean isHostBlocked(String host)
+		{
+			return hostQueues.get(host).consecutiveFailures >= breakerThreshold;
+		}
+
+		synchronized void hostSucceeded(String host)
+		{
+			HostQueue hostQueue = hostQueues.get(host);
+			if (hostQueue.consecutiveFailures < breakerThreshold)
+				hostQueue.consecutiveFailures = 0;
+		}
+
+		/**
+		 * @return {@code true}, if the host gets blocked by this failure
+		 */
+		synchronized boolean hostFailed(String host)
+		{
+			HostQueue hostQueue = hostQueues.get(host);
+			hostQueue.consecutiveFailures++;
+			return hostQueue.consecutiveFailures == breakerThreshold;
+		}
+
+		synchronized boolean isCanceled()
+		{
+			return canceled;
+		}
+
+		synchronized void cancel()
+		{
+			canceled = true;
+			notifyAll();
+		}
+	}
+
+	private static class HostQueue
+	{
+		final ArrayDeque<Integer> pending = new ArrayDeque<>();
+		int active = 0;
+		/** failed attempts in a row; the host is blocked, if it reaches the breaker threshold */
+		int consecutiveFailures = 0;
+	}
+}
@@ -0,0 +1,342 @@
+package net.schwarzbaer.java.tools.livestreamlistconverter;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Imports stations from external station directories (CSV or JSON dumps).
+ * <p>
+ * The dump is parsed while it's read, so only one record and the current batch are held in memory.
+ * The fields of a record are mapped onto {@link Station#name}, {@link Station#url} and {@link Station#type} by their names
+ * (CSV: the header line, JSON: the members of each object). Types, that aren't known, are left empty and detected at the first fetch.
+ * Records without URL are skipped. Stations with a known URL or a URL, that was already imported, are counted as duplicates.
+ * Imported URLs are only tracked until their batch is passed on; from then on, {@code isKnownURL} has to know them.
+ * So memory use is limited by the batch size, not by the size of the dump.
+ * <p>
+ * New stations are passed to the batch consumer in batches of {@value #BATCH_SIZE},
+ * so a table of the stations is updated once per batch and not once per station.
+ * If the import is canceled, the batches passed before stay imported.
+ */
+class StationImporter
+{
+	static final int BATCH_SIZE = 1000;
+
+	/** field names in order of priority, in lower case */
+	private static final List<String> NAME_KEYS = List.of("name", "title", "station", "stationname", "station_name");
+	private static final List<String> URL_KEYS  = List.of("url", "playlist", "playlist_url", "stream_url", "streamurl", "listenurl", "listen_url", "url_resolved", "stream");
+	private static final List<String> TYPE_KEYS = List.of("type", "playlisttype", "playlist_type", "format");
+
+	enum Format
+	{
+		csv, json;
+
+		/**
+		 * @return the format by the extension of {@code file} or by its first character, if the extension is unknown
+		 */
+		static Format detect(File file) throws IOException
+		{
+			String name = file.getName().toLowerCase(Locale.ROOT);
+			if (name.endsWith(".json")) return json;
+			if (name.endsWith(".csv") || name.endsWith(".tsv") || name.endsWith(".txt")) return csv;
+			try (Reader in = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))
+			{
+				int ch;
+				while ( (ch=in.read())>=0 && (Character.isWhitespace(ch) || ch=='\uFEFF') ) {}
+				return ch=='[' || ch=='{' ? json : csv;
+			}
+		}
+	}
+
+	/**
+	 * @param records  number of read records
+	 * @param imported  number of new stations
+	 * @param duplicates  number of records with a known URL
+	 * @param skipped  number of records without URL
+	 */
+	record Result(int records, int imported, int duplicates, int skipped, boolean canceled)
+	{
+		@Override
+		public String toString()
+		{
+			return "%d records read, %d stations imported, %d duplicates, %d records without URL%s"
+					.formatted(records, imported, duplicates, skipped, canceled ? " (canceled)" : "");
+		}
+	}
+
+	private final Predicate<String> isKnownURL;
+	private final Consumer<List<Station>> batchConsumer;
+	/** URLs of the current batch */
+	private final HashSet<String> batchURLs;
+	private List<Station> batch;
+	private int records;
+	private int imported;
+	private int duplicates;
+	private int skipped;
+
+	/**
+	 * @param isKnownURL  returns {@code true}, if there is already a station with this URL, including the stations of the batches passed to {@code batchConsumer}
+	 * @param batchConsumer  gets the new stations, in the thread, that runs the import
+	 */
+	StationImporter(Predicate<String> isKnownURL, Consumer<List<Station>> batchConsumer)
+	{
+		this.isKnownURL = isKnownURL;
+		this.batchConsumer = batchConsumer;
+		batchURLs = new HashSet<>();
+		batch = new ArrayList<>(BATCH_SIZE);
+	}
+
+	/**
+	 * @param pr  gets the progress in kB read and is asked for cancellation (can be {@code null})
+	 */
+	Result importFile(File file, Format format, ProgressReporter pr) throws IOException
+	{
+		long length = file.length();
+		int maximum = (int) Math.min(Integer.MAX_VALUE, Math.max(1, length/1024));
+		if (pr!=null)
+		{
+			pr.setTaskTitle("Import stations from \"%s\"".formatted(file.getName()));
+			pr.setValue(0, maximum);
+		}
+		try (CountingInputStream counter = new CountingInputStream(new FileInputStream(file)))
+		{
+			Predicate<Map<String, String>> recordConsumer = fields -> {
+				if (pr!=null && pr.wasCanceled()) return false;
+				addRecord(fields);
+				if (pr!=null && records%256==0) pr.setValue((int) Math.min(maximum, counter.count/1024));
+				return true;
+			};
+			return importStream(counter, format, recordConsumer);
+		}
+	}
+
+	Result importStream(InputStream input, Format format) throws IOException
+	{
+		return importStream(input, format, fields -> { addRecord(fields); return true; });
+	}
+
+	private Result importStream(InputStream input, Format format, Predicate<Map<String, String>> recordConsumer) throws IOException
+	{
+		boolean canceled = false;
+		BufferedReader in = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8));
+		switch (format)
+		{
+		case csv : canceled = !CsvReader.read(in, recordConsumer); break;
+		case json:
+			// the JSON parser has no way to stop, so it's left by an exception
+			try { JsonURLParser.parseObjects(in, fields -> { if (!recordConsumer.test(fields)) throw new CanceledException(); }); }
+			catch (CanceledException ex) { canceled = true; }
+			break;
+		}
+		flushBatch();
+		return new Result(records, imported, duplicates, skipped, canceled);
+	}
+
+	private static class CanceledException extends RuntimeException
+	{
+		private static final long serialVersionUID = -2839487052373066815L;
+		CanceledException() { super(null, null, false, false); }
+	}
+
+	private void addRecord(Map<String, String> fields)
+	{
+		records++;
+		String url = getField(fields, URL_KEYS);
+		if (url==null) { skipped++; return; }
+		if (isKnownURL.test(url) || !batchURLs.add(url)) { duplicates++; return; }
+
+		Station station = new Station();
+		station.url  = url;
+		station.name = getField(fields, NAME_KEYS);
+		String typeStr = getField(fields, TYPE_KEYS);
+		station.type = typeStr==null ? null : SourceType.get(typeStr.toLowerCase(Locale.ROOT));
+		batch.add(station);
+		imported++;
+		if (batch.size()>=BATCH_SIZE) flushBatch();
+	}
+
+	private void flushBatch()
+	{
+		if (batch.isEmpty()) return;
+		batchConsumer.accept(batch);
+		batch = new ArrayList<>(BATCH_SIZE);
+		batchURLs.clear();
+	}
+
+	/**
+	 * @return the trimmed, non-empty value of the first key in {@code keys}, that has one, or {@code null}
+	 */
+	private static String getField(Map<String, String> fields, List<String> keys)
+	{
+		for (String key : keys)
+		{
+			String value = fields.get(key);
+			if (value!=null && !(value = value.trim()).isEmpty())
+				return value;
+		}
+		return null;
+	}
+
+	private static class CountingInputStream extends FilterInputStream
+	{
+		long count = 0;
+
+		CountingInputStream(InputStream in) { super(in); }
+
+		@Override
+		public int read() throws IOException
+		{
+			int b = super.read();
+			if (b>=0) count++;
+			return b;
+		}
+
+		@Override
+		public int read(byte[] b, int off, int len) throws IOException
+		{
+			int n = super.read(b, off, len);
+			if (n>0) count += n;
+			return n;
+		}
+	}
+
+	/**
+	 * Streaming reader of CSV files with a header line (RFC 4180: fields in double quotes can contain delimiters, line breaks and doubled quotes).
+	 * The delimiter (",", ";" or tab) is the one, that occurs most often in the header line.
+	 */
+	static class CsvReader
+	{
+		private static final int MAX_HEADER_LENGTH = 64*1024;
+
+		private final Reader input;
+		private final char delimiter;
+		private final StringBuilder field;
+		private final char[] buffer;
+		private int bufferPos;
+		private int bufferEnd;
+		private int pending;
+
+		private CsvReader(Reader input, char delimiter)
+		{
+			this.input = input;
+			this.delimiter = delimiter;
+			field = new StringBuilder();
+			// own buffer: a call of BufferedReader.read() per char is synchronized
+			buffer = new char[8192];
+			bufferPos = 0;
+			bufferEnd = 0;
+			pending = -2;
+		}
+
+		/**
+		 * @param recordConsumer  gets the fields of each record by the lower case names of the header line; stops the reading, if it returns {@code false}
+		 * @return {@code false}, if {@code recordConsumer} stopped the reading
+		 */
+		static boolean read(BufferedReader input, Predicate<Map<String, String>> recordConsumer) throws IOException
+		{
+			CsvReader reader = new CsvReader(input, detectDelimiter(input));
+			List<String> header = reader.readRecord();
+			if (header==null) return true;
+			String[] names = new String[header.size()];
+			for (int i=0; i<names.length; i++)
+			{
+				String name = header.get(i).trim().toLowerCase(Locale.ROOT);
+				names[i] = i==0 && name.startsWith("\uFEFF") ? name.substring(1) : name;
+			}
+
+			List<String> values;
+			Map<String, String> fields = new HashMap<>();
+			while ( (values=reader.readRecord())!=null )
+			{
+				if (values.size()==1 && values.get(0).isEmpty()) continue; // empty line
+				fields.clear();
+				for (int i=0; i<values.size() && i<names.length; i++)
+					fields.put(names[i], values.get(i));
+				if (!recordConsumer.test(fields)) return false;
+			}
+			return true;
+		}
+
+		private static char detectDelimiter(BufferedReader input) throws IOException
+		{
+			input.mark(MAX_HEADER_LENGTH);
+			int commas = 0, semicolons = 0, tabs = 0;
+			boolean inQuotes = false;
+			for (int i=0, ch; i<MAX_HEADER_LENGTH && (ch=input.read())>=0; i++)
+			{
+				if (ch=='"') inQuotes = !inQuotes;
+				else if (inQuotes) continue;
+				else if (ch=='\n' || ch=='\r') break;
+				else if (ch==',' ) commas++;
+				else if (ch==';' ) semicolons++;
+				else if (ch=='\t') tabs++;
+			}
+			input.reset();
+			if (tabs>commas && tabs>=semicolons) return '\t';
+			if (semicolons>commas) return ';';
+			return ',';
+		}
+
+		/**
+		 * @return the fields of the next record or {@code null} at the end of the input
+		 */
+		private List<String> readRecord() throws IOException
+		{
+			int ch = next();
+			if (ch<0) return null;
+			List<String> values = new ArrayList<>();
+			field.setLength(0);
+			boolean inQuotes = false;
+			while (true)
+			{
+				if (inQuotes)
+				{
+					if (ch<0) { values.add(field.toString()); return values; } // unterminated quotes
+					if (ch=='"')
+					{
+						ch = next();
+						if (ch=='"') field.append('"');
+						else { inQuotes = false; continue; }
+					}
+					else field.append((char) ch);
+				}
+				else if (ch<0 || ch=='\n' || ch=='\r')
+				{
+					if (ch=='\r') { ch = next(); if (ch!='\n') pending = ch; }
+					values.add(field.toString());
+					return values;
+				}
+				else if (ch==delimiter) { values.add(field.toString()); field.setLength(0); }
+				else if (ch=='"' && field.isEmpty()) inQuotes = true;
+				else field.append((char) ch);
+				ch = next();
+			}
+		}
+
+		private int next() throws IOException
+		{
+			if (pending!=-2) { int ch = pending; pending = -2; return ch; }
+			if (bufferPos>=bufferEnd)
+			{
+				bufferEnd = input.read(buffer, 0, buffer.length);
+				bufferPos = 0;
+				if (bufferEnd<=0) { bufferEnd = 0; return -1; }
+			}
+			return buffer[bufferPos++];
+		}
+	}
+}
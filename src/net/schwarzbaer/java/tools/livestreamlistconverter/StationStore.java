@@ -0,0 +1,318 @@
+package net.schwarzbaer.java.tools.livestreamlistconverter;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * Ordered list of stations with lookup by {@link Station#id}, URL and name in O(1).
+ * <p>
+ * Bulk deletes and moves need O(n) regardless of the number of affected stations.
+ * Every change is reported to the registered {@link Listener}s with the affected index range,
+ * so views can update incrementally. Listeners are called in the thread, that changed the store.
+ * URL, name and type of a stored station must be changed via {@link #setURL(Station, String)},
+ * {@link #setName(Station, String)} and {@link #setType(Station, SourceType)} to keep the lookup tables valid.
+ */
+class StationStore
+{
+	/** more removed ranges than this are reported as {@link Listener#stationsReplaced()} */
+	private static final int MAX_REMOVE_EVENTS = 32;
+
+	interface Listener
+	{
+		void stationsAdded  (int firstIndex, int lastIndex);
+		/** is called after the stations are removed, multiple ranges are reported from the highest to the lowest */
+		void stationsRemoved(int firstIndex, int lastIndex);
+		void stationsChanged(int firstIndex, int lastIndex);
+		void stationsReplaced();
+	}
+
+	interface ForEachStationAction
+	{
+		boolean doWith(int index, Station station);
+	}
+
+	private final Vector<Station> stations;
+	private final Map<Long, Station> stationsById;
+	private final Map<Long, Integer> indexesById;
+	/** values are a {@link Station} or a {@code List<Station>} for keys with more than one station */
+	private final Map<String, Object> stationsByURL;
+	private final Map<String, Object> stationsByName;
+	private final List<Listener> listeners;
+	/** {@link #indexesById} is valid for the first {@code validIndexes} stations */
+	private int validIndexes;
+
+	StationStore()
+	{
+		stations = new Vector<>();
+		stationsById = new HashMap<>();
+		indexesById = new HashMap<>();
+		stationsByURL = new HashMap<>();
+		stationsByName = new HashMap<>();
+		listeners = new CopyOnWriteArrayList<>();
+		validIndexes = 0;
+	}
+
+	void addListener   (Listener listener) { listeners.add   (listener); }
+	void removeListener(Listener listener) { listeners.remove(listener); }
+
+	/**
+	 * @return the list of stations for table models, it must not be modified
+	 */
+	Vector<Station> getTableData() { return stations; }
+
+	synchronized boolean isEmpty() { return stations.isEmpty(); }
+	synchronized int size() { return stations.size(); }
+	synchronized Station get(int index) { return index<0 || index>=stations.size() ? null : stations.get(index); }
+	synchronized List<Station> getAll() { return List.copyOf(stations); }
+	synchronized Station getById(long id) { return stationsById.get(id); }
+	synchronized List<Station> getByURL (String url ) { return getFromLookup(stationsByURL , url ); }
+	synchronized List<Station> getByName(String name) { return getFromLookup(stationsByName, name); }
+
+	/**
+	 * @return the index of {@code station} or {@code -1}, if it isn't stored
+	 */
+	synchronized int indexOf(Station station)
+	{
+		if (!isStored(station))
+			return -1;
+		for (; validIndexes<stations.size(); validIndexes++)
+			indexesById.put(stations.get(validIndexes).id, validIndexes);
+		return indexesById.get(station.id);
+	}
+
+	synchronized void forEach(ForEachStationAction action)
+	{
+		boolean dontStop = true;
+		for (int i=0; i<stations.size() && dontStop; i++)
+			dontStop = action.doWith(i, stations.get(i));
+	}
+
+	synchronized void add(Station station)
+	{
+		addAll(List.of(station));
+	}
+
+	synchronized void addAll(Collection<Station> newStations)
+	{
+		int firstIndex = stations.size();
+		for (Station station : newStations)
+			if (!stationsById.containsKey(station.id))
+			{
+				stations.add(station);
+				addToLookup(station);
+			}
+		if (firstIndex<stations.size())
+			forEachListener(l -> l.stationsAdded(firstIndex, stations.size()-1));
+	}
+
+	synchronized void replaceAll(Collection<Station> newStations)
+	{
+		stations.clear();
+		stationsById.clear();
+		stationsByURL.clear();
+		stationsByName.clear();
+		invalidateIndexes(0);
+		for (Station station : newStations)
+			if (!stationsById.containsKey(station.id))
+			{
+				stations.add(station);
+				addToLookup(station);
+			}
+		forEachListener(Listener::stationsReplaced);
+	}
+
+	/**
+	 * Removes the stations at {@code indexes} in one pass. Invalid indexes are ignored.
+	 */
+	synchronized void removeAll(int[] indexes)
+	{
+		boolean[] isRemoved = new boolean[stations.size()];
+		int count = 0;
+		for (int index : indexes)
+			if (0<=index && index<isRemoved.length && !isRemoved[index])
+			{
+				isRemoved[index] = true;
+				count++;
+			}
+		if (count==0) return;
+
+		List<int[]> ranges = new ArrayList<>();
+		int rangeStart = -1;
+		for (int i=0; i<=isRemoved.length; i++)
+		{
+			boolean removed = i<isRemoved.length && isRemoved[i];
+			if (removed && rangeStart<0) rangeStart = i;
+			if (!removed && rangeStart>=0) { ranges.add(new int[] { rangeStart, i-1 }); rangeStart = -1; }
+		}
+
+		int to = 0;
+		for (int from=0; from<isRemoved.length; from++)
+		{
+			Station station = stations.get(from);
+			if (isRemoved[from])
+				removeFromLookup(station);
+			else
+				stations.set(to++, station);
+		}
+		stations.setSize(to);
+		invalidateIndexes(ranges.get(0)[0]);
+
+		if (ranges.size()>MAX_REMOVE_EVENTS)
+			forEachListener(Listener::stationsReplaced);
+		else
+			for (int i=ranges.size()-1; i>=0; i--)
+			{
+				int[] range = ranges.get(i);
+				forEachListener(l -> l.stationsRemoved(range[0], range[1]));
+			}
+	}
+
+	/**
+	 * Moves the stations at {@code indexes} by {@code inc} positions and keeps their order.
+	 * The other stations fill the gaps in their order.
+	 * @return the new indexes of the moved stations (sorted) or {@code null}, if a station would be moved out of the list
+	 */
+	synchronized int[] move(int[] indexes, int inc)
+	{
+		int[] sorted = indexes.clone();
+		Arrays.sort(sorted);
+		int count = 0;
+		for (int i=0; i<sorted.length; i++)
+			if (i==0 || sorted[i]!=sorted[i-1])
+				sorted[count++] = sorted[i];
+		sorted = Arrays.copyOf(sorted, count);
+		if (sorted.length==0 || sorted[0]+inc<0 || sorted[sorted.length-1]+inc>=stations.size() || sorted[0]<0)
+			return null;
+		if (inc==0) return sorted;
+
+		int first = Math.min(sorted[0], sorted[0]+inc);
+		int last  = Math.max(sorted[sorted.length-1], sorted[sorted.length-1]+inc);
+		boolean[] isMoved = new boolean[last-first+1];
+		for (int index : sorted) isMoved[index-first] = true;
+
+		Station[] result = new Station[isMoved.length];
+		for (int index : sorted)
+			result[index+inc-first] = stations.get(index);
+		int to = 0;
+		for (int from=0; from<isMoved.length; from++)
+			if (!isMoved[from])
+			{
+				while (result[to]!=null) to++;
+				result[to] = stations.get(first+from);
+			}
+		for (int i=0; i<result.length; i++)
+			stations.set(first+i, result[i]);
+		invalidateIndexes(first);
+
+		forEachListener(l -> l.stationsChanged(first, last));
+		for (int i=0; i<sorted.length; i++)
+			sorted[i] += inc;
+		return sorted;
+	}
+
+	synchronized void setURL(Station station, String url)
+	{
+		boolean isStored = isStored(station);
+		if (isStored) removeFromLookup(stationsByURL, station.url, station);
+		station.url = url;
+		if (isStored) addToLookup(stationsByURL, station.url, station);
+		fireStationChanged(station);
+	}
+
+	synchronized void setName(Station station, String name)
+	{
+		boolean isStored = isStored(station);
+		if (isStored) removeFromLookup(stationsByName, station.name, station);
+		station.name = name;
+		if (isStored) addToLookup(stationsByName, station.name, station);
+		fireStationChanged(station);
+	}
+
+	synchronized void setType(Station station, SourceType type)
+	{
+		station.type = type;
+		fireStationChanged(station);
+	}
+
+	private boolean isStored(Station station)
+	{
+		return station!=null && stationsById.get(station.id)==station;
+	}
+
+	private void fireStationChanged(Station station)
+	{
+		int index = indexOf(station);
+		if (index>=0)
+			forEachListener(l -> l.stationsChanged(index, index));
+	}
+
+	private void forEachListener(Consumer<Listener> action)
+	{
+		for (Listener listener : listeners)
+			action.accept(listener);
+	}
+
+	private void invalidateIndexes(int firstInvalidIndex)
+	{
+		validIndexes = Math.min(validIndexes, firstInvalidIndex);
+	}
+
+	private void addToLookup(Station station)
+	{
+		stationsById.put(station.id, station);
+		addToLookup(stationsByURL , station.url , station);
+		addToLookup(stationsByName, station.name, station);
+	}
+
+	private void removeFromLookup(Station station)
+	{
+		stationsById.remove(station.id);
+		indexesById.remove(station.id);
+		removeFromLookup(stationsByURL , station.url , station);
+		removeFromLookup(stationsByName, station.name, station);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static List<Station> getFromLookup(Map<String, Object> map, String key)
+	{
+		Object value = map.get(key);
+		if (value instanceof Station station) return List.of(station);
+		if (value instanceof List<?> list) return List.copyOf((List<Station>) list);
+		return List.of();
+	}
+
+	@SuppressWarnings("unchecked")
+	private static void addToLookup(Map<String, Object> map, String key, Station station)
+	{
+		if (key==null) return;
+		// most keys are unique, so a list is created only for the second station of a key
+		map.merge(key, station, (oldValue, newValue) -> {
+			if (oldValue instanceof List<?> list) { ((List<Station>) list).add(station); return list; }
+			List<Station> list = new ArrayList<>(2);
+			list.add((Station) oldValue);
+			list.add(station);
+			return list;
+		});
+	}
+
+	private static void removeFromLookup(Map<String, Object> map, String key, Station station)
+	{
+		if (key==null) return;
+		map.computeIfPresent(key, (k, value) -> {
+			if (value==station) return null;
+			if (value instanceof List<?> list)
+			{
+				list.remove(station);
+				if (list.size()==1) return list.get(0);
+			}
+			return value;
+		});
+	}
+}
@@ -8,6 +8,8 @@ class StreamAdress
 	String country;
 	int bitRate;
 	int isFavorite;
+	/** result of the {@link StreamProber}, {@code null} if the stream wasn't probed */
+	Boolean alive;
 
 	StreamAdress(String name, String url)
 	{
@@ -17,6 +19,7 @@ class StreamAdress
 		this.country = "";
 		this.bitRate = 0;
 		this.isFavorite = 1;
+		this.alive = null;
 	}
 
 	@Override
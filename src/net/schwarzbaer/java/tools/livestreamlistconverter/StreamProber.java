@@ -0,0 +1,456 @@
+package net.schwarzbaer.java.tools.livestreamlistconverter;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
+import java.nio.charset.CharacterCodingException;
+import java.nio.charset.CodingErrorAction;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.BooleanSupplier;
+
+import javax.net.ssl.SSLSocket;
+import javax.net.ssl.SSLSocketFactory;
+
+/**
+ * Checks, if the found streams are reachable, and reads their ICY headers ({@code icy-br}, {@code icy-genre}, {@code icy-name}).
+ * <p>
+ * Each stream is opened with a plain socket and a HTTP/1.0 request, because SHOUTcast servers answer with
+ * "ICY 200 OK" instead of a HTTP status line, which {@link java.net.http.HttpClient} doesn't accept.
+ * Only the response headers are read, the stream data isn't touched.
+ * Each probe has a strict budget: at most {@code maxHeaderBytes} are read, and the whole probe
+ * (host name lookup, connect, TLS handshake, redirects and reading the headers) is aborted after {@code timeout_ms}.
+ * Socket timeouts alone can't guarantee this, because they start again with every received byte.
+ * So a watchdog closes the socket at the deadline, and the host name is looked up in another thread, that is abandoned at the deadline.
+ */
+class StreamProber
+{
+	enum Mode
+	{
+		/** streams aren't probed */
+		off,
+		/** unreachable streams stay in the list, their names get the prefix {@link #OFFLINE_MARK} */
+		flag,
+		/** unreachable streams are removed from the list */
+		drop,
+		;
+		static Mode parse(String str)
+		{
+			try { return valueOf(str.trim().toLowerCase()); }
+			catch (IllegalArgumentException ex) { return null; }
+		}
+	}
+
+	static final int DEFAULT_TIMEOUT_MS       = 3000;
+	static final int DEFAULT_MAX_HEADER_BYTES = 8192;
+	static final int DEFAULT_PARALLELISM      = 16;
+	static final String OFFLINE_MARK = "[offline] ";
+
+	private static final String USER_AGENT = "LiveStreamListConverter";
+	private static final int MAX_REDIRECTS = 3;
+	private static final long CANCEL_POLL_INTERVAL_MS = 100;
+
+	/** closes the sockets of probes at their deadline */
+	private static final ScheduledThreadPoolExecutor watchdog = createWatchdog();
+	private static final ExecutorService resolver = Executors.newCachedThreadPool(new DaemonThreadFactory("StreamProber.Resolver"));
+
+	private static ScheduledThreadPoolExecutor createWatchdog()
+	{
+		ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, new DaemonThreadFactory("StreamProber.Watchdog"));
+		// most probes end before their deadline
+		executor.setRemoveOnCancelPolicy(true);
+		return executor;
+	}
+
+	/**
+	 * @param statusCode  HTTP or ICY status code of the last response, {@code -1} if none was received
+	 * @param bitRate  value of {@code icy-br} in kbit/s, {@code 0} if unknown
+	 * @param error  reason, why the stream isn't reachable, or {@code null}
+	 */
+	record Result(boolean alive, int statusCode, int bitRate, String genre, String name, String error, long duration_ms)
+	{
+		static Result failed(int statusCode, String error, long start_ns)
+		{
+			return new Result(false, statusCode, 0, null, null, error, getElapsed_ms(start_ns));
+		}
+	}
+
+	private final Mode mode;
+	private final int timeout_ms;
+	private final int maxHeaderBytes;
+	private final int parallelism;
+	private final boolean useIcyName;
+
+	StreamProber(Mode mode, int timeout_ms, int maxHeaderBytes, int parallelism, boolean useIcyName)
+	{
+		this.mode = mode==null ? Mode.flag : mode;
+		this.timeout_ms = Math.max(1, timeout_ms);
+		this.maxHeaderBytes = Math.max(64, maxHeaderBytes);
+		this.parallelism = Math.max(1, parallelism);
+		this.useIcyName = useIcyName;
+	}
+
+	interface ResultListener
+	{
+		void adressProbed(StreamAdress adress, Result result);
+	}
+
+	/**
+	 * Probes all adresses of {@code adressList} concurrently and applies the results afterwards in list order:
+	 * ICY values fill the fields of reachable adresses, unreachable adresses are flagged or removed according to the {@link Mode}.
+	 * @param listener  gets the result of each adress in list order (can be {@code null})
+	 * @return {@code false}, if the task was canceled. {@code adressList} is unchanged then.
+	 */
+	boolean probeAll(List<StreamAdress> adressList, ProgressReporter pr, ResultListener listener)
+	{
+		List<StreamAdress> adresses = List.copyOf(adressList);
+		if (adresses.isEmpty()) return true;
+
+		System.out.println();
+		System.out.printf("Probe %d streams ...%n", adresses.size());
+		pr.setTaskTitle("Probe Streams:");
+		pr.setValue(0, adresses.size());
+
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(parallelism, adresses.size()), new DaemonThreadFactory("StreamProber"));
+		Result[] results = new Result[adresses.size()];
+		try
+		{
+			List<Future<Result>> futures = new ArrayList<>(adresses.size());
+			for (StreamAdress adress : adresses)
+				futures.add(executor.submit(() -> probe(adress.url)));
+
+			for (int i=0; i<futures.size(); i++)
+			{
+				results[i] = waitFor(futures.get(i), pr::wasCanceled);
+				if (results[i]==null) return false;
+				pr.setValue(i+1);
+			}
+		}
+		finally
+		{
+			executor.shutdownNow();
+		}
+
+		int deadCount = 0;
+		List<StreamAdress> remaining = new ArrayList<>(adresses.size());
+		for (int i=0; i<adresses.size(); i++)
+		{
+			StreamAdress adress = adresses.get(i);
+			Result result = results[i];
+			apply(adress, result);
+			if (!result.alive) deadCount++;
+			if (result.alive || mode!=Mode.drop) remaining.add(adress);
+
+			System.out.printf("\t%s%s%n", result.alive ? "" : mode==Mode.drop ? "[DROPPED] " : "[OFFLINE] ", describe(adress, result));
+			if (listener!=null) listener.adressProbed(adress, result);
+		}
+		adressList.clear();
+		adressList.addAll(remaining);
+		System.out.printf("%d of %d streams are reachable.%n", adresses.size()-deadCount, adresses.size());
+		return true;
+	}
+
+	static String describe(StreamAdress adress, Result result)
+	{
+		if (!result.alive)
+			return "%s (%s, %d ms)".formatted(adress.url, result.error, result.duration_ms);
+		return "%s (%d, %d kbit/s, genre: \"%s\", %d ms)".formatted(adress.url, result.statusCode, adress.bitRate, adress.genre, result.duration_ms);
+	}
+
+	private void apply(StreamAdress adress, Result result)
+	{
+		adress.alive = result.alive;
+		if (!result.alive)
+		{
+			if (mode==Mode.flag && adress.name!=null && !adress.name.startsWith(OFFLINE_MARK))
+				adress.name = OFFLINE_MARK + adress.name;
+			return;
+		}
+		if (result.bitRate>0) adress.bitRate = result.bitRate;
+		if (result.genre!=null && !result.genre.isBlank()) adress.genre = result.genre.trim();
+		if (useIcyName && result.name!=null && !result.name.isBlank()) adress.name = result.name.trim();
+	}
+
+	/**
+	 * @return the result or {@code null}, if the task was canceled
+	 */
+	private static Result waitFor(Future<Result> future, BooleanSupplier wasCanceled)
+	{
+		while (!wasCanceled.getAsBoolean())
+		{
+			try
+			{
+				return future.get(CANCEL_POLL_INTERVAL_MS, TimeUnit.MILLISECONDS);
+			}
+			catch (TimeoutException ex) {}
+			catch (InterruptedException ex)
+			{
+				Thread.currentThread().interrupt();
+				return null;
+			}
+			catch (ExecutionException ex)
+			{
+				return Result.failed(-1, String.valueOf(ex.getCause()), System.nanoTime());
+			}
+		}
+		return null;
+	}
+
+	/**
+	 * Opens {@code url} and reads the response headers within the budget of this prober.
+	 * Redirects are followed up to {@value #MAX_REDIRECTS} times.
+	 */
+	Result probe(String url)
+	{
+		long start_ns = System.nanoTime();
+		long deadline_ns = start_ns + TimeUnit.MILLISECONDS.toNanos(timeout_ms);
+		int statusCode = -1;
+		try
+		{
+			URI uri = new URI(url);
+			for (int redirects=0; ; redirects++)
+			{
+				ResponseHead head = readResponseHead(uri, deadline_ns);
+				statusCode = head.statusCode;
+				if (statusCode>=200 && statusCode<300)
+					return new Result(true, statusCode, parseBitRate(head.get("icy-br")), head.get("icy-genre"), head.get("icy-name"), null, getElapsed_ms(start_ns));
+
+				String location = head.get("location");
+				if (statusCode<300 || statusCode>=400 || location==null)
+					return Result.failed(statusCode, "status %d".formatted(statusCode), start_ns);
+				if (redirects>=MAX_REDIRECTS)
+					return Result.failed(statusCode, "too many redirects", start_ns);
+				uri = uri.resolve(new URI(location.trim()));
+			}
+		}
+		catch (URISyntaxException | IllegalArgumentException ex)
+		{
+			return Result.failed(statusCode, "invalid URL: %s".formatted(ex.getMessage()), start_ns);
+		}
+		catch (SocketTimeoutException ex)
+		{
+			return Result.failed(statusCode, "timeout after %d ms".formatted(timeout_ms), start_ns);
+		}
+		catch (IOException ex)
+		{
+			return Result.failed(statusCode, ex.toString(), start_ns);
+		}
+	}
+
+	private record ResponseHead(int statusCode, Map<String, String> headers)
+	{
+		/** @param name  header name in lower case */
+		String get(String name) { return headers.get(name); }
+	}
+
+	private ResponseHead readResponseHead(URI uri, long deadline_ns) throws IOException
+	{
+		String scheme = uri.getScheme()==null ? "" : uri.getScheme().toLowerCase(Locale.ROOT);
+		boolean secure = scheme.equals("https");
+		if (!secure && !scheme.equals("http"))
+			throw new IOException("unsupported scheme \"%s\"".formatted(scheme));
+		String host = uri.getHost();
+		if (host==null)
+			throw new IOException("URL has no host");
+		int port = uri.getPort()>=0 ? uri.getPort() : secure ? 443 : 80;
+		InetAddress address = resolve(host, deadline_ns);
+
+		try (Socket plainSocket = new Socket())
+		{
+			ScheduledFuture<?> closer = watchdog.schedule(() -> closeQuietly(plainSocket), deadline_ns-System.nanoTime(), TimeUnit.NANOSECONDS);
+			try
+			{
+				return exchange(plainSocket, new InetSocketAddress(address, port), uri, secure, deadline_ns);
+			}
+			catch (IOException ex)
+			{
+				// the watchdog has closed the socket
+				if (!(ex instanceof SocketTimeoutException) && System.nanoTime()-deadline_ns>=0)
+					throw new SocketTimeoutException();
+				throw ex;
+			}
+			finally
+			{
+				closer.cancel(false);
+			}
+		}
+	}
+
+	private ResponseHead exchange(Socket plainSocket, InetSocketAddress address, URI uri, boolean secure, long deadline_ns) throws IOException
+	{
+		String host = uri.getHost();
+		int port = address.getPort();
+		plainSocket.connect(address, getRemaining_ms(deadline_ns));
+		Socket socket = plainSocket;
+		if (secure)
+		{
+			plainSocket.setSoTimeout(getRemaining_ms(deadline_ns));
+			SSLSocket sslSocket = (SSLSocket) ((SSLSocketFactory) SSLSocketFactory.getDefault()).createSocket(plainSocket, host, port, true);
+			sslSocket.startHandshake();
+			socket = sslSocket;
+		}
+
+		String path = uri.getRawPath()==null || uri.getRawPath().isEmpty() ? "/" : uri.getRawPath();
+		if (uri.getRawQuery()!=null) path += "?" + uri.getRawQuery();
+		String hostHeader = uri.getPort()>=0 ? "%s:%d".formatted(host, port) : host;
+		String request = "GET %s HTTP/1.0\r\nHost: %s\r\nUser-Agent: %s\r\nIcy-MetaData: 0\r\nConnection: close\r\n\r\n".formatted(path, hostHeader, USER_AGENT);
+		OutputStream out = socket.getOutputStream();
+		out.write(request.getBytes(StandardCharsets.ISO_8859_1));
+		out.flush();
+
+		return parseResponseHead(readHeaderBytes(socket, deadline_ns));
+	}
+
+	/**
+	 * Looks up {@code host} in {@link #resolver}, so the probe can give up at the deadline, even if the lookup hangs.
+	 */
+	private static InetAddress resolve(String host, long deadline_ns) throws IOException
+	{
+		Future<InetAddress> future = resolver.submit(() -> InetAddress.getByName(host));
+		try
+		{
+			return future.get(getRemaining_ms(deadline_ns), TimeUnit.MILLISECONDS);
+		}
+		catch (TimeoutException | SocketTimeoutException ex)
+		{
+			future.cancel(true);
+			throw new SocketTimeoutException();
+		}
+		catch (InterruptedException ex)
+		{
+			future.cancel(true);
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException();
+		}
+		catch (ExecutionException ex)
+		{
+			if (ex.getCause() instanceof IOException ioEx) throw ioEx; // UnknownHostException
+			throw new IOException(ex.getCause());
+		}
+	}
+
+	private static void closeQuietly(Socket socket)
+	{
+		try { socket.close(); }
+		catch (IOException ex) {}
+	}
+
+	/**
+	 * Reads until the empty line after the headers, but not more than {@link #maxHeaderBytes} and not after the deadline.
+	 */
+	private byte[] readHeaderBytes(Socket socket, long deadline_ns) throws IOException
+	{
+		InputStream in = socket.getInputStream();
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream(512);
+		byte[] buffer = new byte[512];
+		int lineBreaks = 0; // consecutive line breaks, '\r' is skipped
+		while (true)
+		{
+			socket.setSoTimeout(getRemaining_ms(deadline_ns));
+			int n = in.read(buffer, 0, Math.min(buffer.length, maxHeaderBytes-bytes.size()));
+			if (n<0) break; // headers without body
+			for (int i=0; i<n; i++)
+			{
+				byte b = buffer[i];
+				if (b=='\n') lineBreaks++;
+				else if (b!='\r') lineBreaks = 0;
+				if (lineBreaks==2)
+				{
+					bytes.write(buffer, 0, i+1);
+					return bytes.toByteArray();
+				}
+			}
+			bytes.write(buffer, 0, n);
+			if (bytes.size()>=maxHeaderBytes)
+				throw new IOException("response headers exceed %d bytes".formatted(maxHeaderBytes));
+		}
+		if (bytes.size()==0)
+			throw new IOException("no response");
+		return bytes.toByteArray();
+	}
+
+	private static ResponseHead parseResponseHead(byte[] bytes) throws IOException
+	{
+		String[] lines = decodeHeaders(bytes).split("\r?\n");
+		// "HTTP/1.1 200 OK" or "ICY 200 OK"
+		String[] statusLine = lines[0].trim().split("\\s+", 3);
+		int statusCode;
+		try { statusCode = statusLine.length<2 ? -1 : Integer.parseInt(statusLine[1]); }
+		catch (NumberFormatException ex) { statusCode = -1; }
+		if (statusCode<0 || !(statusLine[0].startsWith("HTTP/") || statusLine[0].equals("ICY")))
+			throw new IOException("invalid status line: \"%s\"".formatted(lines[0]));
+
+		Map<String, String> headers = new HashMap<>();
+		for (int i=1; i<lines.length; i++)
+		{
+			int pos = lines[i].indexOf(':');
+			if (pos>0)
+				headers.putIfAbsent(lines[i].substring(0, pos).trim().toLowerCase(Locale.ROOT), lines[i].substring(pos+1).trim());
+		}
+		return new ResponseHead(statusCode, headers);
+	}
+
+	/**
+	 * Many servers send "icy-name" and "icy-genre" in UTF-8, others in ISO-8859-1.
+	 */
+	private static String decodeHeaders(byte[] bytes)
+	{
+		try
+		{
+			return StandardCharsets.UTF_8.newDecoder()
+					.onMalformedInput(CodingErrorAction.REPORT)
+					.onUnmappableCharacter(CodingErrorAction.REPORT)
+					.decode(ByteBuffer.wrap(bytes)).toString();
+		}
+		catch (CharacterCodingException ex)
+		{
+			return new String(bytes, StandardCharsets.ISO_8859_1);
+		}
+	}
+
+	/**
+	 * @param value  e.g. "128" or "128,128" (some servers repeat the value)
+	 */
+	private static int parseBitRate(String value)
+	{
+		if (value==null) return 0;
+		int end = 0;
+		value = value.trim();
+		while (end<value.length() && Character.isDigit(value.charAt(end))) end++;
+		if (end==0 || end>6) return 0;
+		return Integer.parseInt(value.substring(0, end));
+	}
+
+	private static int getRemaining_ms(long deadline_ns) throws SocketTimeoutException
+	{
+		long remaining_ms = TimeUnit.NANOSECONDS.toMillis(deadline_ns-System.nanoTime());
+		if (remaining_ms<=0) throw new SocketTimeoutException();
+		return (int) Math.min(Integer.MAX_VALUE, remaining_ms);
+	}
+
+	private static long getElapsed_ms(long start_ns)
+	{
+		return (System.nanoTime()-start_ns) / 1_000_000L;
+	}
+}
@@ -0,0 +1,172 @@
+package net.schwarzbaer.java.tools.livestreamlistconverter;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Vector;
+import java.util.function.Consumer;
+
+/**
+ * Determines the stream URLs of all known stations.
+ * Contains no GUI code, so it can be used in the headless automatic mode.
+ */
+class StreamURLDeterminer
+{
+	interface LogOutput
+	{
+		void stationResponded(Station station);
+		void adressFound(Station station, StreamAdress adress, boolean ignored, boolean duplicate);
+		void stationFinished(Station station, boolean responded);
+		void adressProbed(StreamAdress adress, StreamProber.Result result);
+	}
+
+	private final KnownStations knownStations;
+	private final BaseConfig baseConfig;
+	private final HttpFetcher httpFetcher;
+	private final boolean keepResponses;
+
+	StreamURLDeterminer(KnownStations knownStations, BaseConfig baseConfig, HttpFetcher httpFetcher, boolean keepResponses)
+	{
+		this.knownStations = knownStations;
+		this.baseConfig = baseConfig;
+		this.httpFetcher = httpFetcher;
+		this.keepResponses = keepResponses;
+	}
+
+	/**
+	 * @return {@code true}, if the adresses aren't changed after they were added to the adress list.
+	 *         This isn't the case, if they are probed or if names of duplicates are merged into them.
+	 */
+	boolean areFoundAdressesFinal()
+	{
+		AdressDeduplicator deduplicator = baseConfig.createAdressDeduplicator();
+		return baseConfig.createStreamProber()==null && (deduplicator==null || !deduplicator.mergesNames());
+	}
+
+	boolean determine(Vector<StreamAdress> adressList, ProgressReporter pr, LogOutput logOutput, RunReport runReport)
+	{
+		return determine(adressList, pr, logOutput, runReport, null);
+	}
+
+	/**
+	 * Determines the stream adresses like {@link #determine(Vector, ProgressReporter, LogOutput, RunReport)} and writes the files of all {@code outputters}.
+	 * If {@link #areFoundAdressesFinal()}, the files are rendered by an {@link OutputPipeline}, while the stream URLs are still determined.
+	 * Otherwise they are rendered after the determination.
+	 * @return the results of all formats in order of {@code outputters} (empty, if the rendering was canceled)
+	 *         or {@code null}, if the determination was canceled. No output file is changed then.
+	 */
+	Map<Outputter, Outputter.WriteReport> determineAndWrite(Vector<StreamAdress> adressList, List<Outputter> outputters, ProgressReporter pr, LogOutput logOutput, RunReport runReport)
+	{
+		if (!areFoundAdressesFinal())
+		{
+			// probing and merging of names change the adresses after they were found
+			if (!determine(adressList, pr, logOutput, runReport)) return null;
+			return Outputter.generateAndWriteAllFiles(outputters, adressList, pr);
+		}
+
+		OutputPipeline pipeline = new OutputPipeline(outputters, OutputPipeline.DEFAULT_QUEUE_CAPACITY);
+		boolean finished = false;
+		try
+		{
+			finished = determine(adressList, pr, logOutput, runReport, pipeline::add);
+		}
+		finally
+		{
+			if (!finished) pipeline.abort();
+		}
+		return finished ? pipeline.finish() : null;
+	}
+
+	/**
+	 * Fills {@code adressList} with the not ignored stream adresses of all stations.
+	 * Adresses with an already found URL are left out, if deduplication is switched on in {@link BaseConfig}.
+	 * If probing is switched on, all adresses are probed afterwards by a {@link StreamProber}.
+	 * <p>
+	 * The found adresses are filtered by a {@link PipelineStage} of its own, while the next ones are fetched and parsed.
+	 * All listeners and {@code adressConsumer} are called by this stage.
+	 * @param logOutput  additional output of the found stations and adresses (can be {@code null})
+	 * @param runReport  gets the metrics of all stations (can be {@code null})
+	 * @param adressConsumer  gets each adress in order, as soon as it's added to {@code adressList} (can be {@code null}).
+	 *                        The adresses can still change afterwards, unless {@link #areFoundAdressesFinal()}.
+	 * @return {@code false}, if the task was canceled. {@code adressList} is empty then.
+	 */
+	boolean determine(Vector<StreamAdress> adressList, ProgressReporter pr, LogOutput logOutput, RunReport runReport, Consumer<StreamAdress> adressConsumer)
+	{
+		List<Station> stations = knownStations.getStations();
+		int[] ignoredCounts = new int[stations.size()];
+		int[] duplicateCounts = new int[stations.size()];
+		AdressDeduplicator deduplicator = baseConfig.createAdressDeduplicator();
+
+		System.out.println();
+		for (Station station : stations)
+			System.out.printf("station: %s%n", station);
+
+		System.out.println();
+		System.out.println("Determine Stream URLs ...");
+		adressList.clear();
+		pr.setTaskTitle("Determine Stream URLs:");
+		pr.setValue(0, stations.size());
+
+		StationFetcher stationFetcher = new StationFetcher(httpFetcher, baseConfig::getFetchPolicy,
+				baseConfig.getFetchParallelism(), baseConfig.getFetchMaxPerHost(),
+				baseConfig.getFetchRetryBackoff_ms(), baseConfig.getFetchBreakerThreshold(), keepResponses);
+		PipelineStage filterStage = new PipelineStage("AdressFilter", PipelineStage.DEFAULT_QUEUE_CAPACITY);
+		boolean finished = false;
+		try
+		{
+			finished = stationFetcher.fetchAll(stations, pr::wasCanceled, new StationFetcher.ResultListener() {
+				@Override public void stationResponded(int index, Station station) {
+					filterStage.submit(() -> {
+						System.out.printf("station: %s%n", station);
+						if (logOutput!=null) logOutput.stationResponded(station);
+					});
+				}
+				@Override public void adressFound(int index, Station station, StreamAdress addr) {
+					filterStage.submit(() -> {
+						boolean ignored = knownStations.isIgnoredStreamURL(addr.url);
+						boolean duplicate = !ignored && deduplicator!=null && !deduplicator.add(addr);
+						if (ignored) ignoredCounts[index]++;
+						else if (duplicate) duplicateCounts[index]++;
+						else
+						{
+							adressList.add(addr);
+							if (adressConsumer!=null) adressConsumer.accept(addr);
+						}
+						String markStr = ignored ? "[IGNORED] " : duplicate ? "[DUPLICATE] " : "";
+						System.out.printf("\t%s%s%n", markStr, addr);
+						if (logOutput!=null) logOutput.adressFound(station, addr, ignored, duplicate);
+					});
+				}
+				@Override public void stationFinished(int index, Station station, boolean responded, FetchStats stats) {
+					filterStage.submit(() -> {
+						if (runReport!=null) runReport.addStation(index, station, stats, ignoredCounts[index], duplicateCounts[index]);
+						if (logOutput!=null) logOutput.stationFinished(station, responded);
+						pr.setValue(index+1);
+					});
+				}
+			});
+			if (finished)
+				finished = filterStage.finish();
+		}
+		finally
+		{
+			if (!finished) filterStage.abort();
+		}
+
+		StreamProber prober = baseConfig.createStreamProber();
+		if (finished && !pr.wasCanceled() && prober!=null)
+			finished = prober.probeAll(adressList, pr, (addr, result) -> {
+				if (runReport!=null) runReport.addProbeResult(result);
+				if (logOutput!=null) logOutput.adressProbed(addr, result);
+			});
+
+		if (runReport!=null)
+			runReport.setDeterminationFinished(!finished || pr.wasCanceled());
+
+		if (!finished || pr.wasCanceled())
+		{
+			adressList.clear();
+			return false;
+		}
+		return true;
+	}
+}
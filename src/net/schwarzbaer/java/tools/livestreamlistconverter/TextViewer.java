@@ -0,0 +1,557 @@
+package net.schwarzbaer.java.tools.livestreamlistconverter;
+
+import java.awt.BorderLayout;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Font;
+import java.awt.FontMetrics;
+import java.awt.Graphics;
+import java.awt.Rectangle;
+import java.awt.Toolkit;
+import java.awt.datatransfer.StringSelection;
+import java.awt.event.ActionEvent;
+import java.awt.event.InputEvent;
+import java.awt.event.KeyEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.Arrays;
+
+import javax.swing.AbstractAction;
+import javax.swing.JCheckBox;
+import javax.swing.JComponent;
+import javax.swing.JLabel;
+import javax.swing.JPanel;
+import javax.swing.JScrollPane;
+import javax.swing.JTextField;
+import javax.swing.JToolBar;
+import javax.swing.JViewport;
+import javax.swing.KeyStroke;
+import javax.swing.Scrollable;
+import javax.swing.SwingConstants;
+import javax.swing.SwingUtilities;
+import javax.swing.UIManager;
+
+/**
+ * Read-only viewer for large texts like station responses and previews of output files.
+ * <p>
+ * Unlike a {@link javax.swing.JTextArea} it builds no document model and lays out only the visible lines,
+ * so setting a text of several MB takes no time.
+ * Line starts are indexed lazily up to the last line, that was needed so far (by painting, scrolling or searching).
+ * Until the whole text is indexed, the height of the view is estimated from the average length of the indexed lines.
+ * <p>
+ * Lines can be selected with the mouse and copied with Ctrl+C. The search bar (Ctrl+F) finds the next or previous occurrence of a text.
+ */
+class TextViewer extends JPanel
+{
+	private static final long serialVersionUID = -3914722318937526404L;
+	private static final int TAB_SIZE = 8;
+
+	private final TextView view;
+	private final JScrollPane scrollPane;
+	private final JTextField searchField;
+	private final JCheckBox chkbxMatchCase;
+	private final JLabel searchStatus;
+
+	TextViewer()
+	{
+		super(new BorderLayout(2,2));
+
+		view = new TextView();
+		scrollPane = new JScrollPane(view);
+
+		searchField = new JTextField(20);
+		searchField.addActionListener(e -> find(true));
+		chkbxMatchCase = new JCheckBox("Match Case");
+		searchStatus = new JLabel(" ");
+
+		JToolBar searchBar = new JToolBar();
+		searchBar.setFloatable(false);
+		searchBar.add(new JLabel("Find: "));
+		searchBar.add(searchField);
+		searchBar.add(LiveStreamListConverter.createButton("Next"    , e -> find(true )));
+		searchBar.add(LiveStreamListConverter.createButton("Previous", e -> find(false)));
+		searchBar.add(chkbxMatchCase);
+		searchBar.addSeparator();
+		searchBar.add(searchStatus);
+
+		add(scrollPane, BorderLayout.CENTER);
+		add(searchBar, BorderLayout.PAGE_END);
+
+		getInputMap(WHEN_ANCESTOR_OF_FOCUSED_COMPONENT).put(KeyStroke.getKeyStroke(KeyEvent.VK_F, InputEvent.CTRL_DOWN_MASK), "focusSearch");
+		getActionMap().put("focusSearch", createAction(() -> { searchField.requestFocusInWindow(); searchField.selectAll(); }));
+	}
+
+	private static AbstractAction createAction(Runnable action)
+	{
+		return new AbstractAction() {
+			private static final long serialVersionUID = 1L;
+			@Override public void actionPerformed(ActionEvent e) { action.run(); }
+		};
+	}
+
+	void setText(String text)
+	{
+		view.setText(text==null ? "" : text);
+		scrollPane.getViewport().setViewPosition(new java.awt.Point(0,0));
+		searchStatus.setText(" ");
+	}
+
+	String getText()
+	{
+		return view.text;
+	}
+
+	private void find(boolean forward)
+	{
+		String query = searchField.getText();
+		String text = view.text;
+		if (query.isEmpty() || text.isEmpty()) return;
+		boolean ignoreCase = !chkbxMatchCase.isSelected();
+
+		int from;
+		if (forward) from = view.matchStart<0 ? 0 : view.matchStart+1;
+		else         from = view.matchStart<0 ? text.length() : view.matchStart-1;
+
+		int pos = find(text, query, from, forward, ignoreCase);
+		boolean wrapped = false;
+		if (pos<0)
+		{
+			pos = find(text, query, forward ? 0 : text.length(), forward, ignoreCase);
+			wrapped = pos>=0;
+		}
+		if (pos<0)
+		{
+			view.setMatch(-1, -1);
+			searchStatus.setText("\"%s\" not found".formatted(query));
+			return;
+		}
+		int line = view.setMatch(pos, pos+query.length());
+		searchStatus.setText("line %d%s".formatted(line+1, wrapped ? forward ? " (wrapped to start)" : " (wrapped to end)" : ""));
+	}
+
+	/**
+	 * @param from  first position to check (forward) or last possible start position (backward)
+	 * @return start of the next / previous occurrence of {@code query} or {@code -1}
+	 */
+	static int find(String text, String query, int from, boolean forward, boolean ignoreCase)
+	{
+		if (!ignoreCase)
+			return forward ? text.indexOf(query, from) : text.lastIndexOf(query, from);
+
+		int length = query.length();
+		int last = text.length()-length;
+		char first = query.charAt(0);
+		// quick check of the first char, if it can only match ASCII chars
+		boolean asciiFirst = first<128 && Character.isLetterOrDigit(first) && first!='k' && first!='K' && first!='i' && first!='I' && first!='s' && first!='S';
+		char lower = Character.toLowerCase(first);
+		char upper = Character.toUpperCase(first);
+		int step = forward ? 1 : -1;
+		for (int i = forward ? Math.max(0, from) : Math.min(from, last); forward ? i<=last : i>=0; i+=step)
+		{
+			if (asciiFirst)
+			{
+				char ch = text.charAt(i);
+				if (ch!=lower && ch!=upper) continue;
+			}
+			if (text.regionMatches(true, i, query, 0, length))
+				return i;
+		}
+		return -1;
+	}
+
+	/**
+	 * Start and end offsets of the lines of a text. Lines end with "\n", "\r\n" or "\r".
+	 * The text is scanned only as far as needed.
+	 */
+	static class LineIndex
+	{
+		private final String text;
+		private final int tabSize;
+		/** start offsets of the lines, whose start is known */
+		private int[] lineStarts;
+		private int lineCount;
+		/** text before this position is scanned */
+		private int scanPos;
+		private int currentColumns;
+		private int maxColumns;
+
+		LineIndex(String text, int tabSize)
+		{
+			this.text = text;
+			this.tabSize = Math.max(1, tabSize);
+			lineStarts = new int[256];
+			lineStarts[0] = 0;
+			lineCount = 1;
+			scanPos = 0;
+			currentColumns = 0;
+			maxColumns = 0;
+		}
+
+		boolean isComplete() { return scanPos>=text.length(); }
+
+		/**
+		 * @return number of lines, whose start and end are known
+		 */
+		int getIndexedLineCount()
+		{
+			return isComplete() ? lineCount : lineCount-1;
+		}
+
+		/**
+		 * @return exact number of lines, if the text is indexed completely, an estimation otherwise
+		 */
+		int getEstimatedLineCount()
+		{
+			if (isComplete()) return lineCount;
+			int indexedLines = lineCount-1;
+			if (indexedLines==0) return 1;
+			double charsPerLine = lineStarts[indexedLines] / (double) indexedLines;
+			return lineCount + (int) Math.ceil((text.length()-scanPos) / Math.max(1.0, charsPerLine));
+		}
+
+		/**
+		 * @return maximum length (in columns, tabs expanded) of the lines scanned so far
+		 */
+		int getMaxColumns()
+		{
+			return Math.max(maxColumns, currentColumns);
+		}
+
+		/**
+		 * Scans the text, until start and end of {@code line} are known or the text is scanned completely.
+		 */
+		void ensureIndexed(int line)
+		{
+			while (lineCount-1<=line && !isComplete())
+				scanLine();
+		}
+
+		private void ensureScanned(int offset)
+		{
+			while (scanPos<=offset && !isComplete())
+				scanLine();
+		}
+
+		private void scanLine()
+		{
+			int pos = scanPos;
+			int length = text.length();
+			int columns = currentColumns;
+			while (pos<length)
+			{
+				char ch = text.charAt(pos++);
+				if (ch=='\n' || ch=='\r')
+				{
+					if (ch=='\r' && pos<length && text.charAt(pos)=='\n') pos++;
+					if (lineCount>=lineStarts.length)
+						lineStarts = Arrays.copyOf(lineStarts, lineStarts.length*2);
+					lineStarts[lineCount++] = pos;
+					maxColumns = Math.max(maxColumns, columns);
+					currentColumns = 0;
+					scanPos = pos;
+					return;
+				}
+				columns = ch=='\t' ? (columns/tabSize+1)*tabSize : columns+1;
+			}
+			currentColumns = columns;
+			scanPos = pos;
+		}
+
+		int getLineStart(int line)
+		{
+			ensureIndexed(line);
+			return lineStarts[line];
+		}
+
+		/**
+		 * @return end of {@code line} without line terminator
+		 */
+		int getLineEnd(int line)
+		{
+			ensureIndexed(line);
+			if (line+1>=lineCount) return text.length();
+			int end = lineStarts[line+1];
+			if (end>lineStarts[line] && text.charAt(end-1)=='\n') end--;
+			if (end>lineStarts[line] && text.charAt(end-1)=='\r') end--;
+			return end;
+		}
+
+		int getLineOfOffset(int offset)
+		{
+			ensureScanned(offset);
+			int line = Arrays.binarySearch(lineStarts, 0, lineCount, offset);
+			return line>=0 ? line : -line-2;
+		}
+
+		/**
+		 * @return column of {@code offset} in {@code line}, tabs expanded
+		 */
+		int getColumn(int line, int offset)
+		{
+			int columns = 0;
+			int end = Math.min(offset, getLineEnd(line));
+			for (int pos=getLineStart(line); pos<end; pos++)
+				columns = text.charAt(pos)=='\t' ? (columns/tabSize+1)*tabSize : columns+1;
+			return columns;
+		}
+
+		/**
+		 * @return the visible part of {@code line} between the columns {@code firstColumn} (inclusive) and {@code lastColumn} (exclusive),
+		 *         with expanded tabs. Begins with {@code firstColumn} or later, if a tab covers {@code firstColumn}.
+		 */
+		String getColumns(int line, int firstColumn, int lastColumn, int[] startColumn)
+		{
+			int end = getLineEnd(line);
+			int columns = 0;
+			int pos = getLineStart(line);
+			while (pos<end && columns<firstColumn)
+				columns = text.charAt(pos++)=='\t' ? (columns/tabSize+1)*tabSize : columns+1;
+			startColumn[0] = columns;
+
+			StringBuilder sb = new StringBuilder(Math.max(0, Math.min(end-pos, lastColumn-columns)));
+			while (pos<end && columns<lastColumn)
+			{
+				char ch = text.charAt(pos++);
+				if (ch=='\t')
+				{
+					int next = (columns/tabSize+1)*tabSize;
+					for (; columns<next; columns++) sb.append(' ');
+				}
+				else
+				{
+					sb.append(ch);
+					columns++;
+				}
+			}
+			return sb.toString();
+		}
+	}
+
+	private class TextView extends JComponent implements Scrollable
+	{
+		private static final long serialVersionUID = 4823101364958290447L;
+		private static final int INSET = 3;
+
+		private String text;
+		private LineIndex lineIndex;
+		private int matchStart;
+		private int matchEnd;
+		private int selectionAnchor;
+		private int selectionLead;
+		private int lineHeight;
+		private int charWidth;
+		private int ascent;
+		private Dimension preferredSize;
+
+		TextView()
+		{
+			text = "";
+			lineIndex = new LineIndex(text, TAB_SIZE);
+			matchStart = -1;
+			matchEnd = -1;
+			selectionAnchor = -1;
+			selectionLead = -1;
+			preferredSize = null;
+
+			Font font = UIManager.getFont("TextArea.font");
+			setFont(new Font(Font.MONOSPACED, Font.PLAIN, font==null ? 12 : font.getSize()));
+			Color background = UIManager.getColor("TextArea.background");
+			Color foreground = UIManager.getColor("TextArea.foreground");
+			setBackground(background==null ? Color.WHITE : background);
+			setForeground(foreground==null ? Color.BLACK : foreground);
+			setOpaque(true);
+			setFocusable(true);
+
+			MouseAdapter mouseAdapter = new MouseAdapter() {
+				@Override public void mousePressed(MouseEvent e) {
+					requestFocusInWindow();
+					int line = getLineAt(e.getY());
+					if (e.isShiftDown() && selectionAnchor>=0) selectionLead = line;
+					else selectionAnchor = selectionLead = line;
+					repaint();
+				}
+				@Override public void mouseDragged(MouseEvent e) {
+					if (selectionAnchor<0) return;
+					selectionLead = getLineAt(e.getY());
+					scrollRectToVisible(new Rectangle(e.getX(), e.getY(), 1, 1));
+					repaint();
+				}
+			};
+			addMouseListener(mouseAdapter);
+			addMouseMotionListener(mouseAdapter);
+
+			getInputMap(WHEN_FOCUSED).put(KeyStroke.getKeyStroke(KeyEvent.VK_C, InputEvent.CTRL_DOWN_MASK), "copy");
+			getInputMap(WHEN_FOCUSED).put(KeyStroke.getKeyStroke(KeyEvent.VK_A, InputEvent.CTRL_DOWN_MASK), "selectAll");
+			getActionMap().put("copy", createAction(this::copySelection));
+			getActionMap().put("selectAll", createAction(() -> {
+				lineIndex.ensureIndexed(Integer.MAX_VALUE-1);
+				selectionAnchor = 0;
+				selectionLead = lineIndex.getIndexedLineCount()-1;
+				updatePreferredSize();
+				repaint();
+			}));
+		}
+
+		@Override
+		public void setFont(Font font)
+		{
+			super.setFont(font);
+			FontMetrics fm = getFontMetrics(font);
+			lineHeight = Math.max(1, fm.getHeight());
+			charWidth = Math.max(1, fm.charWidth('m'));
+			ascent = fm.getAscent();
+			preferredSize = null;
+			revalidate();
+			repaint();
+		}
+
+		void setText(String text)
+		{
+			this.text = text;
+			lineIndex = new LineIndex(text, TAB_SIZE);
+			matchStart = matchEnd = -1;
+			selectionAnchor = selectionLead = -1;
+			preferredSize = null;
+			revalidate();
+			repaint();
+		}
+
+		/**
+		 * @return line of the match
+		 */
+		int setMatch(int start, int end)
+		{
+			matchStart = start;
+			matchEnd = end;
+			if (start<0) { repaint(); return -1; }
+
+			int line = lineIndex.getLineOfOffset(start);
+			int startColumn = lineIndex.getColumn(line, start);
+			int endColumn = lineIndex.getColumn(line, end);
+			selectionAnchor = selectionLead = -1;
+			updatePreferredSize();
+			Rectangle rect = new Rectangle(INSET + startColumn*charWidth, line*lineHeight, Math.max(1, endColumn-startColumn)*charWidth, lineHeight);
+			// the view is resized first, if the match is beyond the estimated end
+			SwingUtilities.invokeLater(() -> scrollRectToVisible(rect));
+			repaint();
+			return line;
+		}
+
+		private int getLineAt(int y)
+		{
+			int line = Math.max(0, y/lineHeight);
+			lineIndex.ensureIndexed(line);
+			return Math.min(line, lineIndex.getIndexedLineCount()-1);
+		}
+
+		private void copySelection()
+		{
+			if (selectionAnchor<0) return;
+			int first = Math.min(selectionAnchor, selectionLead);
+			int last  = Math.max(selectionAnchor, selectionLead);
+			String selected = text.substring(lineIndex.getLineStart(first), lineIndex.getLineEnd(last));
+			Toolkit.getDefaultToolkit().getSystemClipboard().setContents(new StringSelection(selected), null);
+		}
+
+		private void updatePreferredSize()
+		{
+			Dimension size = computePreferredSize();
+			if (!size.equals(preferredSize))
+			{
+				preferredSize = size;
+				revalidate();
+			}
+		}
+
+		private Dimension computePreferredSize()
+		{
+			return new Dimension(
+					2*INSET + (lineIndex.getMaxColumns()+1)*charWidth,
+					lineIndex.getEstimatedLineCount()*lineHeight);
+		}
+
+		@Override
+		public Dimension getPreferredSize()
+		{
+			if (preferredSize==null) preferredSize = computePreferredSize();
+			return new Dimension(preferredSize);
+		}
+
+		@Override
+		protected void paintComponent(Graphics g)
+		{
+			Rectangle clip = g.getClipBounds();
+			if (clip==null) clip = new Rectangle(0, 0, getWidth(), getHeight());
+			g.setColor(getBackground());
+			g.fillRect(clip.x, clip.y, clip.width, clip.height);
+
+			int firstLine = Math.max(0, clip.y/lineHeight);
+			int lastLine = (clip.y+clip.height-1)/lineHeight;
+			lineIndex.ensureIndexed(lastLine);
+			lastLine = Math.min(lastLine, lineIndex.getIndexedLineCount()-1);
+
+			int firstColumn = Math.max(0, (clip.x-INSET)/charWidth);
+			int lastColumn = (clip.x+clip.width-INSET)/charWidth + 1;
+			int selectionFirst = Math.min(selectionAnchor, selectionLead);
+			int selectionLast  = Math.max(selectionAnchor, selectionLead);
+			Color selectionColor = UIManager.getColor("TextArea.selectionBackground");
+			int[] startColumn = new int[1];
+
+			g.setFont(getFont());
+			for (int line=firstLine; line<=lastLine; line++)
+			{
+				int y = line*lineHeight;
+				if (selectionAnchor>=0 && selectionFirst<=line && line<=selectionLast)
+				{
+					g.setColor(selectionColor==null ? new Color(0xb8cfe5) : selectionColor);
+					g.fillRect(clip.x, y, clip.width, lineHeight);
+				}
+				if (matchStart>=0 && matchStart<=lineIndex.getLineEnd(line) && matchEnd>=lineIndex.getLineStart(line))
+				{
+					int matchStartColumn = lineIndex.getColumn(line, Math.max(matchStart, lineIndex.getLineStart(line)));
+					int matchEndColumn   = lineIndex.getColumn(line, matchEnd);
+					g.setColor(Color.YELLOW);
+					g.fillRect(INSET + matchStartColumn*charWidth, y, Math.max(1, matchEndColumn-matchStartColumn)*charWidth, lineHeight);
+				}
+				String visible = lineIndex.getColumns(line, firstColumn, lastColumn, startColumn);
+				if (!visible.isEmpty())
+				{
+					g.setColor(getForeground());
+					g.drawString(visible, INSET + startColumn[0]*charWidth, y+ascent);
+				}
+			}
+
+			// painting has indexed more lines: correct the estimated size
+			Dimension size = computePreferredSize();
+			if (!size.equals(preferredSize))
+				SwingUtilities.invokeLater(this::updatePreferredSize);
+		}
+
+		@Override public Dimension getPreferredScrollableViewportSize() { return getPreferredSize(); }
+
+		@Override
+		public int getScrollableUnitIncrement(Rectangle visibleRect, int orientation, int direction)
+		{
+			return orientation==SwingConstants.VERTICAL ? lineHeight : charWidth;
+		}
+
+		@Override
+		public int getScrollableBlockIncrement(Rectangle visibleRect, int orientation, int direction)
+		{
+			if (orientation==SwingConstants.VERTICAL) return Math.max(lineHeight, visibleRect.height-lineHeight);
+			return Math.max(charWidth, visibleRect.width-charWidth);
+		}
+
+		@Override
+		public boolean getScrollableTracksViewportWidth()
+		{
+			return getParent() instanceof JViewport viewport && viewport.getWidth() > getPreferredSize().width;
+		}
+
+		@Override
+		public boolean getScrollableTracksViewportHeight()
+		{
+			return getParent() instanceof JViewport viewport && viewport.getHeight() > getPreferredSize().height;
+		}
+	}
+}
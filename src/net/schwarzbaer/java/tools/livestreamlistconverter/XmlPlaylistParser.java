@@ -0,0 +1,109 @@
+package net.schwarzbaer.java.tools.livestreamlistconverter;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.net.URI;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * Streaming parsers (StAX) for XML based playlists. URLs are passed on, as soon as their element is read.
+ * DTDs and external entities are not processed.
+ */
+class XmlPlaylistParser
+{
+	private interface ElementHandler
+	{
+		/**
+		 * @param path  lower case local names of the open elements, the current element first
+		 */
+		void startElement(XMLStreamReader reader, Deque<String> path, Consumer<String> urlConsumer) throws XMLStreamException;
+	}
+
+	/**
+	 * XSPF: {@code <playlist><trackList><track><location>URL</location>}
+	 */
+	static void parseXSPF(Reader input, URI base, Consumer<String> urlConsumer) throws IOException
+	{
+		parse(input, urlConsumer, (reader, path, consumer) -> {
+			if (path.size()>=2 && path.peekFirst().equals("location") && isParent(path, "track"))
+				accept(base, reader.getElementText(), consumer);
+		});
+	}
+
+	/**
+	 * ASX: {@code <asx><entry><ref href="URL"/>}, element and attribute names are case-insensitive.
+	 */
+	static void parseASX(Reader input, URI base, Consumer<String> urlConsumer) throws IOException
+	{
+		parse(input, urlConsumer, (reader, path, consumer) -> {
+			if (path.peekFirst().equals("ref") && isParent(path, "entry"))
+				for (int i=0; i<reader.getAttributeCount(); i++)
+					if (reader.getAttributeLocalName(i).equalsIgnoreCase("href"))
+						accept(base, reader.getAttributeValue(i), consumer);
+		});
+	}
+
+	private static boolean isParent(Deque<String> path, String name)
+	{
+		var it = path.iterator();
+		it.next();
+		return it.hasNext() && it.next().equals(name);
+	}
+
+	private static void accept(URI base, String url, Consumer<String> urlConsumer)
+	{
+		String resolved = url==null ? null : SourceType.resolveURL(base, url.trim());
+		if (resolved!=null)
+			urlConsumer.accept(resolved);
+	}
+
+	private static void parse(Reader input, Consumer<String> urlConsumer, ElementHandler handler) throws IOException
+	{
+		XMLInputFactory factory = XMLInputFactory.newFactory();
+		factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+		factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+		factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+
+		XMLStreamReader reader = null;
+		try
+		{
+			reader = factory.createXMLStreamReader(input);
+			Deque<String> path = new ArrayDeque<>();
+			while (reader.hasNext())
+				switch (reader.next())
+				{
+				case XMLStreamConstants.START_ELEMENT:
+					path.addFirst(reader.getLocalName().toLowerCase(Locale.ROOT));
+					handler.startElement(reader, path, urlConsumer);
+					// handler has read the whole element
+					if (reader.getEventType()==XMLStreamConstants.END_ELEMENT)
+						path.pollFirst();
+					break;
+				case XMLStreamConstants.END_ELEMENT:
+					path.pollFirst();
+					break;
+				}
+		}
+		catch (XMLStreamException ex)
+		{
+			// errors of the underlying stream (timeouts, canceling) are passed on unchanged
+			if (ex.getNestedException() instanceof IOException ioEx) throw ioEx;
+			if (ex.getCause() instanceof IOException ioEx) throw ioEx;
+			throw new Station.ParseException("Can't parse XML playlist: %s".formatted(ex.getMessage()), ex);
+		}
+		finally
+		{
+			if (reader!=null)
+				try { reader.close(); }
+				catch (XMLStreamException ex) {}
+		}
+	}
+}